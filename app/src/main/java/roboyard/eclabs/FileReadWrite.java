@@ -146,13 +146,17 @@ public class FileReadWrite {
             FileInputStream fin = activity.openFileInput(fileLocation);
 //            FileInputStream fin = new FileInputStream (new File(fileLocation));
 
-            int c;
-            String temp="";
-            while( (c = fin.read()) != -1){
-                temp = temp + Character.toString((char)c);
+            // one char per byte, like the files have always been read
+            BufferedReader reader = new BufferedReader(new InputStreamReader(fin, "ISO-8859-1"));
+            StringBuilder temp = new StringBuilder();
+            char[] buffer = new char[8192];
+            int n;
+            while( (n = reader.read(buffer)) != -1){
+                temp.append(buffer, 0, n);
             }
+            reader.close();
 
-            aBuffer = temp;
+            aBuffer = temp.toString();
 
         } catch (Exception e) {
             System.out.println("Exception readPrivateData");
@@ -13,8 +13,12 @@ import java.util.*;
 import java.util.HashMap;
 import java.util.Map;
 
+import driftingdroids.model.KeyDepthMapFactory;
+import driftingdroids.model.KeyDepthMapTrieOffHeap;
 import roboyard.eclabs.solver.ISolver;
+import roboyard.eclabs.solver.SolutionCache;
 import roboyard.eclabs.solver.SolverDD;
+import roboyard.eclabs.solver.SolverStatus;
 import roboyard.pm.ia.GameSolution;
 import roboyard.pm.ia.IGameMove;
 import roboyard.pm.ia.ricochet.RRGameMove;
@@ -31,6 +35,7 @@ public class GridGameScreen extends GameScreen {
     private ColorFilter wallColor = new PorterDuffColorFilter(Color.rgb(44, 96, 0), PorterDuff.Mode.SRC_ATOP); // green
     private boolean isSolved = false;
     private int solutionMoves = 0; // store the current optimal solution globally
+    private int quickSolutionMoves = 0; // moves of the quick solution that is a hint until the optimal solution is found, 0 if none
     private int numSolutionClicks = 0; // count how often you clicked on the solution button, each time the shown count goes down by one
     private int showSolutionAtHint = 5; // interval between the first hint and the current optimal solution (will be set to random 3..5 later
 
@@ -40,6 +45,11 @@ public class GridGameScreen extends GameScreen {
     private static String requestToast = ""; // this can be set from outside to set the text for a popup
 
     private ISolver solver;
+    private SolutionCache solutionCache;
+    private static final long smallHeapBytes = 256L << 20;
+    private static final long offHeapRamBudgetDivisor = 16; // direct buffers of the off-heap map: 1/16 of the heap
+    private static final long beginnerSolverMilliSeconds = 1000L; // in Beginner mode a puzzle must be solved within this time
+    private boolean isSolvingCurrentPosition = false; // the solver searches a solution from the current robot positions
 
     private boolean autoSaved = false;
 
@@ -196,7 +206,17 @@ public class GridGameScreen extends GameScreen {
         buttonSolve.setEnabled(false);
         this.instances.add(buttonSolve);
 
-        this.solver = new SolverDD();
+        this.solutionCache = new SolutionCache(gameManager.getActivity());
+        this.solver = new SolverDD(solutionCache);
+
+        // on a small java heap the known states of deep searches are spilled to the private cache directory.
+        // ART allocates the direct buffers of the map on the java heap, so they get only a small part of it.
+        KeyDepthMapTrieOffHeap.setDefaultSpillDirectory(gameManager.getActivity().getCacheDir());
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        if(maxMemory < smallHeapBytes){
+            KeyDepthMapTrieOffHeap.setDefaultRamBudget(maxMemory / offHeapRamBudgetDivisor);
+            KeyDepthMapFactory.setDefaultClass(KeyDepthMapTrieOffHeap.class);
+        }
     }
 
     /**
@@ -268,13 +288,23 @@ public class GridGameScreen extends GameScreen {
                 // in real it is still calculating the solution
                 renderManager.drawText(10, textPosY, "Generating map...");
             }else{
-                // in Beginner mode it will create a new puzzle, if it is not solvable within one second
-                if(timeCpt>=1 && getLevel().equals("Beginner")){
+                // in Beginner mode it will create a new puzzle, if the solver has used up its budget (one second)
+                if(solver.getSolverStatus() == SolverStatus.budgetExceeded){
                     renderManager.drawText(10, textPosY, "Too complicated");
                     renderManager.drawText(10, textPosYSmall, "... restarting!");
                     mustStartNext = true;
+                }else if(solver.getSolverStatus() == SolverStatus.noSolution){
+                    // the random map has put the target where no robot can stop
+                    renderManager.drawText(10, textPosY, "No solution");
+                    renderManager.drawText(10, textPosYSmall, "... restarting!");
+                    mustStartNext = true;
                 }else {
                     renderManager.drawText(10, textPosY, "AI solving...");
+                    int searchedDepth = solver.getSearchedDepth();
+                    if(searchedDepth > 0){
+                        renderManager.setTextSize(lineHeightSmall);
+                        renderManager.drawText(10, textPosYSmall, "no solution below " + (searchedDepth + 1) + " moves");
+                    }
                 }
             }
         }
@@ -375,7 +405,30 @@ public class GridGameScreen extends GameScreen {
             gameManager.setGameScreen(1);
         }
 
-        if(!isSolved && solver.getSolverStatus().isFinished())
+        if(isSolvingCurrentPosition && solver.getSolverStatus().isFinished())
+        {
+            isSolvingCurrentPosition = false;
+            if(solver.getSolverStatus() == SolverStatus.solved){
+                // play the solution from the current position
+                moves = solver.getSolution().getMoves();
+                IAMovesNumber = moves.size();
+                doMovesInMemory();
+            }else if(solver.getSolverStatus() == SolverStatus.noSolution){
+                requestToast = "The AI found no solution from this position.";
+            }
+        }
+
+        if(!isSolved && quickSolutionMoves == 0 && !isSolvingCurrentPosition)
+        {
+            GameSolution quickSolution = solver.getQuickSolution();
+            if(quickSolution != null){
+                // the hint button can be used while the optimal solution is searched
+                quickSolutionMoves = quickSolution.getMoves().size();
+                buttonSolve.setEnabled(true);
+            }
+        }
+
+        if(!isSolved && solver.getSolverStatus() == SolverStatus.solved)
         {
             isSolved = true;
             buttonSolve.setEnabled(true);
@@ -398,6 +451,9 @@ public class GridGameScreen extends GameScreen {
             moves = null;
             t = null;
         }
+        if(solver != null){
+            solver.release();
+        }
     }
 
     public ArrayList getGridElements() {
@@ -446,10 +502,19 @@ public class GridGameScreen extends GameScreen {
     }
 
     public void createGrid() {
-        this.solver = new SolverDD();
+        if(this.solver != null){
+            this.solver.release();
+        }
+        this.solver = new SolverDD(solutionCache);
+        if(getLevel().equals("Beginner")){
+            // the solver stops after the budget, then draw() starts a new puzzle
+            this.solver.setBudget(beginnerSolverMilliSeconds, 0);
+        }
 
         IAMovesNumber = 0;
         isSolved = false;
+        quickSolutionMoves = 0;
+        isSolvingCurrentPosition = false;
 
         nbCoups = 0;
         numSquares = 0;
@@ -534,8 +599,11 @@ public class GridGameScreen extends GameScreen {
         this.solver.init(gridElements);
 
         buttonSolve.setEnabled(false);
-        t = new Thread(solver, "solver");
-        t.start();
+        if(!solver.getSolverStatus().isFinished()){
+            // the solver looks the board up in the solution cache first
+            t = new Thread(solver, "solver");
+            t.start();
+        }
 
     }
 
@@ -765,9 +833,19 @@ public class GridGameScreen extends GameScreen {
 
     private class ButtonSolution implements IExecutor{
         public void execute(){
+            if(!isSolved){
+                // only the quick solution is known yet
+                gameManager.requestToast("AI Hint: it can be solved in " + quickSolutionMoves + " moves or less. The AI is still searching for the shortest solution.", false);
+                return;
+            }
             if(numSolutionClicks >= showSolutionAtHint) {
-                GameSolution solution = solver.getSolution();
-                showSolution(solution);
+                if(nbCoups > 0){
+                    // the player has moved: solve from the current position instead of restarting
+                    solveCurrentPosition();
+                }else{
+                    GameSolution solution = solver.getSolution();
+                    showSolution(solution);
+                }
             }else{
                 numSolutionClicks++;
                 if(numSolutionClicks < showSolutionAtHint) {
@@ -809,6 +887,39 @@ public class GridGameScreen extends GameScreen {
         }
     }
 
+    /**
+     * starts the solver for the current robot positions.
+     * the solver keeps its board, so only the search is done again
+     */
+    private void solveCurrentPosition()
+    {
+        if(isSolvingCurrentPosition || (moves != null && moves.size() > 0)){
+            return; // still solving or still showing a solution
+        }
+        ArrayList<GridElement> robots = new ArrayList<>();
+        for (Object currentObject : this.instances)
+        {
+            if(currentObject.getClass() == GamePiece.class)
+            {
+                GamePiece p = (GamePiece)currentObject;
+                for (Map.Entry<String, Integer> color : colors.entrySet())
+                {
+                    if(color.getKey().startsWith("r") && color.getValue() == p.getColor())
+                    {
+                        robots.add(new GridElement(p.getxObjective(), p.getyObjective(), color.getKey()));
+                    }
+                }
+            }
+        }
+        solver.setBudget(0, 0); // the player has asked for it: no time limit
+        solver.initCurrentPosition(robots);
+        isSolvingCurrentPosition = true;
+        if(!solver.getSolverStatus().isFinished()){
+            t = new Thread(solver, "solver");
+            t.start();
+        }
+    }
+
     private void showSolution(GameSolution solution)
     {
         ButtonRestart br = new ButtonRestart();
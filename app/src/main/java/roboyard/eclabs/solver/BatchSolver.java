@@ -0,0 +1,278 @@
+package roboyard.eclabs.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.Solution;
+import driftingdroids.model.Solver;
+import driftingdroids.model.SolverPool;
+import roboyard.eclabs.GridElement;
+import roboyard.eclabs.MainActivity;
+import roboyard.pm.ia.GameSolution;
+import roboyard.pm.ia.ricochet.RRGetMap;
+import roboyard.pm.ia.ricochet.RRPiece;
+
+/**
+ * Solves many boards, for example to generate a set of puzzles sorted by difficulty.
+ *
+ * The boards are solved on a fixed number of threads, each board by a sequential solver,
+ * so all cores are used without a thread per board. The solvers are reused from one board to the next.
+ * Each board has its own budget, which starts when its search starts (not when it is submitted).
+ * The results are returned in the order in which the searches finish, see take().
+ */
+public class BatchSolver {
+
+    private final ExecutorService executor;
+    private final CompletionService<Result> results;
+    private final SolverPool solverPool;
+    private final long maxMilliSeconds;
+    private final long maxMemoryBytes;
+    private final AtomicInteger numSubmitted = new AtomicInteger();
+    private int numTaken = 0;
+
+    /**
+     * the result of one board
+     */
+    public static class Result {
+        private final int index;
+        private final Board board;
+        private final RRPiece[] pieces;
+        private final SolverStatus status;
+        private final Solution solution;
+        private final int searchedDepth;
+        private final long milliSeconds;
+
+        private Result(int index, Board board, RRPiece[] pieces, SolverStatus status, Solution solution, int searchedDepth, long milliSeconds){
+            this.index = index;
+            this.board = board;
+            this.pieces = pieces;
+            this.status = status;
+            this.solution = solution;
+            this.searchedDepth = searchedDepth;
+            this.milliSeconds = milliSeconds;
+        }
+
+        /**
+         * @return the number returned by submit() for this board
+         */
+        public int getIndex(){
+            return index;
+        }
+
+        public Board getBoard(){
+            return board;
+        }
+
+        /**
+         * @return solved, noSolution, or budgetExceeded if the budget has run out before a solution was found
+         */
+        public SolverStatus getStatus(){
+            return status;
+        }
+
+        /**
+         * @return the optimal solution, null if the status is not solved
+         */
+        public Solution getSolution(){
+            return solution;
+        }
+
+        /**
+         * @return the number of moves of the optimal solution, 0 if the status is not solved
+         */
+        public int getNumMoves(){
+            return (solution == null) ? 0 : solution.size();
+        }
+
+        /**
+         * @return the optimal solution as game moves, null if the status is not solved or
+         * if the board has not been submitted as a list of GridElements
+         */
+        public GameSolution getGameSolution(){
+            if(solution == null || pieces == null){
+                return null;
+            }
+            return SolverDD.toGameSolution(solution, pieces);
+        }
+
+        /**
+         * @return the largest number of moves that has been searched completely: there is no solution with
+         * this number of moves or less. if the budget has run out, this tells how difficult the board is.
+         */
+        public int getSearchedDepth(){
+            return searchedDepth;
+        }
+
+        /**
+         * @return time in milliseconds that the search of this board has taken
+         */
+        public long getMilliSeconds(){
+            return milliSeconds;
+        }
+    }
+
+    /**
+     * @param numThreads number of boards that are solved at the same time, usually the number of cores
+     * @param maxMilliSeconds time limit of each board, 0 for no limit
+     * @param maxMemoryBytes memory limit of each board, 0 for no limit
+     */
+    public BatchSolver(int numThreads, long maxMilliSeconds, long maxMemoryBytes){
+        final int n = Math.max(1, numThreads);
+        this.executor = Executors.newFixedThreadPool(n, new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "batchSolver" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.results = new ExecutorCompletionService<Result>(executor);
+        this.solverPool = new SolverPool(n, 1);
+        this.maxMilliSeconds = maxMilliSeconds;
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    /**
+     * uses all cores
+     * @param maxMilliSeconds time limit of each board, 0 for no limit
+     * @param maxMemoryBytes memory limit of each board, 0 for no limit
+     */
+    public BatchSolver(long maxMilliSeconds, long maxMemoryBytes){
+        this(Runtime.getRuntime().availableProcessors(), maxMilliSeconds, maxMemoryBytes);
+    }
+
+    /**
+     * adds a board to the boards that are solved.
+     * the board must not be changed until its result has been taken.
+     * @param board the board with its robots and its goal
+     * @return the index of the board, see Result.getIndex()
+     */
+    public int submit(Board board){
+        return submit(board, null);
+    }
+
+    /**
+     * adds a map of the game to the boards that are solved, see SolverDD.init()
+     * @param elements the walls, the robots and the target of the map
+     * @return the index of the board, see Result.getIndex()
+     */
+    public int submit(ArrayList<GridElement> elements){
+        RRPiece[] pieces = new RRPiece[4];
+        Board board = RRGetMap.createDDWorld(elements, pieces, MainActivity.boardSizeX, MainActivity.boardSizeY);
+        return submit(board, pieces);
+    }
+
+    /**
+     * adds all boards, see submit(Board)
+     * @param boards the boards
+     * @return the index of the first board; the others follow in order
+     */
+    public int submitAll(Iterable<Board> boards){
+        int first = -1;
+        for(Board board : boards){
+            int index = submit(board);
+            if(first < 0){
+                first = index;
+            }
+        }
+        return first;
+    }
+
+    private int submit(final Board board, final RRPiece[] pieces){
+        final int index = numSubmitted.getAndIncrement();
+        results.submit(new Callable<Result>() {
+            @Override
+            public Result call() throws InterruptedException {
+                return solve(index, board, pieces);
+            }
+        });
+        return index;
+    }
+
+    private Result solve(int index, Board board, RRPiece[] pieces) throws InterruptedException {
+        Solver solver = solverPool.obtain(board);
+        boolean completed = false;
+        try {
+            List<Solution> solutions = solver.execute(maxMilliSeconds, maxMemoryBytes);
+            Solution solution = solutions.get(0);
+            SolverStatus status;
+            if(solution.size() > 0){
+                status = SolverStatus.solved;
+            }else if(solver.isBudgetExceeded()){
+                status = SolverStatus.budgetExceeded;
+            }else{
+                status = SolverStatus.noSolution;
+            }
+            completed = true;
+            return new Result(index, board, pieces, status, (status == SolverStatus.solved) ? solution : null,
+                    solver.getSearchedDepth(), solver.getSolutionMilliSeconds());
+        }finally{
+            // an interrupted solver is not reused, see shutdown()
+            if(completed){
+                solverPool.release(solver);
+            }
+        }
+    }
+
+    /**
+     * @return number of results that have been submitted but not taken yet
+     */
+    public synchronized int getNumPending(){
+        return numSubmitted.get() - numTaken;
+    }
+
+    /**
+     * waits for the next board that has been solved
+     * @return the result, in the order in which the searches finish
+     * @throws InterruptedException if the calling thread has been interrupted
+     * @throws ExecutionException if the search of the board has failed
+     */
+    public Result take() throws InterruptedException, ExecutionException {
+        Result result = results.take().get();
+        synchronized(this){
+            numTaken++;
+        }
+        return result;
+    }
+
+    /**
+     * like take(), but waits at most the given time
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return the result, or null if no board has been solved within the time
+     * @throws InterruptedException if the calling thread has been interrupted
+     * @throws ExecutionException if the search of the board has failed
+     */
+    public Result poll(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException {
+        Future<Result> future = results.poll(timeout, unit);
+        if(future == null){
+            return null;
+        }
+        Result result = future.get();
+        synchronized(this){
+            numTaken++;
+        }
+        return result;
+    }
+
+    /**
+     * stops the searches that are running, drops the boards that are waiting and ends the threads.
+     * no boards can be submitted afterwards.
+     */
+    public void shutdown(){
+        executor.shutdownNow();
+    }
+}
@@ -14,7 +14,54 @@ import roboyard.pm.ia.ricochet.RRGetMap;
 public interface ISolver extends Runnable {
 
     public void init(ArrayList<GridElement> elements);
+
+    /**
+     * prepares a new search from the current robot positions of the map given to init().
+     * must not be called while the solver is running.
+     * @param robots the robots at their current positions
+     */
+    public void initCurrentPosition(ArrayList<GridElement> robots);
     public void run();
     public SolverStatus getSolverStatus();
     public GameSolution getSolution();
+
+    /**
+     * a valid solution that may need more moves than the optimal one. it is found within milliseconds
+     * by a fast search that runs before the optimal search, so it can be shown as a hint while
+     * getSolverStatus() is still solving. getSolution() returns the optimal solution when the solver is solved.
+     * @return the quick solution, null if there is none (yet)
+     */
+    public GameSolution getQuickSolution();
+
+    /**
+     * the listener is called by the solver thread for each finished search depth and each solution
+     * @param listener the listener, may be null
+     */
+    public void setListener(SolverListener listener);
+
+    /**
+     * @return the largest number of moves that has been searched completely while solving, 0 if none.
+     * if the solver is still running, then there is no solution with this number of moves or less.
+     */
+    public int getSearchedDepth();
+
+    /**
+     * @return time in milliseconds from the start of the solver to the end of the last search depth
+     */
+    public long getSearchedMilliSeconds();
+
+    /**
+     * limits the next searches. if a limit is reached, the search stops with SolverStatus.budgetExceeded,
+     * and getSearchedDepth() is the proven lower bound: there is no solution with this number of moves or less.
+     * @param maxMilliSeconds time limit of a search, 0 for no limit
+     * @param maxMemoryBytes memory limit of a search, 0 for no limit
+     */
+    public void setBudget(long maxMilliSeconds, long maxMemoryBytes);
+
+    /**
+     * returns the internal solver to a pool, so that the next game can reuse it.
+     * if the solver is still running, then this is done when it has stopped.
+     * the solution that has been found can still be read, but no new search can be started.
+     */
+    public void release();
 }
@@ -0,0 +1,141 @@
+package roboyard.eclabs.solver;
+
+import android.app.Activity;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import driftingdroids.model.Board;
+import roboyard.eclabs.FileReadWrite;
+
+/**
+ * Cache for the solutions found by the solver, so that a board that was already solved
+ * (a reloaded save game, a replayed level or the same map after a restart) doesn't need to be solved again.
+ *
+ * The key is a hash of the walls, the robot positions and the goal of the board.
+ * The value is the list of moves, encoded as "robot,direction;robot,direction;...".
+ *
+ * The most recently used solutions are kept in memory, and new solutions are appended to a file
+ * in the private storage of the app. The file is read on the first lookup, which should not be
+ * done on the UI thread. When the file has twice as many lines as entries are kept
+ * (old and changed entries are not removed from the file), it is rewritten with the current entries.
+ */
+public class SolutionCache {
+
+    private static final String cacheFile = "solutionCache.txt";
+    private static final int maxEntries = 1000;
+    private static final int maxFileLines = 2 * maxEntries;
+
+    private final Activity activity;
+    private LinkedHashMap<String, String> entries = null;  // loaded on first use, least recently used first
+    private int numFileLines = 0;
+
+    public SolutionCache(Activity activity){
+        this.activity = activity;
+    }
+
+    /**
+     * @param key fingerprint of the board, see getKey()
+     * @return the encoded moves, or null if the board is not in the cache
+     */
+    public synchronized String get(String key){
+        return getEntries().get(key);
+    }
+
+    /**
+     * stores a solution in memory and in the file
+     * @param key fingerprint of the board, see getKey()
+     * @param moves the encoded moves
+     */
+    public synchronized void put(String key, String moves){
+        LinkedHashMap<String, String> entries = getEntries();
+        if(moves.equals(entries.get(key))){
+            return;
+        }
+        entries.put(key, moves);
+        if(activity == null){
+            return;
+        }
+        if(numFileLines >= maxFileLines){
+            // drop the evicted entries and the old lines of changed entries
+            StringBuilder content = new StringBuilder();
+            for(Map.Entry<String, String> entry : entries.entrySet()){
+                content.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+            }
+            FileReadWrite.clearPrivateData(activity, cacheFile);
+            FileReadWrite.writePrivateData(activity, cacheFile, content.toString());
+            numFileLines = entries.size();
+        }else{
+            FileReadWrite.writePrivateData(activity, cacheFile, key + " " + moves + "\n");
+            numFileLines++;
+        }
+    }
+
+    private LinkedHashMap<String, String> getEntries(){
+        if(entries == null){
+            entries = new LinkedHashMap<String, String>(16, 0.75f, true){
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+            if(activity != null){
+                String data = FileReadWrite.readPrivateData(activity, cacheFile);
+                for(String line : data.split("[\\r\\n]+")){
+                    int separator = line.indexOf(' ');
+                    if(separator > 0){
+                        // a later line of the same key replaces the earlier one
+                        entries.put(line.substring(0, separator), line.substring(separator + 1));
+                        numFileLines++;
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Creates the canonical fingerprint of a board: the same walls, robot positions and goal
+     * always give the same key.
+     *
+     * @param board the board that is to be solved
+     * @return hex string of the SHA-1 hash
+     */
+    public static String getKey(Board board){
+        StringBuilder data = new StringBuilder();
+        data.append(board.width).append('x').append(board.size / board.width).append(':');
+        boolean[][] walls = board.getWalls();
+        for(int pos = 0; pos < board.size; pos++){
+            int bits = 0;
+            for(int dir = 0; dir < walls.length; dir++){
+                if(walls[dir][pos]){
+                    bits |= 1 << dir;
+                }
+            }
+            data.append(Character.forDigit(bits, 16));
+        }
+        data.append(":robots");
+        for(int position : board.getRobotPositions()){
+            data.append(',').append(position);
+        }
+        if(board.getGoal() != null){
+            data.append(":goal,").append(board.getGoal().position).append(',').append(board.getGoal().robotNumber);
+        }
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(data.toString().getBytes("UTF-8"));
+            StringBuilder key = new StringBuilder();
+            for(byte b : hash){
+                key.append(String.format("%02x", b & 0xff));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return data.toString();
+        } catch (UnsupportedEncodingException e) {
+            return data.toString();
+        }
+    }
+}
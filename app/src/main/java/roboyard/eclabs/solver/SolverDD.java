@@ -6,10 +6,14 @@ import java.util.List;
 
 import driftingdroids.model.Move;
 import roboyard.eclabs.GameManager;
+import roboyard.eclabs.MainActivity;
 import roboyard.eclabs.GridElement;
 import driftingdroids.model.Board;
 import driftingdroids.model.Solver;
 import driftingdroids.model.Solution;
+import driftingdroids.model.SolverListener;
+import driftingdroids.model.SolverLog;
+import driftingdroids.model.SolverPool;
 import roboyard.pm.ia.GameSolution;
 import roboyard.pm.ia.ricochet.ERRGameMove;
 import roboyard.pm.ia.ricochet.RRGameMove;
@@ -21,81 +25,296 @@ import roboyard.pm.ia.ricochet.RRPiece;
  */
 public class SolverDD implements ISolver{
 
+    // the solvers of the previous games are reused, so a new game doesn't allocate the large tables again
+    private static final SolverPool solverPool = new SolverPool(1, Runtime.getRuntime().availableProcessors());
+
+    // all optimal solutions are collected (within these limits), so the hint can be the easiest one:
+    // the solutions are sorted by the number of robots moved and the number of color changes
+    private static final int HINT_MAX_SOLUTIONS = 100;
+    private static final long HINT_MAX_MILLISECONDS = 1000;
+
+    // the quick search for a first (not necessarily optimal) solution gives up after these limits
+    private static final long QUICK_MAX_MILLISECONDS = 200;
+    private static final long QUICK_MAX_MEMORY_BYTES = 32L << 20;
+
     private SolverStatus solverStatus;
+    private Board board;
     private Solver solver;
     private Solution solution;
+    private volatile Solution quickSolution;
     private RRPiece[] pieces;
+    private SolutionCache cache;
+    private String cacheKey;
+    private volatile String cachedMoves;
+    private volatile SolverListener listener;
+    private volatile int searchedDepth;
+    private volatile long searchedMilliSeconds;
+    private volatile long budgetMilliSeconds;
+    private volatile long budgetMemoryBytes;
+    private boolean running;  // guarded by this
+    private boolean released; // guarded by this
 
     public SolverDD(){
+        this(null);
+    }
+
+    /**
+     * @param cache solutions are looked up in and added to this cache, may be null
+     */
+    public SolverDD(SolutionCache cache){
         solver = null;
         solverStatus = SolverStatus.idle;
         solution = null;
         pieces = new RRPiece[4];
+        this.cache = cache;
     }
 
     public void init(ArrayList<GridElement> elements){
-        Board board = null;
-        board = RRGetMap.createDDWorld(elements, pieces);
-        solver = Solver.createInstance(board);
+        board = RRGetMap.createDDWorld(elements, pieces, MainActivity.boardSizeX, MainActivity.boardSizeY);
+        solver = null;
+        prepare();
+    }
+
+    /**
+     * Prepares a new search from the current robot positions, after init() has been called for the same map
+     * and the solver is not running. The board and the solver are kept, so the tables that depend only
+     * on the walls and the goal are not computed again.
+     *
+     * @param robots the robots at their current positions
+     */
+    public void initCurrentPosition(ArrayList<GridElement> robots){
+        if(board == null || !RRGetMap.setDDRobots(board, robots, pieces)){
+            solverStatus = SolverStatus.missingData;
+            return;
+        }
+        prepare();
+    }
+
+    private void prepare(){
+        solution = null;
+        quickSolution = null;
+        cachedMoves = null;
+        searchedDepth = 0;
+        searchedMilliSeconds = 0;
+        solverStatus = SolverStatus.idle;
+        if(cache != null){
+            // looked up in run(): the first lookup reads the cache file
+            cacheKey = SolutionCache.getKey(board);
+        }
+        synchronized(this){
+            if(solver != null || released){
+                return;
+            }
+            solver = solverPool.obtain(board);
+        }
+        solver.setOptionAllSolutions(HINT_MAX_SOLUTIONS, HINT_MAX_MILLISECONDS);
+        solver.setListener(new SolverListener() {
+            @Override
+            public void onDepthFinished(int depthLimit, int storedStates, int megaBytes, long milliSeconds) {
+                searchedDepth = depthLimit;
+                searchedMilliSeconds = milliSeconds;
+                SolverListener l = listener;
+                if(l != null){
+                    l.onDepthFinished(depthLimit, storedStates, megaBytes, milliSeconds);
+                }
+            }
+
+            @Override
+            public void onSolutionFound(Solution solution) {
+                SolverListener l = listener;
+                if(l != null){
+                    l.onSolutionFound(solution);
+                }
+            }
+        });
+    }
+
+    public void setListener(SolverListener listener){
+        this.listener = listener;
+    }
+
+    public int getSearchedDepth(){
+        return searchedDepth;
+    }
+
+    public long getSearchedMilliSeconds(){
+        return searchedMilliSeconds;
+    }
+
+    public void setBudget(long maxMilliSeconds, long maxMemoryBytes){
+        budgetMilliSeconds = maxMilliSeconds;
+        budgetMemoryBytes = maxMemoryBytes;
+    }
+
+    public synchronized void release(){
+        released = true;
+        if(!running){
+            releaseSolver();
+        }
+    }
+
+    // called with the lock held
+    private void releaseSolver(){
+        if(solver != null){
+            // the spill file of an off-heap map is released now, not by the garbage collector
+            solver.releaseResources();
+            solverPool.release(solver);
+            solver = null;
+        }
     }
 
     @Override
     public void run() {
 
-        if(solver == null){
-            return;
+        synchronized(this){
+            if(solver == null || released || solverStatus.isFinished()){
+                return;
+            }
+            running = true;
         }
 
         solverStatus = SolverStatus.solving;
 
         try {
-            List<Solution> solutions = solver.execute();
-            if(solutions.size() != 0){
+            if(cache != null){
+                String moves = cache.get(cacheKey);
+                if(moves != null){
+                    // already solved: no need to search
+                    cachedMoves = moves;
+                    solverStatus = SolverStatus.solved;
+                    return;
+                }
+            }
+            // a first hint within milliseconds, then the optimal solution replaces it
+            quickSolution = findQuickSolution();
+            List<Solution> solutions = solver.execute(budgetMilliSeconds, budgetMemoryBytes);
+            searchedDepth = solver.getSearchedDepth();
+            if(solutions.get(0).size() > 0){
+                // the best ranked of the optimal solutions
                 solution = solutions.get(0);
-                System.out.println(solution.toString());
+                SolverLog.log(solution.toString());
+                if(cache != null){
+                    cache.put(cacheKey, encodeMoves(solution));
+                }
                 solverStatus = SolverStatus.solved;
+            }else if(solver.isBudgetExceeded()){
+                // the depths that have been searched tell how difficult it is
+                solverStatus = SolverStatus.budgetExceeded;
             }else{
+                // no robot can stop on the target (see solver.isUnsolvable()), or no solution within the maximum depth
                 solverStatus = SolverStatus.noSolution;
             }
         }catch(InterruptedException e){
             solverStatus = SolverStatus.noSolution;
+        }finally{
+            synchronized(this){
+                running = false;
+                if(released){
+                    // release() has been called while solving
+                    releaseSolver();
+                }
+            }
         }
     }
 
+    private Solution findQuickSolution() throws InterruptedException{
+        Solver quickSolver = Solver.createGreedyInstance(board);
+        Solution s = quickSolver.execute(QUICK_MAX_MILLISECONDS, QUICK_MAX_MEMORY_BYTES).get(0);
+        if(s.size() == 0){
+            return null;
+        }
+        SolverLog.log("quick: " + s.toString());
+        return s;
+    }
+
     public SolverStatus getSolverStatus(){
         return this.solverStatus;
     }
 
+    private static ERRGameMove getGameMove(int direction){
+        switch(direction){
+            case 0:
+                return ERRGameMove.UP;
+            case 1:
+                return ERRGameMove.RIGHT;
+            case 2:
+                return ERRGameMove.DOWN;
+            case 3:
+                return ERRGameMove.LEFT;
+            default:
+                return ERRGameMove.NOMOVE;
+        }
+    }
+
+    /**
+     * encodes the moves of a solution for the SolutionCache
+     * @param solution solution found by the solver
+     * @return "robot,direction;robot,direction;..."
+     */
+    private static String encodeMoves(Solution solution){
+        StringBuilder moves = new StringBuilder();
+        solution.resetMoves();
+        Move m = solution.getNextMove();
+        while (m != null){
+            moves.append(m.robotNumber).append(',').append(m.direction).append(';');
+            m = solution.getNextMove();
+        }
+        solution.resetMoves();
+        return moves.toString();
+    }
+
+    private GameSolution decodeMoves(String moves){
+        GameSolution s = new GameSolution();
+        for(String move : moves.split(";")){
+            int separator = move.indexOf(',');
+            if(separator > 0){
+                int robotNumber = Integer.parseInt(move.substring(0, separator));
+                int direction = Integer.parseInt(move.substring(separator + 1));
+                s.addMove(new RRGameMove(pieces[robotNumber], getGameMove(direction)));
+            }
+        }
+        return s;
+    }
+
     public GameSolution getSolution(){
+        if(cachedMoves != null){
+            return decodeMoves(cachedMoves);
+        }
+        return toGameSolution(solution, pieces);
+    }
+
+    public GameSolution getQuickSolution(){
+        Solution s = quickSolution;
+        if(s == null){
+            return null;
+        }
+        return toGameSolution(s, pieces);
+    }
+
+    /**
+     * converts a solution of the solver into the moves of the game
+     * @param solution solution found by the solver
+     * @param pieces the robots of the game, see RRGetMap.createDDWorld()
+     * @return the moves
+     */
+    static GameSolution toGameSolution(Solution solution, RRPiece[] pieces){
         GameSolution s = new GameSolution();
 
+        StringBuilder log = SolverLog.isEnabled() ? new StringBuilder() : null;
         solution.resetMoves();
         Move m = solution.getNextMove();
         while (m != null){
 
-            ERRGameMove mv;
-            switch(m.direction){
-                case 0:
-                    mv = ERRGameMove.UP;
-                    break;
-                case 1:
-                    mv = ERRGameMove.RIGHT;
-                    break;
-                case 2:
-                    mv = ERRGameMove.DOWN;
-                    break;
-                case 3:
-                    mv = ERRGameMove.LEFT;
-                    break;
-                default:
-                    mv = ERRGameMove.NOMOVE;
-                    break;
+            ERRGameMove mv = getGameMove(m.direction);
+            if(log != null){
+                log.append(m.direction).append(',').append(pieces[m.robotNumber].getColor()).append(';');
             }
-            System.out.print(m.direction+","+pieces[m.robotNumber].getColor()+";");
             s.addMove(new RRGameMove(pieces[m.robotNumber], mv));
             m = solution.getNextMove();
         }
-        System.out.println("");
+        if(log != null){
+            SolverLog.log(log.toString());
+        }
         return s;
     }
 
@@ -8,7 +8,8 @@ public enum SolverStatus{
     solving(false, 1),
     solved(true, 0),
     missingData(true, 1),
-    noSolution(true, 2);
+    noSolution(true, 2),
+    budgetExceeded(true, 3); // stopped by the budget of setBudget(), see getSearchedDepth()
 
     private final boolean status;
     private final int code;
@@ -20,10 +20,12 @@ public class RRGetMap {
      *
      * @param gridElements game elements
      * @param baseState
+     * @param boardSizeX width of the board
+     * @param boardSizeY height of the board
      * @return
      */
-    public static RRWorld createRRWorld(ArrayList<GridElement> gridElements, RRGameState baseState) {
-        RRWorld currentWorld = new RRWorld();
+    public static RRWorld createRRWorld(ArrayList<GridElement> gridElements, RRGameState baseState, int boardSizeX, int boardSizeY) {
+        RRWorld currentWorld = new RRWorld(boardSizeX, boardSizeY);
 
         ArrayList<GridElement> robots = new ArrayList<GridElement>();
         GridElement cible = null;
@@ -137,10 +139,12 @@ public class RRGetMap {
      *
      * @param gridElements game elements
      * @param pieces
+     * @param boardSizeX width of the board
+     * @param boardSizeY height of the board
      * @return
      */
-    public static Board createDDWorld(ArrayList<GridElement> gridElements, RRPiece[] pieces) {
-        Board board = Board.createBoardFreestyle(null, 16, 16, 4);
+    public static Board createDDWorld(ArrayList<GridElement> gridElements, RRPiece[] pieces, int boardSizeX, int boardSizeY) {
+        Board board = Board.createBoardFreestyle(null, boardSizeX, boardSizeY, 4);
         board.removeGoals();
 
         Map<String, Integer> colors = new HashMap<>();
@@ -168,13 +172,13 @@ public class RRGetMap {
             GridElement myp = (GridElement) element;
 
             if (myp.getType().equals("mh")) {
-                board.setWall(myp.getX() | (myp.getY() << 4), "N", true);
+                board.setWall(myp.getX() + myp.getY() * board.width, "N", true);
             }
             if (myp.getType().equals("mv")) {
-                board.setWall(myp.getX() | (myp.getY() << 4), "W", true);
+                board.setWall(myp.getX() + myp.getY() * board.width, "W", true);
             }
             if (myp.getType().equals("cr") || myp.getType().equals("cv") ||myp.getType().equals("cb") ||myp.getType().equals("cj") ||myp.getType().equals("cm")) {
-                board.addGoal(myp.getX()|(myp.getY()<<4), colors.get(myp.getType()), 1);
+                board.addGoal(myp.getX() + myp.getY() * board.width, colors.get(myp.getType()), 1);
             }
             if (myp.getType().equals("rr") || myp.getType().equals("rv") ||myp.getType().equals("rb") ||myp.getType().equals("rj")) {
                 pieces[colors.get(myp.getType())] = new RRPiece(myp.getX(), myp.getY(), colors2.get(myp.getType()), cpt);
@@ -183,9 +187,46 @@ public class RRGetMap {
         }
 
         for(int i=0; i<4; i++){
-            board.setRobot(i, pieces[i].getX()|(pieces[i].getY()<<4), false);
+            board.setRobot(i, pieces[i].getX() + pieces[i].getY() * board.width, false);
         }
 
         return board;
     }
+
+    /**
+     * Moves the robots of a board created by createDDWorld to new positions
+     * (walls and goal stay the same)
+     *
+     * @param board board created by createDDWorld
+     * @param robotElements the robots at their new positions, other game elements are ignored
+     * @param pieces updated with the new positions
+     * @return false if the positions are invalid
+     */
+    public static boolean setDDRobots(Board board, ArrayList<GridElement> robotElements, RRPiece[] pieces) {
+        Map<String, Integer> colors = new HashMap<>();
+        Map<String, Integer> colors2 = new HashMap<>();
+
+        colors2.put("rr", Color.RED);
+        colors2.put("rb", Color.BLUE);
+        colors2.put("rv", Color.GREEN);
+        colors2.put("rj", Color.YELLOW);
+
+        colors.put("rr", 0);
+        colors.put("rb", 1);
+        colors.put("rv", 2);
+        colors.put("rj", 3);
+
+        int[] positions = board.getRobotPositions().clone();
+        int cpt = 0;
+
+        for (GridElement myp : robotElements) {
+            if (myp.getType().equals("rr") || myp.getType().equals("rv") ||myp.getType().equals("rb") ||myp.getType().equals("rj")) {
+                pieces[colors.get(myp.getType())] = new RRPiece(myp.getX(), myp.getY(), colors2.get(myp.getType()), cpt);
+                positions[colors.get(myp.getType())] = myp.getX() + myp.getY() * board.width;
+                cpt ++;
+            }
+        }
+
+        return board.setRobots(positions);
+    }
 }
@@ -0,0 +1,73 @@
+package roboyard.eclabs.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import driftingdroids.model.Board;
+import driftingdroids.model.Solver;
+
+/**
+ * BatchSolver must return one result per board, with the index returned by submit()
+ * and the same number of moves as a single solver.
+ */
+public class BatchSolverTest {
+
+    private static final String[] GAME_IDS = {
+        "4BDE+42+9E0B5A6F+92",
+        "98EB+43+03ECC8F1+23",
+        "50E7+41+1FCEB29E+1D",
+        "3C1E+43+0981A294+6B",
+        "69F4+40+CA19BBF6+AE",
+        "34A5+42+B2CAA85B+93",
+        "1283+40+D544DD09+21",
+        "9B24+42+3BFE192A+95",
+    };
+
+    @Test(timeout = 120000)
+    public void testSameAsSingleSolver() throws Exception {
+        List<Board> boards = new ArrayList<Board>();
+        int[] expected = new int[GAME_IDS.length];
+        for(int i = 0; i < GAME_IDS.length; i++){
+            Board board = Board.createBoardGameID(GAME_IDS[i]);
+            boards.add(board);
+            expected[i] = Solver.createInstance(board, 1).execute().get(0).size();
+        }
+        BatchSolver batchSolver = new BatchSolver(3, 0, 0);
+        try{
+            assertEquals(0, batchSolver.submitAll(boards));
+            assertEquals(GAME_IDS.length, batchSolver.getNumPending());
+            boolean[] isTaken = new boolean[GAME_IDS.length];
+            for(int i = 0; i < GAME_IDS.length; i++){
+                BatchSolver.Result result = batchSolver.take();
+                assertTrue(!isTaken[result.getIndex()]);
+                isTaken[result.getIndex()] = true;
+                assertTrue(boards.get(result.getIndex()) == result.getBoard());
+                assertEquals(SolverStatus.solved, result.getStatus());
+                assertEquals(expected[result.getIndex()], result.getNumMoves());
+            }
+            assertEquals(0, batchSolver.getNumPending());
+        }finally{
+            batchSolver.shutdown();
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testBudgetExceeded() throws Exception {
+        // a memory budget of 1 byte stops the search of an 8-move board after the first depth
+        BatchSolver batchSolver = new BatchSolver(1, 0, 1);
+        try{
+            batchSolver.submit(Board.createBoardGameID(GAME_IDS[0]));
+            BatchSolver.Result result = batchSolver.take();
+            assertEquals(SolverStatus.budgetExceeded, result.getStatus());
+            assertEquals(null, result.getSolution());
+            assertTrue(result.getSearchedDepth() < 8);
+        }finally{
+            batchSolver.shutdown();
+        }
+    }
+}
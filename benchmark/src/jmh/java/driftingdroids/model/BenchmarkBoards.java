@@ -0,0 +1,154 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import roboyard.eclabs.GridElement;
+import roboyard.eclabs.MapObjects;
+import roboyard.pm.ia.ricochet.RRGetMap;
+import roboyard.pm.ia.ricochet.RRPiece;
+
+/**
+ * The boards that are used as input of the benchmarks.
+ * Each source always creates the same boards, so that the results can be compared across commits.
+ */
+public final class BenchmarkBoards {
+
+    public static final String MAPS = "maps";
+    public static final String RANDOM = "random";
+    public static final String GAME_IDS = "gameIds";
+
+    private static final int NUM_MAPS = 61;
+    private static final long RANDOM_SEED = 20111213L;
+    private static final int NUM_RANDOM_BOARDS = 8;
+
+    //DriftingDroids game IDs of boards that need 2 to 10 moves, with 4 and 5 robots
+    private static final String[] GAME_ID_LIST = {
+        "4BDE+42+9E0B5A6F+92",
+        "98EB+43+03ECC8F1+23",
+        "50E7+41+1FCEB29E+1D",
+        "3C1E+43+0981A294+6B",
+        "69F4+40+CA19BBF6+AE",
+        "902F+40+961D8FC3+A8",
+        "68DF+52+F51ED9A961+8B",
+        "275C+52+45537DB595+C6",
+        "16B0+51+132816C2F1+6D",
+        "0E93+53+00337A9021+DC",
+        "1C7A+50+05EE7999FA+21"
+    };
+
+
+
+    private BenchmarkBoards() { }
+
+    public static Board[] create(final String source) throws IOException {
+        if (MAPS.equals(source)) {
+            return createFromMaps();
+        } else if (RANDOM.equals(source)) {
+            return createRandom(4);
+        } else if (GAME_IDS.equals(source)) {
+            return createFromGameIds();
+        }
+        throw new IllegalArgumentException("unknown board source: " + source);
+    }
+
+    //the levels of the app (assets/Maps/generatedMap_*.txt), converted like SolverDD does it.
+    //the directory is passed by the build as system property "benchmark.mapsDir".
+    public static Board[] createFromMaps() throws IOException {
+        final File dir = new File(System.getProperty("benchmark.mapsDir", "../app/src/main/assets/Maps"));
+        final List<Board> result = new ArrayList<Board>();
+        for (int i = 0;  i < NUM_MAPS;  ++i) {
+            final byte[] data = Files.readAllBytes(new File(dir, "generatedMap_" + i + ".txt").toPath());
+            @SuppressWarnings("unchecked")
+            final ArrayList<GridElement> elements = MapObjects.extractDataFromString(new String(data, StandardCharsets.UTF_8));
+            result.add(RRGetMap.createDDWorld(elements, new RRPiece[4], Board.WIDTH_STANDARD, Board.HEIGHT_STANDARD));
+        }
+        return result.toArray(new Board[result.size()]);
+    }
+
+    public static Board[] createRandom(final int numRobots) {
+        Board.setRandomSeed(RANDOM_SEED);
+        final Board[] result = new Board[NUM_RANDOM_BOARDS];
+        for (int i = 0;  i < result.length;  ++i) {
+            result[i] = Board.createBoardRandom(numRobots);
+        }
+        return result;
+    }
+
+    public static Board[] createFromGameIds() {
+        final Board[] result = new Board[GAME_ID_LIST.length];
+        for (int i = 0;  i < result.length;  ++i) {
+            result[i] = Board.createBoardGameID(GAME_ID_LIST[i]);
+        }
+        return result;
+    }
+
+    //the first board of the game ID list that has the specified number of robots
+    public static Board createGameIdBoard(final int numRobots) {
+        for (final Board board : createFromGameIds()) {
+            if (numRobots == board.getNumRobots()) {
+                return board;
+            }
+        }
+        throw new IllegalArgumentException("no board with " + numRobots + " robots");
+    }
+
+    //the first numStates states that a breadth-first search reaches from the start position of the board.
+    //(random robot positions would give keys that are spread much wider than the keys of a real search)
+    public static int[][] createReachableStates(final Board board, final int numStates) {
+        final boolean[][] walls = board.getWalls();
+        final KeyMakerLong keyMaker = KeyMakerLong.createInstance(board.getNumRobots(), board.sizeNumBits, false);
+        final Set<Long> knownKeys = new HashSet<Long>();
+        final int[][] result = new int[numStates][];
+        result[0] = board.getRobotPositions().clone();
+        knownKeys.add(Long.valueOf(keyMaker.run(result[0])));
+        int numResult = 1;
+        for (int todo = 0;  (todo < numResult) && (numResult < numStates);  ++todo) {
+            final int[] oldState = result[todo];
+            for (int robo = 0;  (robo < oldState.length) && (numResult < numStates);  ++robo) {
+                for (int dir = 0;  (dir < 4) && (numResult < numStates);  ++dir) {
+                    int newPos = oldState[robo];
+                    while (false == walls[dir][newPos]) {
+                        final int nextPos = newPos + board.directionIncrement[dir];
+                        boolean isRobot = false;
+                        for (final int pos : oldState) { isRobot |= (pos == nextPos); }
+                        if (true == isRobot) { break; }
+                        newPos = nextPos;
+                    }
+                    final int[] newState = oldState.clone();
+                    newState[robo] = newPos;
+                    if (true == knownKeys.add(Long.valueOf(keyMaker.run(newState)))) {
+                        result[numResult++] = newState;
+                    }
+                }
+            }
+        }
+        if (numResult < numStates) {
+            throw new IllegalArgumentException("the board has only " + numResult + " reachable states");
+        }
+        return result;
+    }
+}
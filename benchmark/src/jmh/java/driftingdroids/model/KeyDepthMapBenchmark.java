@@ -0,0 +1,117 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of <code>putIfGreater</code> for each implementation of <code>KeyDepthMap</code>, in keys per microsecond.
+ * <p>
+ * Each invocation puts the same sequence of keys into a new map: 3/4 of them are new,
+ * 1/4 are repeated with a random depth, like the known states of a search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class KeyDepthMapBenchmark {
+
+    private static final int NUM_KEYS = 1 << 20;
+
+    @Param({ "KeyDepthMapTrieGeneric", "KeyDepthMapTrieSpecial", "KeyDepthMapTrieSpecialNibble", "KeyDepthMapTrieConcurrent", "KeyDepthMapTrieOffHeap", "KeyDepthMapHashRobinHood", "KeyDepthMapHashBounded", "KeyDepthMapDenseRanked" })
+    public String implementation;
+
+    @Param({ "4", "5" })
+    public int numRobots;
+
+    private Board board;
+    private Class<? extends KeyDepthMap> clazz;
+    private int[] intKeys;
+    private long[] longKeys;
+    private int[] depths;
+    private KeyDepthMap map;
+
+
+
+    @Setup
+    public void setup() throws ClassNotFoundException {
+        this.board = BenchmarkBoards.createGameIdBoard(this.numRobots);
+        this.clazz = Class.forName("driftingdroids.model." + this.implementation).asSubclass(KeyDepthMap.class);
+        final int[][] states = BenchmarkBoards.createReachableStates(this.board, NUM_KEYS);
+        final Random random = new Random(NUM_KEYS);
+        this.depths = new int[NUM_KEYS];
+        for (int i = 0;  i < NUM_KEYS;  ++i) {
+            if ((i >= 4) && (0 == (i & 3))) {
+                states[i] = states[random.nextInt(i)];  //a known state
+            }
+            this.depths[i] = 1 + random.nextInt(20);
+        }
+        if (this.board.sizeNumBits * this.numRobots <= 32) {
+            final KeyMakerInt keyMaker = KeyMakerInt.createInstance(this.numRobots, this.board.sizeNumBits, false);
+            this.intKeys = new int[NUM_KEYS];
+            for (int i = 0;  i < NUM_KEYS;  ++i) { this.intKeys[i] = keyMaker.run(states[i]); }
+        } else {
+            final KeyMakerLong keyMaker = KeyMakerLong.createInstance(this.numRobots, this.board.sizeNumBits, false);
+            this.longKeys = new long[NUM_KEYS];
+            for (int i = 0;  i < NUM_KEYS;  ++i) { this.longKeys[i] = keyMaker.run(states[i]); }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newMap() {
+        this.map = null;    //allow garbage collection
+        this.map = KeyDepthMapFactory.newInstance(this.board, this.clazz);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_KEYS)
+    public int putIfGreater() {
+        final KeyDepthMap theMap = this.map;
+        final int[] theDepths = this.depths;
+        int result = 0;
+        if (null != this.intKeys) {
+            final int[] keys = this.intKeys;
+            for (int i = 0;  i < keys.length;  ++i) {
+                if (true == theMap.putIfGreater(keys[i], theDepths[i])) { ++result; }
+            }
+        } else {
+            final long[] keys = this.longKeys;
+            for (int i = 0;  i < keys.length;  ++i) {
+                if (true == theMap.putIfGreater(keys[i], theDepths[i])) { ++result; }
+            }
+        }
+        return result;
+    }
+}
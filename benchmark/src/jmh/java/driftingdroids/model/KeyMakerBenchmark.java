@@ -0,0 +1,91 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of <code>KeyMakerInt.run</code> and <code>KeyMakerLong.run</code>, in keys per microsecond.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyMakerBenchmark {
+
+    private static final int NUM_STATES = 1 << 12;
+
+    @Param({ "false", "true" })
+    public boolean isWildcard;
+
+    private int[][] states4, states5;
+    private KeyMakerInt keyMakerInt;
+    private KeyMakerLong keyMakerLong4, keyMakerLong5;
+
+
+
+    @Setup
+    public void setup() {
+        final Board board4 = BenchmarkBoards.createGameIdBoard(4);
+        final Board board5 = BenchmarkBoards.createGameIdBoard(5);
+        this.states4 = BenchmarkBoards.createReachableStates(board4, NUM_STATES);
+        this.states5 = BenchmarkBoards.createReachableStates(board5, NUM_STATES);
+        this.keyMakerInt = KeyMakerInt.createInstance(4, board4.sizeNumBits, this.isWildcard);
+        this.keyMakerLong4 = KeyMakerLong.createInstance(4, board4.sizeNumBits, this.isWildcard);
+        this.keyMakerLong5 = KeyMakerLong.createInstance(5, board5.sizeNumBits, this.isWildcard);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_STATES)
+    public int keyMakerInt4() {
+        int result = 0;
+        for (final int[] state : this.states4) { result += this.keyMakerInt.run(state); }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_STATES)
+    public long keyMakerLong4() {
+        long result = 0;
+        for (final int[] state : this.states4) { result += this.keyMakerLong4.run(state); }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_STATES)
+    public long keyMakerLong5() {
+        long result = 0;
+        for (final int[] state : this.states5) { result += this.keyMakerLong5.run(state); }
+        return result;
+    }
+}
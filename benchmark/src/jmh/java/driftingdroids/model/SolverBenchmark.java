@@ -0,0 +1,84 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to solve all boards of a source with <code>SolverIDDFS.execute()</code>.
+ * <p>
+ * The variants select the search kernel: the standard boards are searched by <code>dfsRecursionFast</code>,
+ * the same boards with a wildcard goal (on the same square) by <code>dfsRecursionWildcard</code>,
+ * and without rebound moves by <code>dfsRecursionNoRebound</code>.
+ * Some maps of the app have a wildcard goal already.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({ BenchmarkBoards.MAPS, BenchmarkBoards.RANDOM, BenchmarkBoards.GAME_IDS })
+    public String source;
+
+    @Param({ "standard", "wildcard", "noRebounds" })
+    public String variant;
+
+    private Board[] boards;
+
+
+
+    @Setup
+    public void setup() throws IOException {
+        this.boards = BenchmarkBoards.create(this.source);
+        if ("wildcard".equals(this.variant)) {
+            for (final Board board : this.boards) {
+                final Board.Goal goal = board.getGoal();
+                board.addGoal(goal.position, -1, goal.shape);
+                board.setGoal(goal.position);
+            }
+        }
+    }
+
+    @Benchmark
+    public void executeIDDFS(final Blackhole blackhole) throws InterruptedException {
+        for (final Board board : this.boards) {
+            final Solver solver = new SolverIDDFS(board);
+            solver.setOptionAllowRebounds(false == "noRebounds".equals(this.variant));
+            final List<Solution> solutions = solver.execute();
+            blackhole.consume(solutions.get(0).size());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package android.graphics;
+
+/**
+ * JVM replacement of android.graphics.Color for the benchmarks (only the constants used by RRGetMap).
+ */
+public class Color {
+    public static final int BLUE = 0xFF0000FF;
+    public static final int GREEN = 0xFF00FF00;
+    public static final int RED = 0xFFFF0000;
+    public static final int YELLOW = 0xFFFFFF00;
+}
@@ -0,0 +1,79 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.Arrays;
+
+/**
+ * Base64 encoding of the game dumps (RFC 4648, with padding).
+ * The solver must run on Android (no java.util.Base64 before API 26) and on plain JVMs
+ * (no android.util.Base64), so it brings its own small implementation.
+ */
+final class Base64 {
+
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int[] VALUES = new int[128];
+    static {
+        Arrays.fill(VALUES, -1);
+        for (int i = 0;  i < ALPHABET.length;  ++i) { VALUES[ALPHABET[i]] = i; }
+    }
+
+
+
+    private Base64() { }
+
+    public static String encode(final byte[] input) {
+        final StringBuilder result = new StringBuilder((input.length + 2) / 3 * 4);
+        for (int i = 0;  i < input.length;  i += 3) {
+            final int len = Math.min(3, input.length - i);
+            int bits = (0xff & input[i]) << 16;
+            if (len > 1) { bits |= (0xff & input[i + 1]) << 8; }
+            if (len > 2) { bits |= (0xff & input[i + 2]); }
+            result.append(ALPHABET[(bits >>> 18) & 63]);
+            result.append(ALPHABET[(bits >>> 12) & 63]);
+            result.append((len > 1) ? ALPHABET[(bits >>> 6) & 63] : '=');
+            result.append((len > 2) ? ALPHABET[bits & 63] : '=');
+        }
+        return result.toString();
+    }
+
+    //whitespace (line breaks of older dumps) is ignored, the padding is optional.
+    public static byte[] decode(final String input) {
+        final byte[] buffer = new byte[input.length() * 3 / 4 + 3];
+        int len = 0, bits = 0, numBits = 0;
+        for (int i = 0;  i < input.length();  ++i) {
+            final char c = input.charAt(i);
+            if ('=' == c) {
+                break;
+            } else if (Character.isWhitespace(c)) {
+                continue;
+            }
+            final int value = ((c < VALUES.length) ? VALUES[c] : -1);
+            if (value < 0) {
+                throw new IllegalArgumentException("invalid base64 character: " + c);
+            }
+            bits = (bits << 6) | value;
+            numBits += 6;
+            if (numBits >= 8) {
+                numBits -= 8;
+                buffer[len++] = (byte)(bits >>> numBits);
+            }
+        }
+        return Arrays.copyOf(buffer, len);
+    }
+}
@@ -17,8 +17,6 @@
 
 package driftingdroids.model;
 
-import android.util.Base64;
-
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,8 +30,6 @@ import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
-import roboyard.eclabs.MainActivity;
-
 //import javax.xml.bind.DatatypeConverter;
 
 
@@ -42,10 +38,10 @@ import roboyard.eclabs.MainActivity;
  */
 public class Board {
 
-    public static final int WIDTH_STANDARD = MainActivity.boardSizeX;
+    public static final int WIDTH_STANDARD = 16;    //size of the quadrant boards; other sizes are created with createBoardFreestyle()
     public static final int WIDTH_MIN = 3;
     public static final int WIDTH_MAX = 100;
-    public static final int HEIGHT_STANDARD = MainActivity.boardSizeY;
+    public static final int HEIGHT_STANDARD = 16;
     public static final int HEIGHT_MIN = 3;
     public static final int HEIGHT_MAX = 100;
     public static final int SIZE_MAX = 4096; // 12 bits
@@ -412,6 +408,17 @@ public class Board {
     }
 
 
+    /**
+     * Seeds the random generator that is used for random boards, robot positions and goals,
+     * so that a sequence of random boards can be created again (for example by the benchmarks).
+     *
+     * @param seed the initial seed
+     */
+    public static void setRandomSeed(long seed) {
+        RANDOM.setSeed(seed);
+    }
+
+
     public static Board createBoardRandom(int numRobots) {
         final ArrayList<Integer> indexList = new ArrayList<Integer>();
         for (int i = 0;  i < 4;  ++i) { indexList.add(Integer.valueOf(i)); }
@@ -648,7 +655,7 @@ public class Board {
         final int zipOutLen = 4 + zip.deflate(zipOutput, 4, zipOutput.length-4);    //skip uncompressed length
         //encode base64
         final byte[] b64Input = Arrays.copyOf(zipOutput, zipOutLen);
-        final String b64Output = new String(Base64.encode(b64Input, 0));
+        final String b64Output = Base64.encode(b64Input);
         //compute CRC of encoded data
         final CRC32 crc32 = new CRC32();
         try {
@@ -679,7 +686,7 @@ public class Board {
                 throw new IllegalArgumentException("data CRC mismatch");
             }
             //parse base64 string
-            final byte[] b64Output = Base64.decode(inputSplit[3].getBytes(), 0);//throws IllegalArgumentException
+            final byte[] b64Output = Base64.decode(inputSplit[3]);   //throws IllegalArgumentException
             //unzip/inflate data
             int unzipLen = 0;
             for (int i = 0;  i < 4;  ++i) {
@@ -816,17 +823,17 @@ public class Board {
                 // by outer walls. without the outer walls we would need
                 // some additional boundary checking here.
                 while (true) {
-                    if (true == this.walls[dir][newRoboPos]) { // stopped by wall
-                        if (this.goal.position == newRoboPos) {
+                    if (true == this.isRobotPos(newRoboPos)) { // stopped by robot (also if it stands in front of a wall)
+                        if (this.goal.position == prevRoboPos) {
                             return true; // one move to goal
                         }
-                        break; // can't go on
+                        // go on in this direction
                     }
-                    if (true == this.isRobotPos(newRoboPos)) { // stopped by robot
-                        if (this.goal.position == prevRoboPos) {
+                    if (true == this.walls[dir][newRoboPos]) { // stopped by wall
+                        if (this.goal.position == newRoboPos) {
                             return true; // one move to goal
                         }
-                        // go on in this direction
+                        break; // can't go on
                     }
                     prevRoboPos = newRoboPos;
                     newRoboPos += dirIncr;
@@ -56,6 +56,33 @@ public interface KeyDepthMap {
      */
     public boolean putIfGreater(long key, int byteValue);
 
+    /**
+     * Associates the specified <code>unsigned byte</code> value with the specified
+     * wide key (up to 128 bits) in this map.
+     * If the map previously contained a mapping for the key, the specified value
+     * replaces the old value only if it's greater than the old value.
+     * Implementations that are tuned to keys of up to 64 bits accept wide keys only
+     * if <code>keyHi</code> is zero; they throw <code>UnsupportedOperationException</code> otherwise.
+     *  
+     * @param keyHi - the upper 64 bits of the key; must be generated by <code>KeyMakerWide</code>.
+     * @param keyLo - the lower 64 bits of the key; must be generated by <code>KeyMakerWide</code>.
+     * @param byteValue - unsigned byte value (0...255) to be associated with the specified key
+     * @return true if the specified value was placed in this map. false if the map already contained
+     * for this key a value that is greater than or equal to the specified value.
+     */
+    public boolean putIfGreater(long keyHi, long keyLo, int byteValue);
+
+    /**
+     * Removes all elements from this map, so that it can be used for the next search
+     * without allocating its internal data structures again.
+     * This must not be called while other threads use this map.
+     * 
+     * @param board the board that is to be solved next
+     * @return true if this map has been cleared and can store the keys of this board.
+     * false if this implementation can't be reused for this board; then a new map must be created.
+     */
+    public boolean reset(Board board);
+
     /**
      * Returns the number of elements (key/value pairs) currently stored in this map.
      * This is for information only; some implementations may return a wrong value.
@@ -72,4 +99,12 @@ public interface KeyDepthMap {
      */
     public long allocatedBytes();
 
+    /**
+     * Returns the number of bytes that are allocated by this map outside of the Java heap
+     * (direct buffers and memory-mapped files). They are not included in <code>allocatedBytes()</code>.
+     * 
+     * @return number of bytes allocated by this map outside of the Java heap (approximate)
+     */
+    public long allocatedOffHeapBytes();
+
 }
@@ -0,0 +1,202 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.Arrays;
+
+
+
+/**
+ * This class is a <code>KeyDepthMap</code> for boards with 4 robots and up to 256 squares
+ * (the 16x16 board), whose <code>int</code> keys are made by <code>KeyMakerInt</code>.
+ * <p>
+ * Instead of a trie or a hash table it uses a ranking function: the 3 sorted robots are a
+ * combination of 3 out of the free squares, and the goal robot is on one of the free squares,
+ * so each key has a unique rank in 0 ... (free squares) * C(free squares, 3).
+ * The rank is the index of a 4-bit value in a flat array. A duplicate check is a single
+ * array access, without trie traversal or probing.
+ * <p>
+ * The array is allocated completely by the constructor, so the memory used doesn't depend on
+ * the number of states visited: about 316 MiB for the 252 free squares of the standard board.
+ * It's meant for very large searches on machines with enough memory.
+ * <p>
+ * The array stores 4-bit values like <code>KeyDepthMapTrieSpecialNibble</code>, see <code>NibbleValues</code>.
+ */
+public final class KeyDepthMapDenseRanked implements KeyDepthMap {
+
+    //rank = rankGoal[goal] + rankC[c] + rankB[b] + rankA[a] (combinatorial number system)
+    private final int[] rankA, rankB, rankC, rankGoal;
+    private final int elementMask, s1, s2, s3;
+    private final byte[] nibbles;
+    private final NibbleValues nibbleValues = new NibbleValues();
+
+    private int size = 0;
+
+
+
+    /**
+     * Checks if this class supports the specified board: 4 robots and up to 256 squares.
+     * 
+     * @param board the board that is to be solved
+     * @return true if a <code>KeyDepthMapDenseRanked</code> can be created for this board
+     */
+    public static boolean isSupported(final Board board) {
+        return (4 == board.getNumRobots()) && (8 >= board.sizeNumBits);
+    }
+
+
+    /**
+     * Constructs an empty map for the keys of the specified board.
+     * 
+     * @param board the board that is to be solved (see <code>isSupported</code>)
+     */
+    public KeyDepthMapDenseRanked(final Board board) {
+        if (false == isSupported(board)) {
+            throw new IllegalArgumentException("unsupported board: numRobots=" + board.getNumRobots() + " sizeNumBits=" + board.sizeNumBits);
+        }
+        final int numElements = 1 << board.sizeNumBits;
+        this.elementMask = numElements - 1;
+        this.s1 = board.sizeNumBits;
+        this.s2 = board.sizeNumBits * 2;
+        this.s3 = board.sizeNumBits * 3;
+        this.rankA = new int[numElements];
+        this.rankB = new int[numElements];
+        this.rankC = new int[numElements];
+        this.rankGoal = new int[numElements];
+        this.nibbles = new byte[numNibbleBytes(board)];
+        this.initRanks(board);
+    }
+
+
+    //4 bits per rank
+    private static int numNibbleBytes(final Board board) {
+        int free = 0;
+        for (int pos = 0;  pos < board.size;  ++pos) {
+            if (false == board.isObstacle(pos)) { ++free; }
+        }
+        final long numRanks = (long)free * (free * (free - 1) * (free - 2) / 6);
+        return (int)((numRanks + 1) >>> 1);
+    }
+
+
+    private void initRanks(final Board board) {
+        //number the free squares; robots never stand on obstacles
+        int free = 0;
+        for (int pos = 0;  pos < board.size;  ++pos) {
+            if (false == board.isObstacle(pos)) {
+                this.rankA[pos] = free;
+                this.rankB[pos] = free * (free - 1) / 2;
+                this.rankC[pos] = free * (free - 1) * (free - 2) / 6;
+                ++free;
+            }
+        }
+        final int numCombinations = free * (free - 1) * (free - 2) / 6;
+        for (int pos = 0;  pos < board.size;  ++pos) {
+            this.rankGoal[pos] = this.rankA[pos] * numCombinations;
+        }
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(int, int)
+     */
+    @Override
+    public boolean putIfGreater(final int key, final int byteValue) {
+        final int rank = this.rankA[key & this.elementMask]
+                + this.rankB[(key >>> this.s1) & this.elementMask]
+                + this.rankC[(key >>> this.s2) & this.elementMask]
+                + this.rankGoal[key >>> this.s3];
+        if (0 == NibbleValues.get(this.nibbles, rank)) {
+            if (false == this.nibbleValues.putIfGreater(this.nibbles, rank, rank, byteValue)) {
+                return false;
+            }
+            ++this.size;
+            return true;
+        }
+        return this.nibbleValues.putIfGreater(this.nibbles, rank, rank, byteValue);
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, int)
+     */
+    @Override
+    public boolean putIfGreater(final long key, final int byteValue) {
+        //the keys of 4 robots on up to 256 squares fit into an int
+        return this.putIfGreater((int)key, byteValue);
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, long, int)
+     */
+    @Override
+    public boolean putIfGreater(long keyHi, long keyLo, final int byteValue) {
+        //this map is created only for keys that fit into an int (see isSupported)
+        if (0 == keyHi) {
+            return this.putIfGreater(keyLo, byteValue);
+        }
+        throw new UnsupportedOperationException("wide keys are not supported by " + this.getClass().getSimpleName());
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#reset(driftingdroids.model.Board)
+     */
+    @Override
+    public boolean reset(final Board board) {
+        if ((false == isSupported(board)) || ((1 << board.sizeNumBits) != this.rankA.length) || (numNibbleBytes(board) != this.nibbles.length)) {
+            return false;   //the array has another number of ranks
+        }
+        this.initRanks(board);  //the obstacles may be on other squares
+        Arrays.fill(this.nibbles, (byte)0);
+        this.nibbleValues.clear();
+        this.size = 0;
+        return true;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#size()
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedBytes()
+     */
+    @Override
+    public long allocatedBytes() {
+        long result = this.nibbles.length + ((long)this.rankA.length << 4);
+        result += this.nibbleValues.allocatedBytes();
+        return result;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedOffHeapBytes()
+     */
+    @Override
+    public long allocatedOffHeapBytes() {
+        return 0;   //everything is on the Java heap
+    }
+
+}
@@ -0,0 +1,126 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Factory that creates instances of KeyDepthMap.
+ */
+public class KeyDepthMapFactory {
+
+    private static Class<? extends KeyDepthMap> defaultClazz = KeyDepthMapTrieSpecial.class;
+
+
+    /**
+     * Set this factory's default implementation class of KeyDepthMap.
+	 
+     * @param clazz the implementation class of KeyDepthMap
+     */
+    public static void setDefaultClass(Class<? extends KeyDepthMap> clazz) {
+        defaultClazz = clazz;
+    }
+
+
+    /**
+     * Creates a new instance of KeyDepthMap.
+     * Uses this factory's default implementation class of KeyDepthMap.
+     * 
+     * @param board the board that is to be solved
+     * @return
+     */
+    public static KeyDepthMap newInstance(Board board) {
+        return newInstance(board, defaultClazz);
+    }
+
+
+    /**
+     * Creates a new instance of KeyDepthMap that can be shared by several threads.
+     * This is supported only for boards whose keys fit into a <code>long</code> (at most 64 bits).
+     * 
+     * @param board the board that is to be solved
+     * @return a new thread-safe instance of KeyDepthMap
+     */
+    public static KeyDepthMap newConcurrentInstance(Board board) {
+        return newInstance(board, KeyDepthMapTrieConcurrent.class);
+    }
+
+
+    /**
+     * Releases the resources of a map that is no longer used and that are not
+     * freed by the garbage collector in time (the spill file of <code>KeyDepthMapTrieOffHeap</code>).
+     * 
+     * @param map the map that is dropped; may be null
+     */
+    public static void release(KeyDepthMap map) {
+        if (map instanceof Closeable) {
+            try {
+                ((Closeable)map).close();
+            } catch (IOException e) {
+                SolverLog.log("can't close " + map.getClass().getSimpleName() + ": " + e.toString());
+            }
+        }
+    }
+
+
+    /**
+     * Creates a new instance of KeyDepthMap.
+     * 
+     * @param board the board that is to be solved
+     * @param clazz the implementation class of KeyDepthMap
+     * @return a new instance of KeyDepthMap
+     */
+    public static KeyDepthMap newInstance(Board board, Class<? extends KeyDepthMap> clazz) {
+        if (KeyDepthMapTrieGeneric.class.equals(clazz) || (board.getNumRobots() * board.sizeNumBits > 64)) {
+            //wide keys (more than 64 bits) are supported by the generic trie only
+            return new KeyDepthMapTrieGeneric(Math.max(12, board.getNumRobots() * board.sizeNumBits));
+        } else if (KeyDepthMapTrieSpecial.class.equals(clazz)) {
+            return KeyDepthMapTrieSpecial.createInstance(board, true);
+        } else if (KeyDepthMapTrieSpecialNibble.class.equals(clazz)) {
+            return new KeyDepthMapTrieSpecialNibble(board);
+        } else if (KeyDepthMapTrieConcurrent.class.equals(clazz)) {
+            return new KeyDepthMapTrieConcurrent(board);
+        } else if (KeyDepthMapTrieOffHeap.class.equals(clazz)) {
+            return new KeyDepthMapTrieOffHeap(board);
+        } else if (KeyDepthMapHashRobinHood.class.equals(clazz)) {
+            final int keyBits = board.getNumRobots() * board.sizeNumBits;
+            if (keyBits > KeyDepthMapHashRobinHood.MAX_KEY_BITS) {
+                //keys of 5 robots on boards larger than 2048 squares don't fit into a slot
+                return newInstance(board, KeyDepthMapTrieGeneric.class);
+            }
+            return new KeyDepthMapHashRobinHood(keyBits);
+        } else if (KeyDepthMapHashBounded.class.equals(clazz)) {
+            final int keyBits = board.getNumRobots() * board.sizeNumBits;
+            if (keyBits > KeyDepthMapHashBounded.MAX_KEY_BITS) {
+                //keys of 5 robots on boards larger than 2048 squares don't fit into a slot
+                return newInstance(board, KeyDepthMapTrieGeneric.class);
+            }
+            return new KeyDepthMapHashBounded(keyBits, KeyDepthMapHashBounded.getDefaultByteBudget());
+        } else if (KeyDepthMapDenseRanked.class.equals(clazz)) {
+            if (false == KeyDepthMapDenseRanked.isSupported(board)) {
+                //the ranking function is made for 4 robots on up to 256 squares
+                return newInstance(board, KeyDepthMapTrieSpecial.class);
+            }
+            return new KeyDepthMapDenseRanked(board);
+        } else {
+            throw new IllegalArgumentException("unknown KeyDepthMap class: " + String.valueOf(clazz));
+        }
+    }
+
+}
@@ -0,0 +1,276 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.Arrays;
+
+
+
+/**
+ * This class is a <code>KeyDepthMap</code> with a fixed memory budget: a lossy
+ * transposition table for primitive <code>int</code> or <code>long</code> keys
+ * and <tt>byte</tt> values.
+ * <p>
+ * Each entry is a single <tt>long</tt> slot that holds the key in the upper bits and
+ * the value in the lowest 8 bits. The slots are grouped into buckets of 8 (one cache line);
+ * a key can only be stored in the bucket selected by its hash. The table grows by doubling
+ * until it reaches the budget. After that, a new key that finds its bucket full replaces
+ * the entry with the lowest value (depth-preferred replacement), unless all entries
+ * of the bucket have a greater value than the new one.
+ * <p>
+ * A forgotten key is reported as new when it's put again, so the IDDFS solver searches
+ * that subtree once more: the results stay correct, only the pruning gets less efficient.
+ * Keys are never reported as known if they haven't been put before, because the full key is stored.
+ */
+public final class KeyDepthMapHashBounded implements KeyDepthMap {
+
+    public static final int MAX_KEY_BITS = KeyDepthMapHashRobinHood.MAX_KEY_BITS;
+
+    private static final long EMPTY_SLOT = -1L;  //never used by an entry because its sign bit is always 0
+    private static final int BUCKET_SHIFT = 3;  //8 slots = 64 bytes per bucket
+    private static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+    private static final int INITIAL_CAPACITY_SHIFT = 16;   //64K slots = 512 KiB
+    private static final long MIN_BYTE_BUDGET = 8L << INITIAL_CAPACITY_SHIFT;
+
+    private static volatile long defaultByteBudget = 64L << 20;
+
+    private long[] table;
+    private int bucketShift, threshold;
+    private final int maxCapacityShift;
+    private int size = 0;
+    private long numReplaced = 0, numDropped = 0;
+
+
+
+    /**
+     * Sets the memory budget of the maps that are created by <code>KeyDepthMapFactory</code>.
+     *
+     * @param bytes maximum number of bytes used by the table of each map
+     */
+    public static void setDefaultByteBudget(final long bytes) {
+        defaultByteBudget = bytes;
+    }
+
+    /**
+     * Returns the memory budget of the maps that are created by <code>KeyDepthMapFactory</code>.
+     *
+     * @return maximum number of bytes used by the table of each map
+     */
+    public static long getDefaultByteBudget() {
+        return defaultByteBudget;
+    }
+
+    /**
+     * Constructs an empty map.
+     * 
+     * @param keyBits the maximum number of bits used by any key that will be put into the map.
+     * (must not be greater than <code>MAX_KEY_BITS</code>)
+     * @param byteBudget maximum number of bytes used by the table (rounded down to a power of two,
+     * at least 512 KiB)
+     */
+    public KeyDepthMapHashBounded(final int keyBits, final long byteBudget) {
+        if (keyBits > MAX_KEY_BITS) {
+            throw new IllegalArgumentException("keyBits=" + keyBits + " is greater than " + MAX_KEY_BITS);
+        }
+        final long numSlots = Math.max(MIN_BYTE_BUDGET, byteBudget) >>> 3;
+        this.maxCapacityShift = Math.min(30, 63 - Long.numberOfLeadingZeros(numSlots));
+        this.allocateTable(INITIAL_CAPACITY_SHIFT);
+    }
+
+
+    private void allocateTable(final int capacityShift) {
+        this.table = new long[1 << capacityShift];
+        Arrays.fill(this.table, EMPTY_SLOT);
+        this.bucketShift = capacityShift - BUCKET_SHIFT;
+        this.threshold = (this.table.length >>> 2) * 3;     //load factor 0.75 while the table can grow
+    }
+
+
+    private boolean isFull() {
+        return (this.table.length >= (1 << this.maxCapacityShift));
+    }
+
+
+    //Fibonacci hashing: the upper bits of the product are well mixed
+    private int bucketStart(final long key) {
+        return (int)((key * 0x9E3779B97F4A7C15L) >>> (64 - this.bucketShift)) << BUCKET_SHIFT;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(int, int)
+     */
+    @Override
+    public boolean putIfGreater(final int key, final int byteValue) {
+        return this.putIfGreater(key & 0xffffffffL, byteValue);    //unsigned
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, int)
+     */
+    @Override
+    public boolean putIfGreater(final long key, final int byteValue) {
+        final long[] t = this.table;
+        final int start = this.bucketStart(key);
+        int victim = start, victimValue = Integer.MAX_VALUE;
+        for (int i = start;  i < start + BUCKET_SIZE;  ++i) {
+            final long slot = t[i];
+            if (EMPTY_SLOT == slot) {
+                //entries are never removed, so the key is not in the rest of the bucket
+                t[i] = (key << 8) | byteValue;
+                if ((++this.size > this.threshold) && (false == this.isFull())) {
+                    this.grow();
+                }
+                return true;
+            }
+            final int value = 0xff & (int)slot;
+            if ((slot >>> 8) == key) {
+                if (byteValue > value) {    //putIfGreater
+                    t[i] = (slot ^ value) | byteValue;
+                    return true;
+                }
+                return false;
+            }
+            if (victimValue > value) {
+                victimValue = value;
+                victim = i;
+            }
+        }
+        //the bucket is full and doesn't contain the key
+        if (false == this.isFull()) {
+            this.grow();
+            return this.putIfGreater(key, byteValue);
+        }
+        if (victimValue <= byteValue) {
+            t[victim] = (key << 8) | byteValue;
+            ++this.numReplaced;
+        } else {
+            ++this.numDropped;
+        }
+        return true;    //new key (or forgotten key): it must be searched
+    }
+
+
+    private void grow() {
+        final long[] oldTable = this.table;
+        this.allocateTable(Integer.numberOfTrailingZeros(oldTable.length) + 1);
+        this.size = 0;
+        for (final long slot : oldTable) {
+            if (EMPTY_SLOT != slot) {
+                this.reinsert(slot);
+            }
+        }
+    }
+
+
+    private void reinsert(final long newSlot) {
+        final long[] t = this.table;
+        final int start = this.bucketStart(newSlot >>> 8);
+        int victim = start, victimValue = Integer.MAX_VALUE;
+        for (int i = start;  i < start + BUCKET_SIZE;  ++i) {
+            final long slot = t[i];
+            if (EMPTY_SLOT == slot) {
+                t[i] = newSlot;
+                ++this.size;
+                return;
+            }
+            final int value = 0xff & (int)slot;
+            if (victimValue > value) {
+                victimValue = value;
+                victim = i;
+            }
+        }
+        //very unlikely: 9 keys of a bucket of the old table hash to the same bucket of the new table
+        if (victimValue <= (0xff & (int)newSlot)) {
+            t[victim] = newSlot;
+            ++this.numReplaced;
+        } else {
+            ++this.numDropped;
+        }
+    }
+
+
+    /**
+     * Returns the number of keys that have been forgotten to make room for other keys,
+     * or that could not be stored because their bucket was full.
+     * 
+     * @return number of keys lost because the memory budget was reached
+     */
+    public long getNumForgotten() {
+        return this.numReplaced + this.numDropped;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, long, int)
+     */
+    @Override
+    public boolean putIfGreater(long keyHi, long keyLo, final int byteValue) {
+        //this map is created only for keys that fit into a long (see KeyDepthMapFactory)
+        if (0 == keyHi) {
+            return this.putIfGreater(keyLo, byteValue);
+        }
+        throw new UnsupportedOperationException("wide keys are not supported by " + this.getClass().getSimpleName());
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#reset(driftingdroids.model.Board)
+     */
+    @Override
+    public boolean reset(final Board board) {
+        if (board.getNumRobots() * board.sizeNumBits > MAX_KEY_BITS) {
+            return false;
+        }
+        //the current table is kept at its size
+        Arrays.fill(this.table, EMPTY_SLOT);
+        this.size = 0;
+        this.numReplaced = 0;
+        this.numDropped = 0;
+        return true;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#size()
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedBytes()
+     */
+    @Override
+    public long allocatedBytes() {
+        return (long)this.table.length << 3;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedOffHeapBytes()
+     */
+    @Override
+    public long allocatedOffHeapBytes() {
+        return 0;   //everything is on the Java heap
+    }
+
+}
@@ -0,0 +1,281 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.Arrays;
+
+
+
+/**
+ * This class is a minimal <code>Map&ltK,V&gt</code> implementation for primitive
+ * <code>int</code> or <code>long</code> keys K and <tt>byte</tt> values V,
+ * based on an open-addressing hash table with Robin Hood probing.
+ * <p>
+ * Each entry is a single <tt>long</tt> slot that holds the key in the upper bits
+ * and the value in the lowest 8 bits, so there are no per-entry objects and a lookup
+ * touches only one or two cache lines. The table starts small and grows by doubling;
+ * the entries of the old table are moved to the new one in small chunks by the
+ * following calls of <code>putIfGreater</code>, so that no single call has to rehash
+ * the whole table.
+ * <p>
+ * It needs much less memory than the tries if only a few million states are visited,
+ * but more memory per entry if the search is big.
+ */
+public final class KeyDepthMapHashRobinHood implements KeyDepthMap {
+
+    public static final int MAX_KEY_BITS = 55;  //key + 8 bits value must not reach the sign bit of a slot
+
+    private static final long EMPTY_SLOT = -1L;  //never used by an entry because its sign bit is always 0
+    private static final int INITIAL_CAPACITY_SHIFT = 16;   //tuning parameter: 64K slots = 512 KiB
+    private static final int MAX_CAPACITY_SHIFT = 30;
+    private static final int RESIZE_CHUNK = 256;    //tuning parameter: old slots moved by each put
+
+    private long[] table;
+    private int tableShift, tableMask, tableCount, tableThreshold;
+
+    //the previous table while its entries are being moved to the current table, or null
+    private long[] oldTable = null;
+    private int oldTableShift, oldTableMask, oldTableCursor;
+
+    private int size = 0;
+
+
+
+    /**
+     * Constructs an empty map.
+     * 
+     * @param keyBits the maximum number of bits used by any key that will be put into the map.
+     * (must not be greater than <code>MAX_KEY_BITS</code>)
+     */
+    public KeyDepthMapHashRobinHood(final int keyBits) {
+        if (keyBits > MAX_KEY_BITS) {
+            throw new IllegalArgumentException("keyBits=" + keyBits + " is greater than " + MAX_KEY_BITS);
+        }
+        this.allocateTable(INITIAL_CAPACITY_SHIFT);
+    }
+
+
+    private void allocateTable(final int shift) {
+        this.table = new long[1 << shift];
+        Arrays.fill(this.table, EMPTY_SLOT);
+        this.tableShift = shift;
+        this.tableMask = this.table.length - 1;
+        this.tableCount = 0;
+        this.tableThreshold = (this.table.length >>> 2) * 3;   //load factor 0.75
+    }
+
+
+    //Fibonacci hashing: the upper bits of the product are well mixed
+    private static int home(final long key, final int shift) {
+        return (int)((key * 0x9E3779B97F4A7C15L) >>> (64 - shift));
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(int, int)
+     */
+    @Override
+    public boolean putIfGreater(final int key, final int byteValue) {
+        return this.putIfGreater(key & 0xffffffffL, byteValue);    //unsigned
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, int)
+     */
+    @Override
+    public boolean putIfGreater(final long key, final int byteValue) {
+        if (null != this.oldTable) {
+            this.moveChunk();
+        }
+        //search the current table
+        final long[] t = this.table;
+        final int shift = this.tableShift, mask = this.tableMask;
+        int idx = home(key, shift);
+        int dist = 0;
+        for (;;) {
+            final long slot = t[idx];
+            if (EMPTY_SLOT == slot) {
+                break;
+            }
+            if ((slot >>> 8) == key) {
+                if (byteValue > (0xff & (int)slot)) {   //putIfGreater
+                    t[idx] = (slot ^ (0xff & slot)) | byteValue;
+                    return true;
+                }
+                return false;
+            }
+            if (((idx - home(slot >>> 8, shift)) & mask) < dist) {
+                break;  //Robin Hood invariant: the key would have been stored before this slot
+            }
+            idx = (idx + 1) & mask;
+            ++dist;
+        }
+        //search the old table; its entries up to the cursor are already in the current table
+        if (null != this.oldTable) {
+            final long[] o = this.oldTable;
+            final int oShift = this.oldTableShift, oMask = this.oldTableMask;
+            int oIdx = home(key, oShift);
+            for (int oDist = 0;  ;  ++oDist) {
+                final long slot = o[oIdx];
+                if (EMPTY_SLOT == slot) {
+                    break;
+                }
+                if ((slot >>> 8) == key) {
+                    if (byteValue > (0xff & (int)slot)) {   //putIfGreater
+                        o[oIdx] = (slot ^ (0xff & slot)) | byteValue;
+                        return true;
+                    }
+                    return false;
+                }
+                if (((oIdx - home(slot >>> 8, oShift)) & oMask) < oDist) {
+                    break;
+                }
+                oIdx = (oIdx + 1) & oMask;
+            }
+        }
+        //new key: insert it where the search of the current table stopped
+        this.insert(idx, dist, (key << 8) | byteValue);
+        ++this.size;
+        if (this.tableCount > this.tableThreshold) {
+            this.grow();
+        }
+        return true;
+    }
+
+
+    //Robin Hood insertion: take the slot of any entry that is closer to its home than the new one
+    private void insert(int idx, int dist, long newSlot) {
+        final long[] t = this.table;
+        final int shift = this.tableShift, mask = this.tableMask;
+        for (;;) {
+            final long slot = t[idx];
+            if (EMPTY_SLOT == slot) {
+                t[idx] = newSlot;
+                break;
+            }
+            final int slotDist = (idx - home(slot >>> 8, shift)) & mask;
+            if (slotDist < dist) {
+                t[idx] = newSlot;
+                newSlot = slot;
+                dist = slotDist;
+            }
+            idx = (idx + 1) & mask;
+            ++dist;
+        }
+        ++this.tableCount;
+    }
+
+
+    private void grow() {
+        while (null != this.oldTable) {
+            this.moveChunk();
+        }
+        if (this.tableShift >= MAX_CAPACITY_SHIFT) {
+            if (this.tableCount >= this.table.length - 1) {
+                throw new OutOfMemoryError("KeyDepthMapHashRobinHood is full");
+            }
+            return; //keep on filling the largest table
+        }
+        this.oldTable = this.table;
+        this.oldTableShift = this.tableShift;
+        this.oldTableMask = this.tableMask;
+        this.oldTableCursor = 0;
+        this.allocateTable(this.tableShift + 1);
+    }
+
+
+    //move the entries of the next chunk of old slots to the current table.
+    //the old table is not modified, so its remaining entries can still be found by the usual search.
+    private void moveChunk() {
+        final long[] o = this.oldTable;
+        final int end = Math.min(this.oldTableCursor + RESIZE_CHUNK, o.length);
+        for (int i = this.oldTableCursor;  i < end;  ++i) {
+            final long slot = o[i];
+            if (EMPTY_SLOT != slot) {
+                this.insert(home(slot >>> 8, this.tableShift), 0, slot);
+            }
+        }
+        this.oldTableCursor = end;
+        if (end == o.length) {
+            this.oldTable = null;
+        }
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, long, int)
+     */
+    @Override
+    public boolean putIfGreater(long keyHi, long keyLo, final int byteValue) {
+        //this map is created only for keys that fit into a long (see KeyDepthMapFactory)
+        if (0 == keyHi) {
+            return this.putIfGreater(keyLo, byteValue);
+        }
+        throw new UnsupportedOperationException("wide keys are not supported by " + this.getClass().getSimpleName());
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#reset(driftingdroids.model.Board)
+     */
+    @Override
+    public boolean reset(final Board board) {
+        if (board.getNumRobots() * board.sizeNumBits > MAX_KEY_BITS) {
+            return false;
+        }
+        //the current table is kept at its size
+        this.oldTable = null;
+        Arrays.fill(this.table, EMPTY_SLOT);
+        this.tableCount = 0;
+        this.size = 0;
+        return true;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#size()
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedBytes()
+     */
+    @Override
+    public long allocatedBytes() {
+        long result = (long)this.table.length << 3;
+        if (null != this.oldTable) {
+            result += (long)this.oldTable.length << 3;
+        }
+        return result;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedOffHeapBytes()
+     */
+    @Override
+    public long allocatedOffHeapBytes() {
+        return 0;   //everything is on the Java heap
+    }
+
+}
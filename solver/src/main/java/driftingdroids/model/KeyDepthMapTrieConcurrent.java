@@ -0,0 +1,484 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+
+/**
+ * This class is a thread-safe variant of <code>KeyDepthMapTrieSpecial</code>
+ * that can be used by many threads at the same time without any locking.
+ * <p>
+ * It has the same trie layout and relies on the same properties of the keys
+ * generated by <code>KeyMakerInt</code> or <code>KeyMakerLong</code>, so the nodes
+ * of the sorted (non-goal) robots are compressed in the same way.
+ * <p>
+ * All changes are done by compare-and-set: new nodes and leaves are allocated
+ * by atomically incrementing the <code>nextNode</code> and <code>nextLeaf</code> counters,
+ * and they are published by a compare-and-set of their index into the parent node.
+ * The depth values of the leaves are packed into <code>int</code>s (4 per <code>int</code>)
+ * so that "putIfGreater" of a single value is a compare-and-set, too.
+ * If a thread loses a race, the node or leaf it had allocated is abandoned.
+ */
+public final class KeyDepthMapTrieConcurrent implements KeyDepthMap {
+
+    private static final int NODE_ARRAY_SHIFT = 20; // 20 == 4MB
+    private static final int NODE_ARRAY_SIZE = 1 << NODE_ARRAY_SHIFT;
+    private static final int NODE_ARRAY_MASK = NODE_ARRAY_SIZE - 1;
+    private final AtomicIntegerArray rootNode;
+    private final AtomicReferenceArray<AtomicIntegerArray> nodeArrays;
+    private final AtomicInteger nextNode;
+
+    private static final int LEAF_ARRAY_SHIFT = 20; // 20 == 1MB
+    private static final int LEAF_ARRAY_SIZE = 1 << LEAF_ARRAY_SHIFT;
+    private static final int LEAF_ARRAY_MASK = LEAF_ARRAY_SIZE - 1;
+    private final AtomicReferenceArray<AtomicIntegerArray> leafArrays;
+    private final AtomicInteger nextLeaf;
+
+    private final int nodeNumber, nodeNumberUnCompr, nodeShift, nodeMask;
+    private final int leafNodeShift, leafNodeMask, leafNodeSize, leafSize, leafMask;
+
+    private final int[] nodeSizeLookup;
+    private final int[] elementLookup;
+
+    public KeyDepthMapTrieConcurrent(final Board board) {
+        this.nodeSizeLookup = new int[board.size];
+        this.elementLookup = new int[board.size];
+        this.initLookups(board);
+        this.nodeNumber = board.getNumRobots() - 1;
+        this.nodeNumberUnCompr = (board.getNumRobots()*board.sizeNumBits + 8 - 31 + (board.sizeNumBits - 1)) / board.sizeNumBits;
+        this.nodeShift = board.sizeNumBits;
+        this.nodeMask = (1 << board.sizeNumBits) - 1;
+
+        //all index values are positive ints, so this is the maximum number of arrays
+        this.nodeArrays = new AtomicReferenceArray<AtomicIntegerArray>(1 << (31 - NODE_ARRAY_SHIFT));
+        this.rootNode = new AtomicIntegerArray(NODE_ARRAY_SIZE);
+        this.nodeArrays.set(0, this.rootNode);
+        this.nextNode = new AtomicInteger(board.size);  //root node already exists
+
+        this.leafNodeShift = board.sizeNumBits / 2;
+        this.leafNodeMask = (1 << this.leafNodeShift) - 1;
+        this.leafNodeSize = this.leafNodeMask + 1;
+        this.leafSize = 1 << (board.sizeNumBits - this.leafNodeShift);
+        this.leafMask = this.leafSize - 1;
+        this.leafArrays = new AtomicReferenceArray<AtomicIntegerArray>(1 << (31 - LEAF_ARRAY_SHIFT));
+        this.nextLeaf = new AtomicInteger(this.leafSize);   //no leaves yet, but skip leaf "0" because this is the special value
+    }
+
+
+    //the number of elements per node and the element numbers skip the obstacles of the board
+    private void initLookups(final Board board) {
+        for (int i = 0;  i < this.nodeSizeLookup.length;  ++i) {
+            this.nodeSizeLookup[i] = board.size - 1 - i;
+        }
+        for (int i = 0;  i < this.elementLookup.length;  ++i) {
+            this.elementLookup[i] = i;
+        }
+        for (int i = 0;  i < board.size;  ++i) {
+            if (true == board.isObstacle(i)) {
+                for (int j = 0;  j < i;  ++j) {
+                    this.nodeSizeLookup[j] -= 1;
+                }
+                for (int j = i;  j < this.elementLookup.length;  ++j) {
+                    this.elementLookup[j] -= 1;
+                }
+            }
+        }
+        for (int i = 0;  i < board.size;  ++i) {
+            if (true == board.isObstacle(i)) {
+                this.nodeSizeLookup[i] = Integer.MIN_VALUE;
+                this.elementLookup[i] = Integer.MIN_VALUE;
+            }
+        }
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(int, int)
+     */
+    @Override
+    public boolean putIfGreater(final int key, final int byteValue) {
+        return this.putIfGreater(key & 0xffffffffL, byteValue);  //unsigned: same sequence of elements as the int key
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, int)
+     */
+    @Override
+    public boolean putIfGreater(long key, final int byteValue) {
+        //root node
+        int nidx = (int)key & this.nodeMask;
+        AtomicIntegerArray nodeArray = this.rootNode;
+        int elementThis = nidx;
+        int elementThisLookup = this.elementLookup[nidx];
+        //go through nodes (without compression because (key<<8)+value is greater than "int")
+        int nodeIndex, i;   //used by both for() loops
+        for (i = 1;  i < this.nodeNumberUnCompr;  ++i) {
+            nodeIndex = nodeArray.get(nidx);
+            key >>>= this.nodeShift;
+            if (0 == nodeIndex) {
+                //create a new node
+                nodeIndex = this.allocateNode(this.nodeSizeLookup[elementThis]);
+                if (false == nodeArray.compareAndSet(nidx, 0, nodeIndex)) {
+                    nodeIndex = nodeArray.get(nidx);    //another thread was faster: use its node
+                }
+            }
+            elementThis = (int)key & this.nodeMask;
+            nidx = (nodeIndex & NODE_ARRAY_MASK) - elementThisLookup - 1;
+            elementThisLookup = this.elementLookup[elementThis];
+            nodeArray = this.nodeArrays.get(nodeIndex >>> NODE_ARRAY_SHIFT);
+            nidx += elementThisLookup;
+        }
+        //go through nodes (with compression because (key<<8)+value is inside "int" range now)
+        for ( ;  i < this.nodeNumber;  ++i) {
+            key >>>= this.nodeShift;
+            while (true) {
+                nodeIndex = nodeArray.get(nidx);
+                if (0 == nodeIndex) {
+                    // -> node index is null = unused
+                    //write current key+value as a "compressed branch" (negative node index)
+                    if (nodeArray.compareAndSet(nidx, 0, ((~(int)key) << 8) | byteValue)) {
+                        return true;
+                    }
+                } else if (0 > nodeIndex) {
+                    // -> node index is negative = used by a single "compressed branch"
+                    final int prevKey = (~nodeIndex) >> 8;
+                    final int prevVal = 0xff & nodeIndex;
+                    //previous and current keys are equal (duplicate key)
+                    if (prevKey == (int)key) {
+                        if (byteValue <= prevVal) {
+                            return false;
+                        }
+                        if (nodeArray.compareAndSet(nidx, nodeIndex, (nodeIndex ^ prevVal) | byteValue)) {
+                            return true;
+                        }
+                    } else {
+                        //previous and current keys are not equal
+                        //create a new node and push previous "compressed branch" one node further
+                        final int newNodeIndex = this.allocateNode(this.nodeSizeLookup[elementThis]);
+                        this.nodeArrays.get(newNodeIndex >>> NODE_ARRAY_SHIFT).set(
+                                (newNodeIndex & NODE_ARRAY_MASK) - elementThisLookup - 1 + this.elementLookup[prevKey & this.nodeMask],
+                                (~(prevKey >>> this.nodeShift) << 8) | prevVal);
+                        if (nodeArray.compareAndSet(nidx, nodeIndex, newNodeIndex)) {
+                            nodeIndex = newNodeIndex;
+                            break;
+                        }
+                    }
+                } else {
+                    // -> node index is positive = go to next node
+                    break;
+                }
+            }
+            elementThis = (int)key & this.nodeMask;
+            nidx = (nodeIndex & NODE_ARRAY_MASK) - elementThisLookup - 1;
+            elementThisLookup = this.elementLookup[elementThis];
+            nodeArray = this.nodeArrays.get(nodeIndex >>> NODE_ARRAY_SHIFT);
+            nidx += elementThisLookup;
+        }
+        //go through leaf node (with compression)
+        key >>>= this.nodeShift;
+        while (true) {
+            nodeIndex = nodeArray.get(nidx);
+            if (0 == nodeIndex) {
+                // -> node index is null = unused
+                //write current key+value as a "compressed branch" (negative node index)
+                if (nodeArray.compareAndSet(nidx, 0, ((~(int)key) << 8) | byteValue)) {
+                    return true;
+                }
+            } else if (0 > nodeIndex) {
+                // -> node index is negative = used by a single "compressed branch"
+                final int prevKey = (~nodeIndex) >> 8;
+                final int prevVal = 0xff & nodeIndex;
+                //previous and current keys are equal (duplicate key)
+                if (prevKey == (int)key) {
+                    if (byteValue <= prevVal) {
+                        return false;
+                    }
+                    if (nodeArray.compareAndSet(nidx, nodeIndex, (nodeIndex ^ prevVal) | byteValue)) {
+                        return true;
+                    }
+                } else {
+                    //previous and current keys are not equal
+                    //create a new node and push previous "compressed branch" one node further
+                    final int newNodeIndex = this.allocateNode(this.leafNodeSize);
+                    this.nodeArrays.get(newNodeIndex >>> NODE_ARRAY_SHIFT).set(
+                            (newNodeIndex & NODE_ARRAY_MASK) + (prevKey & this.leafNodeMask),
+                            (~(prevKey >>> this.leafNodeShift) << 8) | prevVal);    //negative
+                    if (nodeArray.compareAndSet(nidx, nodeIndex, newNodeIndex)) {
+                        nodeIndex = newNodeIndex;
+                        break;
+                    }
+                }
+            } else {
+                // -> node index is positive = go to next node
+                break;
+            }
+        }
+        nodeArray = this.nodeArrays.get(nodeIndex >>> NODE_ARRAY_SHIFT);
+        nidx = (nodeIndex & NODE_ARRAY_MASK) + ((int)key & this.leafNodeMask);
+        //get leaf (with compression)
+        key >>>= this.leafNodeShift;
+        int leafIndex;
+        while (true) {
+            leafIndex = nodeArray.get(nidx);
+            if (0 == leafIndex) {
+                // -> leaf index is null = unused
+                //write current value as a "compressed branch" (negative leaf index)
+                if (nodeArray.compareAndSet(nidx, 0, ((~(int)key) << 8) | byteValue)) {
+                    return true;
+                }
+            } else if (0 > leafIndex) {
+                // -> leaf index is negative = used by a single "compressed branch"
+                final int prevKey = (~leafIndex) >> 8;
+                final int prevVal = 0xff & leafIndex;
+                //previous and current keys are equal (duplicate key)
+                if (prevKey == (int)key) {
+                    if (byteValue <= prevVal) {
+                        return false;
+                    }
+                    if (nodeArray.compareAndSet(nidx, leafIndex, (leafIndex ^ prevVal) | byteValue)) {
+                        return true;
+                    }
+                } else {
+                    //previous and current keys are not equal
+                    //create a new leaf and push the previous "compressed branch" further to the leaf
+                    final int newLeafIndex = this.allocateLeaf();
+                    final int lidx = (newLeafIndex & LEAF_ARRAY_MASK) + (prevKey & this.leafMask);
+                    this.leafArrays.get(newLeafIndex >>> LEAF_ARRAY_SHIFT).set(lidx >>> 2, prevVal << ((lidx & 3) << 3));
+                    if (nodeArray.compareAndSet(nidx, leafIndex, newLeafIndex)) {
+                        leafIndex = newLeafIndex;
+                        break;
+                    }
+                }
+            } else {
+                // -> leaf index is positive = go to leaf
+                break;
+            }
+        }
+        final AtomicIntegerArray leafArray = this.leafArrays.get(leafIndex >>> LEAF_ARRAY_SHIFT);
+        final int lidx = (leafIndex & LEAF_ARRAY_MASK) + ((int)key & this.leafMask);
+        final int widx = lidx >>> 2, shift = (lidx & 3) << 3;
+        while (true) {
+            final int word = leafArray.get(widx);
+            final int prevVal = 0xff & (word >>> shift);
+            if (byteValue <= prevVal) {
+                return false;
+            }
+            if (leafArray.compareAndSet(widx, word, (word & ~(0xff << shift)) | (byteValue << shift))) {   //putIfGreater
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the value that is associated with the specified key.
+     * This may be called while other threads change the map: the result is then the
+     * value at some moment during the call.
+     *
+     * @param key key generated by <code>KeyMakerInt</code>
+     * @return the unsigned byte value, or 0 if the map doesn't contain the key
+     */
+    public int get(final int key) {
+        return this.get(key & 0xffffffffL);  //unsigned: same sequence of elements as the int key
+    }
+
+
+    /**
+     * Returns the value that is associated with the specified key.
+     * This may be called while other threads change the map: the result is then the
+     * value at some moment during the call.
+     *
+     * @param key key generated by <code>KeyMakerLong</code>
+     * @return the unsigned byte value, or 0 if the map doesn't contain the key
+     */
+    public int get(long key) {
+        //root node
+        int nidx = (int)key & this.nodeMask;
+        AtomicIntegerArray nodeArray = this.rootNode;
+        int elementThisLookup = this.elementLookup[nidx];
+        //go through nodes (without compression)
+        int nodeIndex, i;   //used by both for() loops
+        for (i = 1;  i < this.nodeNumberUnCompr;  ++i) {
+            nodeIndex = nodeArray.get(nidx);
+            if (0 == nodeIndex) {
+                return 0;
+            }
+            key >>>= this.nodeShift;
+            final int elementThis = (int)key & this.nodeMask;
+            nidx = (nodeIndex & NODE_ARRAY_MASK) - elementThisLookup - 1;
+            elementThisLookup = this.elementLookup[elementThis];
+            nodeArray = this.nodeArrays.get(nodeIndex >>> NODE_ARRAY_SHIFT);
+            nidx += elementThisLookup;
+        }
+        //go through nodes (with compression)
+        for ( ;  i < this.nodeNumber;  ++i) {
+            key >>>= this.nodeShift;
+            nodeIndex = nodeArray.get(nidx);
+            if (0 >= nodeIndex) {
+                return getCompressed(nodeIndex, (int)key);
+            }
+            final int elementThis = (int)key & this.nodeMask;
+            nidx = (nodeIndex & NODE_ARRAY_MASK) - elementThisLookup - 1;
+            elementThisLookup = this.elementLookup[elementThis];
+            nodeArray = this.nodeArrays.get(nodeIndex >>> NODE_ARRAY_SHIFT);
+            nidx += elementThisLookup;
+        }
+        //go through leaf node (with compression)
+        key >>>= this.nodeShift;
+        nodeIndex = nodeArray.get(nidx);
+        if (0 >= nodeIndex) {
+            return getCompressed(nodeIndex, (int)key);
+        }
+        nodeArray = this.nodeArrays.get(nodeIndex >>> NODE_ARRAY_SHIFT);
+        nidx = (nodeIndex & NODE_ARRAY_MASK) + ((int)key & this.leafNodeMask);
+        //get leaf (with compression)
+        key >>>= this.leafNodeShift;
+        final int leafIndex = nodeArray.get(nidx);
+        if (0 >= leafIndex) {
+            return getCompressed(leafIndex, (int)key);
+        }
+        final AtomicIntegerArray leafArray = this.leafArrays.get(leafIndex >>> LEAF_ARRAY_SHIFT);
+        final int lidx = (leafIndex & LEAF_ARRAY_MASK) + ((int)key & this.leafMask);
+        return 0xff & (leafArray.get(lidx >>> 2) >>> ((lidx & 3) << 3));
+    }
+    //the value of an unused index (0) or of a "compressed branch" (negative index)
+    private static int getCompressed(final int index, final int key) {
+        if ((0 == index) || (((~index) >> 8) != key)) {
+            return 0;
+        }
+        return 0xff & index;
+    }
+
+
+    private int allocateNode(final int nodeSize) {
+        while (true) {
+            final int next = this.nextNode.get();
+            int nodeIndex = next;
+            if ((nodeIndex & NODE_ARRAY_MASK) + nodeSize > NODE_ARRAY_SIZE) {
+                nodeIndex = (nodeIndex & ~NODE_ARRAY_MASK) + NODE_ARRAY_SIZE;   //node doesn't fit: skip to next array
+            }
+            if (this.nextNode.compareAndSet(next, nodeIndex + nodeSize)) {
+                ensureArray(this.nodeArrays, nodeIndex >>> NODE_ARRAY_SHIFT, NODE_ARRAY_SIZE);
+                return nodeIndex;
+            }
+        }
+    }
+
+
+    private int allocateLeaf() {
+        final int leafIndex = this.nextLeaf.getAndAdd(this.leafSize);   //leafSize divides LEAF_ARRAY_SIZE, so leaves never cross arrays
+        ensureArray(this.leafArrays, leafIndex >>> LEAF_ARRAY_SHIFT, LEAF_ARRAY_SIZE >>> 2);
+        return leafIndex;
+    }
+
+
+    private static void ensureArray(final AtomicReferenceArray<AtomicIntegerArray> arrays, final int index, final int length) {
+        if (null == arrays.get(index)) {
+            arrays.compareAndSet(index, null, new AtomicIntegerArray(length));
+        }
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedBytes()
+     */
+    @Override
+    public long allocatedBytes() {
+        long result = (this.nodeArrays.length() + this.leafArrays.length()) * 8;
+        //the arrays that are kept after reset() are counted when they are used again
+        final int numNodeArrays = Math.min(this.nodeArrays.length(), (this.nextNode.get() >>> NODE_ARRAY_SHIFT) + 1);
+        final int numLeafArrays = Math.min(this.leafArrays.length(), (this.nextLeaf.get() >>> LEAF_ARRAY_SHIFT) + 1);
+        for (int i = 0;  i < numNodeArrays;  ++i) {
+            final AtomicIntegerArray nodeArray = this.nodeArrays.get(i);
+            if (null != nodeArray) {
+                result += nodeArray.length() * 4L;
+            }
+        }
+        for (int i = 0;  i < numLeafArrays;  ++i) {
+            final AtomicIntegerArray leafArray = this.leafArrays.get(i);
+            if (null != leafArray) {
+                result += leafArray.length() * 4L;
+            }
+        }
+        return result;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedOffHeapBytes()
+     */
+    @Override
+    public long allocatedOffHeapBytes() {
+        return 0;   //everything is on the Java heap
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, long, int)
+     */
+    @Override
+    public boolean putIfGreater(long keyHi, long keyLo, final int byteValue) {
+        //this map is created only for keys that fit into a long (see KeyDepthMapFactory)
+        if (0 == keyHi) {
+            return this.putIfGreater(keyLo, byteValue);
+        }
+        throw new UnsupportedOperationException("wide keys are not supported by " + this.getClass().getSimpleName());
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#reset(driftingdroids.model.Board)
+     */
+    @Override
+    public boolean reset(final Board board) {
+        if ((board.size != this.nodeSizeLookup.length) || (board.getNumRobots() - 1 != this.nodeNumber) || (board.sizeNumBits != this.nodeShift)) {
+            return false;   //the nodes are tailored to another board size or number of robots
+        }
+        this.initLookups(board);    //the obstacles may be different
+        //the arrays are kept for the next keys: clear the ones that have been used
+        clearArrays(this.nodeArrays, this.nextNode.get() >>> NODE_ARRAY_SHIFT);
+        clearArrays(this.leafArrays, this.nextLeaf.get() >>> LEAF_ARRAY_SHIFT);
+        this.nextNode.set(board.size);      //root node already exists
+        this.nextLeaf.set(this.leafSize);   //no leaves yet, but skip leaf "0" because this is the special value
+        return true;
+    }
+    private static void clearArrays(final AtomicReferenceArray<AtomicIntegerArray> arrays, final int lastIndex) {
+        for (int i = 0;  (i <= lastIndex) && (i < arrays.length());  ++i) {
+            final AtomicIntegerArray array = arrays.get(i);
+            if (null != array) {
+                for (int j = 0;  j < array.length();  ++j) {
+                    array.lazySet(j, 0);
+                }
+            }
+        }
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#size()
+     */
+    @Override
+    public int size() {
+        return 0;   //not counted: a shared counter would be contended by all threads
+    }
+}
@@ -23,7 +23,7 @@ import java.util.Arrays;
 
 /**
  * This class is a minimal <code>Map&ltK,V&gt</code> implementation for primitive
- * <code>int</code> or <code>long</code> keys K and <tt>byte</tt> values V,
+ * <code>int</code>, <code>long</code> or wide (two <code>long</code>) keys K and <tt>byte</tt> values V,
  *  based on a trie (prefix tree) data structure.
  * <p>
  * The aim is to balance a fast recognition of duplicate keys
@@ -46,7 +46,7 @@ public final class KeyDepthMapTrieGeneric implements KeyDepthMap {
     private byte[][] leafArrays;
     private int numLeafArrays, nextLeaf, nextLeafArray;
 
-    private final int nodeBits, nodeNumber, nodeNumberUnCompr, nodeSize, nodeMask;
+    private final int keyBits, nodeBits, nodeNumber, nodeNumberUnCompr, nodeSize, nodeMask;
     private final int leafBits, leafSize, leafMask;
 
 
@@ -59,6 +59,7 @@ public final class KeyDepthMapTrieGeneric implements KeyDepthMap {
      * if you are sure that your application uses only a subset of all <tt>int</tt> keys)
      */
     public KeyDepthMapTrieGeneric(final int keyBits) {
+        this.keyBits = keyBits;
         this.nodeBits = 4;  //tuning parameter: number of value bits per internal node
         this.leafBits = 4;  //tuning parameter: number of value bits per leaf
 
@@ -102,7 +103,7 @@ public final class KeyDepthMapTrieGeneric implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
                 nodeIndex = this.nextNode;
@@ -140,7 +141,7 @@ public final class KeyDepthMapTrieGeneric implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
                 nodeIndex = this.nextNode;
@@ -183,9 +184,7 @@ public final class KeyDepthMapTrieGeneric implements KeyDepthMap {
                 if (this.leafArrays.length <= this.numLeafArrays) {
                     this.leafArrays = Arrays.copyOf(this.leafArrays, this.leafArrays.length << 1);
                 }
-                final byte[] newLeafArray = new byte[LEAF_ARRAY_SIZE];
-                Arrays.fill(newLeafArray, DEFAULT_VALUE);
-                this.leafArrays[this.numLeafArrays++] = newLeafArray;
+                this.addLeafArray();
                 this.nextLeafArray += LEAF_ARRAY_SIZE;
             }
             leafIndex = this.nextLeaf;
@@ -227,7 +226,7 @@ public final class KeyDepthMapTrieGeneric implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
                 nodeIndex = this.nextNode;
@@ -265,7 +264,7 @@ public final class KeyDepthMapTrieGeneric implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
                 nodeIndex = this.nextNode;
@@ -308,9 +307,7 @@ public final class KeyDepthMapTrieGeneric implements KeyDepthMap {
                 if (this.leafArrays.length <= this.numLeafArrays) {
                     this.leafArrays = Arrays.copyOf(this.leafArrays, this.leafArrays.length << 1);
                 }
-                final byte[] newLeafArray = new byte[LEAF_ARRAY_SIZE];
-                Arrays.fill(newLeafArray, DEFAULT_VALUE);
-                this.leafArrays[this.numLeafArrays++] = newLeafArray;
+                this.addLeafArray();
                 this.nextLeafArray += LEAF_ARRAY_SIZE;
             }
             leafIndex = this.nextLeaf;
@@ -331,6 +328,175 @@ public final class KeyDepthMapTrieGeneric implements KeyDepthMap {
     }
 
 
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, long, int)
+     */
+    @Override
+    public final boolean putIfGreater(long keyHi, long keyLo, final int byteValue) {
+        //this method is copy&paste from put(int,byte): the uncompressed nodes shift the 128-bit key,
+        //the remaining bits of the key fit into an int after them.
+        //root node
+        int[] nodeArray = this.rootNode;
+        int nidx = (int)keyLo & this.nodeMask;
+        int nodeIndex, i;   //used by both for() loops
+        //go through nodes (without compression because (key<<8)+value is greater than "int")
+        for (i = 1;  i < this.nodeNumberUnCompr;  ++i) {
+            nodeIndex = nodeArray[nidx];
+            keyLo = (keyLo >>> this.nodeBits) | (keyHi << (64 - this.nodeBits));
+            keyHi >>>= this.nodeBits;
+            if (0 == nodeIndex) {
+                //create a new node
+                if (this.nextNode >= this.nextNodeArray) {
+                    if (this.nodeArrays.length <= this.numNodeArrays) {
+                        this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
+                    }
+                    this.addNodeArray();
+                    this.nextNodeArray += NODE_ARRAY_SIZE;
+                }
+                nodeIndex = this.nextNode;
+                this.nextNode += this.nodeSize;
+                nodeArray[nidx] = nodeIndex;
+            }
+            nodeArray = this.nodeArrays[nodeIndex >>> NODE_ARRAY_SHIFT];
+            nidx = (nodeIndex & NODE_ARRAY_MASK) + ((int)keyLo & this.nodeMask);
+        }
+        int key = (int)keyLo;
+        //go through nodes (with compression because (key<<8)+value is inside "int" range now)
+        for ( ;  i < this.nodeNumber;  ++i) {
+            nodeIndex = nodeArray[nidx];
+            key >>>= this.nodeBits;
+            if (0 == nodeIndex) {
+                // -> node index is null = unused
+                //write current key+value as a "compressed branch" (negative node index)
+                //exit immediately because no further nodes and no leaf need to be stored
+                nodeArray[nidx] = ((~key) << 8) | byteValue;    //negative
+                return true;
+            } else if (0 > nodeIndex) {
+                // -> node index is negative = used by a single "compressed branch"
+                final int prevKey = (~nodeIndex) >> 8;
+                final int prevVal = 0xff & nodeIndex;
+                //previous and current keys are equal (duplicate key)
+                if (prevKey == key) {
+                    if (byteValue > prevVal) {  //putIfGreater
+                        nodeArray[nidx] = (nodeIndex ^ prevVal) | byteValue;    //negative
+                        return true;
+                    }
+                    return false;
+                }
+                //previous and current keys are not equal
+                //create a new node
+                if (this.nextNode >= this.nextNodeArray) {
+                    if (this.nodeArrays.length <= this.numNodeArrays) {
+                        this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
+                    }
+                    this.addNodeArray();
+                    this.nextNodeArray += NODE_ARRAY_SIZE;
+                }
+                nodeIndex = this.nextNode;
+                this.nextNode += this.nodeSize;
+                nodeArray[nidx] = nodeIndex;
+                //push previous "compressed branch" one node further
+                nodeArray = this.nodeArrays[nodeIndex >>> NODE_ARRAY_SHIFT];
+                nidx = (nodeIndex & NODE_ARRAY_MASK) + (prevKey & this.nodeMask);
+                nodeArray[nidx] = (~(prevKey >>> this.nodeBits) << 8) | prevVal;    //negative
+            } else {
+                // -> node index is positive = go to next node
+                nodeArray = this.nodeArrays[nodeIndex >>> NODE_ARRAY_SHIFT];
+            }
+            nidx = (nodeIndex & NODE_ARRAY_MASK) + (key & this.nodeMask);
+        }
+        //get leaf (with compression)
+        int leafIndex = nodeArray[nidx];
+        key >>>= this.nodeBits;
+        if (0 == leafIndex) {
+            // -> leaf index is null = unused
+            //write current value as a "compressed branch" (negative leaf index)
+            //exit immediately because no leaf needs to be stored
+            nodeArray[nidx] = ((~key) << 8) | byteValue;    //negative
+            return true;
+        } else if (0 > leafIndex) {
+            // -> leaf index is negative = used by a single "compressed branch"
+            final int prevKey = (~leafIndex) >> 8;
+            final int prevVal = 0xff & leafIndex;
+            //previous and current keys are equal (duplicate key)
+            if (prevKey == key) {
+                if (byteValue > prevVal) {  //putIfGreater
+                    nodeArray[nidx] = (leafIndex ^ prevVal) | byteValue;    //negative
+                    return true;
+                }
+                return false;
+            }
+            //previous and current keys are not equal
+            //create a new leaf
+            if (this.nextLeaf >= this.nextLeafArray) {
+                if (this.leafArrays.length <= this.numLeafArrays) {
+                    this.leafArrays = Arrays.copyOf(this.leafArrays, this.leafArrays.length << 1);
+                }
+                this.addLeafArray();
+                this.nextLeafArray += LEAF_ARRAY_SIZE;
+            }
+            leafIndex = this.nextLeaf;
+            this.nextLeaf += this.leafSize;
+            nodeArray[nidx] = leafIndex;
+            //push the previous "compressed branch" further to the leaf
+            final int lidx = (leafIndex & LEAF_ARRAY_MASK) + (prevKey & this.leafMask);
+            this.leafArrays[leafIndex >>> LEAF_ARRAY_SHIFT][lidx] = (byte)prevVal;
+        }
+        final byte[] leafArray = this.leafArrays[leafIndex >>> LEAF_ARRAY_SHIFT];
+        final int lidx = (leafIndex & LEAF_ARRAY_MASK) + (key & this.leafMask);
+        final byte prevVal = leafArray[lidx];
+        if (byteValue > prevVal) {  //putIfGreater
+            leafArray[lidx] = (byte)byteValue;
+            return true;
+        }
+        return false;
+    }
+
+
+    //the node arrays after numNodeArrays have been kept by reset(), so they are cleared before they are used again
+    private void addNodeArray() {
+        final int[] nodeArray = this.nodeArrays[this.numNodeArrays];
+        if (null == nodeArray) {
+            this.nodeArrays[this.numNodeArrays] = new int[NODE_ARRAY_SIZE];
+        } else {
+            Arrays.fill(nodeArray, 0);
+        }
+        ++this.numNodeArrays;
+    }
+
+
+    //the leaf arrays after numLeafArrays have been kept by reset(), so they are filled again
+    private void addLeafArray() {
+        byte[] leafArray = this.leafArrays[this.numLeafArrays];
+        if (null == leafArray) {
+            leafArray = new byte[LEAF_ARRAY_SIZE];
+            this.leafArrays[this.numLeafArrays] = leafArray;
+        }
+        Arrays.fill(leafArray, DEFAULT_VALUE);
+        ++this.numLeafArrays;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#reset(driftingdroids.model.Board)
+     */
+    @Override
+    public boolean reset(final Board board) {
+        if (board.getNumRobots() * board.sizeNumBits > this.keyBits) {
+            return false;   //the trie doesn't have enough nodes for these keys
+        }
+        //the other node arrays and all leaf arrays are kept for the next keys
+        Arrays.fill(this.rootNode, 0, Math.min(this.nextNode, NODE_ARRAY_SIZE), 0);
+        this.numNodeArrays = 1;
+        this.nextNode = this.nodeSize;          //root node already exists
+        this.nextNodeArray = NODE_ARRAY_SIZE;   //first array already exists
+        this.numLeafArrays = 0;
+        this.nextLeaf = this.leafSize;  //no leaves yet, but skip leaf "0" because this is the special value
+        this.nextLeafArray = 0;         //no leaf arrays yet
+        return true;
+    }
+
+
     /* (non-Javadoc)
      * @see driftingdroids.model.KeyDepthMap#size()
      */
@@ -397,4 +563,13 @@ public final class KeyDepthMapTrieGeneric implements KeyDepthMap {
         return result;
     }
 
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedOffHeapBytes()
+     */
+    @Override
+    public final long allocatedOffHeapBytes() {
+        return 0;   //everything is on the Java heap
+    }
+
 }
@@ -0,0 +1,515 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+
+
+/**
+ * This class is a variant of <code>KeyDepthMapTrieSpecial</code> that keeps its nodes
+ * and leaves in direct <code>ByteBuffer</code>s, and that can move them to a memory-mapped file,
+ * so that very deep searches don't run into an <code>OutOfMemoryError</code> on devices with a small heap.
+ * <p>
+ * It has the same trie layout as <code>KeyDepthMapTrieConcurrent</code> (without the locking).
+ * The nodes and leaves are stored in segments of 1 MiB, which are direct <code>ByteBuffer</code>s.
+ * When the direct buffers would exceed the RAM budget, a cold segment (second-chance / clock
+ * over the segments that have been used since the last sweep) is copied to a memory-mapped spill file
+ * in the spill directory, and its direct buffer is reused for the new segment.
+ * The spilled segments are still accessed through the mapping, so the operating system decides
+ * which of their pages stay in RAM.
+ * <p>
+ * On a desktop JVM the direct buffers are outside of the Java heap. On Android (ART) they are
+ * allocated on the Java heap and count against <code>Runtime.maxMemory()</code>, so only the spilled
+ * segments are outside of the heap there: the RAM budget must be a small part of the heap.
+ * If no spill directory has been set, the RAM budget is not enforced.
+ * <p>
+ * The spill file is deleted when it is created, but its disk space and its file descriptor are held
+ * until <code>close()</code> is called (or until the garbage collector has collected this map).
+ */
+public final class KeyDepthMapTrieOffHeap implements KeyDepthMap, Closeable {
+
+    private static final int SEGMENT_BYTES = 1 << 20;  // 1 MiB
+
+    private static final int NODE_SEGMENT_SHIFT = 18;   // ints per segment
+    private static final int NODE_SEGMENT_SIZE = 1 << NODE_SEGMENT_SHIFT;
+    private static final int NODE_SEGMENT_MASK = NODE_SEGMENT_SIZE - 1;
+    private IntBuffer[] nodeSegments = new IntBuffer[16];
+    private boolean[] isNodeSegmentUsed = new boolean[16];
+    private int numNodeSegments, nextNode;
+
+    private static final int LEAF_SEGMENT_SHIFT = 20;   // bytes per segment
+    private static final int LEAF_SEGMENT_SIZE = 1 << LEAF_SEGMENT_SHIFT;
+    private static final int LEAF_SEGMENT_MASK = LEAF_SEGMENT_SIZE - 1;
+    private ByteBuffer[] leafSegments = new ByteBuffer[16];
+    private boolean[] isLeafSegmentUsed = new boolean[16];
+    private int numLeafSegments, nextLeaf;
+
+    //the direct buffers; each holds one segment: node segment (id >= 0) or leaf segment (~id < 0)
+    private ByteBuffer[] directBuffers = new ByteBuffer[16];
+    private int[] directSegmentIds = new int[16];
+    private int numDirectBuffers, clockHand;
+    private final int maxDirectBuffers;
+
+    private final File spillDirectory;
+    private RandomAccessFile spillFile = null;
+    private long spilledBytes = 0;
+
+    private final int nodeNumber, nodeNumberUnCompr, nodeShift, nodeMask;
+    private final int leafNodeShift, leafNodeMask, leafNodeSize, leafSize, leafMask;
+
+    private final int[] nodeSizeLookup;
+    private final int[] elementLookup;
+    private int size = 0;
+
+    private static volatile long defaultRamBudget = 64L << 20;
+    private static volatile File defaultSpillDirectory = null;
+
+
+
+    /**
+     * Sets the RAM budget of the maps that are created by <code>KeyDepthMapFactory</code>.
+     *
+     * @param bytes maximum number of bytes of direct buffers per map
+     */
+    public static void setDefaultRamBudget(final long bytes) {
+        defaultRamBudget = bytes;
+    }
+
+    /**
+     * Sets the directory for the spill files of the maps that are created by <code>KeyDepthMapFactory</code>.
+     * On Android this should be app-private storage, like <code>Context.getCacheDir()</code>.
+     *
+     * @param directory the directory, or null to disable spilling
+     */
+    public static void setDefaultSpillDirectory(final File directory) {
+        defaultSpillDirectory = directory;
+    }
+
+    public KeyDepthMapTrieOffHeap(final Board board) {
+        this(board, defaultRamBudget, defaultSpillDirectory);
+    }
+
+    /**
+     * @param board the board that is to be solved
+     * @param ramBudget maximum number of bytes of direct buffers; more segments are spilled to disk
+     * @param spillDirectory directory of the spill file, or null to disable spilling
+     */
+    public KeyDepthMapTrieOffHeap(final Board board, final long ramBudget, final File spillDirectory) {
+        this.nodeSizeLookup = new int[board.size];
+        for (int i = 0;  i < this.nodeSizeLookup.length;  ++i) {
+            this.nodeSizeLookup[i] = board.size - 1 - i;
+        }
+        this.elementLookup = new int[board.size];
+        for (int i = 0;  i < this.elementLookup.length;  ++i) {
+            this.elementLookup[i] = i;
+        }
+        for (int i = 0;  i < board.size;  ++i) {
+            if (true == board.isObstacle(i)) {
+                for (int j = 0;  j < i;  ++j) {
+                    this.nodeSizeLookup[j] -= 1;
+                }
+                for (int j = i;  j < this.elementLookup.length;  ++j) {
+                    this.elementLookup[j] -= 1;
+                }
+            }
+        }
+        for (int i = 0;  i < board.size;  ++i) {
+            if (true == board.isObstacle(i)) {
+                this.nodeSizeLookup[i] = Integer.MIN_VALUE;
+                this.elementLookup[i] = Integer.MIN_VALUE;
+            }
+        }
+        this.nodeNumber = board.getNumRobots() - 1;
+        this.nodeNumberUnCompr = (board.getNumRobots()*board.sizeNumBits + 8 - 31 + (board.sizeNumBits - 1)) / board.sizeNumBits;
+        this.nodeShift = board.sizeNumBits;
+        this.nodeMask = (1 << board.sizeNumBits) - 1;
+
+        this.leafNodeShift = board.sizeNumBits / 2;
+        this.leafNodeMask = (1 << this.leafNodeShift) - 1;
+        this.leafNodeSize = this.leafNodeMask + 1;
+        this.leafSize = 1 << (board.sizeNumBits - this.leafNodeShift);
+        this.leafMask = this.leafSize - 1;
+
+        this.spillDirectory = spillDirectory;
+        this.maxDirectBuffers = (int)Math.max(2, Math.min(Integer.MAX_VALUE, ramBudget / SEGMENT_BYTES));
+
+        this.addNodeSegment();                  //root node
+        this.nextNode = board.size;             //root node already exists
+        this.nextLeaf = this.leafSize;          //no leaves yet, but skip leaf "0" because this is the special value
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(int, int)
+     */
+    @Override
+    public boolean putIfGreater(final int key, final int byteValue) {
+        return this.putIfGreater(key & 0xffffffffL, byteValue);  //unsigned: same sequence of elements as the int key
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, int)
+     */
+    @Override
+    public boolean putIfGreater(long key, final int byteValue) {
+        //root node
+        int nidx = (int)key & this.nodeMask;
+        int nodeSegment = 0;
+        IntBuffer nodeArray = this.nodeSegments[0];
+        int elementThis = nidx;
+        int elementThisLookup = this.elementLookup[nidx];
+        //go through nodes (without compression because (key<<8)+value is greater than "int")
+        int nodeIndex, i;   //used by both for() loops
+        for (i = 1;  i < this.nodeNumberUnCompr;  ++i) {
+            nodeIndex = nodeArray.get(nidx);
+            key >>>= this.nodeShift;
+            if (0 == nodeIndex) {
+                //create a new node
+                nodeIndex = this.allocateNode(this.nodeSizeLookup[elementThis]);
+                this.nodeSegments[nodeSegment].put(nidx, nodeIndex);   //the segment may have been spilled
+            }
+            elementThis = (int)key & this.nodeMask;
+            nidx = (nodeIndex & NODE_SEGMENT_MASK) - elementThisLookup - 1;
+            elementThisLookup = this.elementLookup[elementThis];
+            nodeSegment = nodeIndex >>> NODE_SEGMENT_SHIFT;
+            nodeArray = this.getNodeSegment(nodeSegment);
+            nidx += elementThisLookup;
+        }
+        //go through nodes (with compression because (key<<8)+value is inside "int" range now)
+        for ( ;  i < this.nodeNumber;  ++i) {
+            nodeIndex = nodeArray.get(nidx);
+            key >>>= this.nodeShift;
+            if (0 == nodeIndex) {
+                // -> node index is null = unused
+                //write current key+value as a "compressed branch" (negative node index)
+                nodeArray.put(nidx, ((~(int)key) << 8) | byteValue);
+                ++this.size;
+                return true;
+            } else if (0 > nodeIndex) {
+                // -> node index is negative = used by a single "compressed branch"
+                final int prevKey = (~nodeIndex) >> 8;
+                final int prevVal = 0xff & nodeIndex;
+                //previous and current keys are equal (duplicate key)
+                if (prevKey == (int)key) {
+                    if (byteValue <= prevVal) {
+                        return false;
+                    }
+                    nodeArray.put(nidx, (nodeIndex ^ prevVal) | byteValue);
+                    return true;
+                }
+                //previous and current keys are not equal
+                //create a new node and push previous "compressed branch" one node further
+                nodeIndex = this.allocateNode(this.nodeSizeLookup[elementThis]);
+                this.getNodeSegment(nodeIndex >>> NODE_SEGMENT_SHIFT).put(
+                        (nodeIndex & NODE_SEGMENT_MASK) - elementThisLookup - 1 + this.elementLookup[prevKey & this.nodeMask],
+                        (~(prevKey >>> this.nodeShift) << 8) | prevVal);
+                this.nodeSegments[nodeSegment].put(nidx, nodeIndex);
+            }
+            // -> node index is positive = go to next node
+            elementThis = (int)key & this.nodeMask;
+            nidx = (nodeIndex & NODE_SEGMENT_MASK) - elementThisLookup - 1;
+            elementThisLookup = this.elementLookup[elementThis];
+            nodeSegment = nodeIndex >>> NODE_SEGMENT_SHIFT;
+            nodeArray = this.getNodeSegment(nodeSegment);
+            nidx += elementThisLookup;
+        }
+        //go through leaf node (with compression)
+        key >>>= this.nodeShift;
+        nodeIndex = nodeArray.get(nidx);
+        if (0 == nodeIndex) {
+            // -> node index is null = unused
+            //write current key+value as a "compressed branch" (negative node index)
+            nodeArray.put(nidx, ((~(int)key) << 8) | byteValue);
+            ++this.size;
+            return true;
+        } else if (0 > nodeIndex) {
+            // -> node index is negative = used by a single "compressed branch"
+            final int prevKey = (~nodeIndex) >> 8;
+            final int prevVal = 0xff & nodeIndex;
+            //previous and current keys are equal (duplicate key)
+            if (prevKey == (int)key) {
+                if (byteValue <= prevVal) {
+                    return false;
+                }
+                nodeArray.put(nidx, (nodeIndex ^ prevVal) | byteValue);
+                return true;
+            }
+            //previous and current keys are not equal
+            //create a new node and push previous "compressed branch" one node further
+            nodeIndex = this.allocateNode(this.leafNodeSize);
+            this.getNodeSegment(nodeIndex >>> NODE_SEGMENT_SHIFT).put(
+                    (nodeIndex & NODE_SEGMENT_MASK) + (prevKey & this.leafNodeMask),
+                    (~(prevKey >>> this.leafNodeShift) << 8) | prevVal);    //negative
+            this.nodeSegments[nodeSegment].put(nidx, nodeIndex);
+        }
+        // -> node index is positive = go to next node
+        nodeSegment = nodeIndex >>> NODE_SEGMENT_SHIFT;
+        nodeArray = this.getNodeSegment(nodeSegment);
+        nidx = (nodeIndex & NODE_SEGMENT_MASK) + ((int)key & this.leafNodeMask);
+        //get leaf (with compression)
+        key >>>= this.leafNodeShift;
+        int leafIndex = nodeArray.get(nidx);
+        if (0 == leafIndex) {
+            // -> leaf index is null = unused
+            //write current value as a "compressed branch" (negative leaf index)
+            nodeArray.put(nidx, ((~(int)key) << 8) | byteValue);
+            ++this.size;
+            return true;
+        } else if (0 > leafIndex) {
+            // -> leaf index is negative = used by a single "compressed branch"
+            final int prevKey = (~leafIndex) >> 8;
+            final int prevVal = 0xff & leafIndex;
+            //previous and current keys are equal (duplicate key)
+            if (prevKey == (int)key) {
+                if (byteValue <= prevVal) {
+                    return false;
+                }
+                nodeArray.put(nidx, (leafIndex ^ prevVal) | byteValue);
+                return true;
+            }
+            //previous and current keys are not equal
+            //create a new leaf and push the previous "compressed branch" further to the leaf
+            leafIndex = this.allocateLeaf();
+            this.getLeafSegment(leafIndex >>> LEAF_SEGMENT_SHIFT).put((leafIndex & LEAF_SEGMENT_MASK) + (prevKey & this.leafMask), (byte)prevVal);
+            this.nodeSegments[nodeSegment].put(nidx, leafIndex);
+        }
+        // -> leaf index is positive = go to leaf
+        final ByteBuffer leafArray = this.getLeafSegment(leafIndex >>> LEAF_SEGMENT_SHIFT);
+        final int lidx = (leafIndex & LEAF_SEGMENT_MASK) + ((int)key & this.leafMask);
+        final int prevVal = 0xff & leafArray.get(lidx);
+        if (byteValue <= prevVal) {
+            return false;
+        }
+        if (0 == prevVal) {
+            ++this.size;
+        }
+        leafArray.put(lidx, (byte)byteValue);   //putIfGreater
+        return true;
+    }
+
+
+
+    private IntBuffer getNodeSegment(final int segment) {
+        this.isNodeSegmentUsed[segment] = true;
+        return this.nodeSegments[segment];
+    }
+
+    private ByteBuffer getLeafSegment(final int segment) {
+        this.isLeafSegmentUsed[segment] = true;
+        return this.leafSegments[segment];
+    }
+
+    private int allocateNode(final int nodeSize) {
+        int nodeIndex = this.nextNode;
+        if ((nodeIndex & NODE_SEGMENT_MASK) + nodeSize > NODE_SEGMENT_SIZE) {
+            nodeIndex = (nodeIndex & ~NODE_SEGMENT_MASK) + NODE_SEGMENT_SIZE;   //node doesn't fit: skip to next segment
+        }
+        while ((nodeIndex >>> NODE_SEGMENT_SHIFT) >= this.numNodeSegments) {
+            this.addNodeSegment();
+        }
+        this.nextNode = nodeIndex + nodeSize;
+        return nodeIndex;
+    }
+
+    private int allocateLeaf() {
+        final int leafIndex = this.nextLeaf;    //leafSize divides LEAF_SEGMENT_SIZE, so leaves never cross segments
+        while ((leafIndex >>> LEAF_SEGMENT_SHIFT) >= this.numLeafSegments) {
+            this.addLeafSegment();
+        }
+        this.nextLeaf = leafIndex + this.leafSize;
+        return leafIndex;
+    }
+
+    private void addNodeSegment() {
+        if (this.nodeSegments.length <= this.numNodeSegments) {
+            this.nodeSegments = Arrays.copyOf(this.nodeSegments, this.nodeSegments.length << 1);
+            this.isNodeSegmentUsed = Arrays.copyOf(this.isNodeSegmentUsed, this.nodeSegments.length);
+        }
+        final int segment = this.numNodeSegments++;
+        this.nodeSegments[segment] = this.newDirectBuffer(segment).asIntBuffer();
+        this.isNodeSegmentUsed[segment] = true;
+    }
+
+    private void addLeafSegment() {
+        if (this.leafSegments.length <= this.numLeafSegments) {
+            this.leafSegments = Arrays.copyOf(this.leafSegments, this.leafSegments.length << 1);
+            this.isLeafSegmentUsed = Arrays.copyOf(this.isLeafSegmentUsed, this.leafSegments.length);
+        }
+        final int segment = this.numLeafSegments++;
+        this.leafSegments[segment] = this.newDirectBuffer(~segment);
+        this.isLeafSegmentUsed[segment] = true;
+    }
+
+    //returns a cleared direct buffer: a new one if the RAM budget allows it, otherwise the buffer of a spilled segment.
+    private ByteBuffer newDirectBuffer(final int segmentId) {
+        if ((this.numDirectBuffers < this.maxDirectBuffers) || (null == this.spillDirectory)) {
+            if (this.directBuffers.length <= this.numDirectBuffers) {
+                this.directBuffers = Arrays.copyOf(this.directBuffers, this.directBuffers.length << 1);
+                this.directSegmentIds = Arrays.copyOf(this.directSegmentIds, this.directBuffers.length);
+            }
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(SEGMENT_BYTES).order(ByteOrder.nativeOrder());
+            this.directSegmentIds[this.numDirectBuffers] = segmentId;
+            this.directBuffers[this.numDirectBuffers++] = buffer;
+            return buffer;
+        }
+        final int slot = this.spillColdSegment();
+        final ByteBuffer buffer = this.directBuffers[slot];
+        for (int i = 0;  i < SEGMENT_BYTES;  i += 8) {
+            buffer.putLong(i, 0L);
+        }
+        this.directSegmentIds[slot] = segmentId;
+        return buffer;
+    }
+
+    //second-chance (clock) selection of a segment that hasn't been used recently; the root node is never spilled.
+    private int spillColdSegment() {
+        while (true) {
+            final int slot = this.clockHand;
+            this.clockHand = (slot + 1) % this.numDirectBuffers;
+            final int segmentId = this.directSegmentIds[slot];
+            if (0 == segmentId) {
+                continue;   //root node
+            }
+            final boolean[] isUsed = ((segmentId > 0) ? this.isNodeSegmentUsed : this.isLeafSegmentUsed);
+            final int segment = ((segmentId > 0) ? segmentId : ~segmentId);
+            if (true == isUsed[segment]) {
+                isUsed[segment] = false;
+                continue;
+            }
+            final ByteBuffer spilled = this.spill(this.directBuffers[slot]);
+            if (segmentId > 0) {
+                this.nodeSegments[segment] = spilled.asIntBuffer();
+            } else {
+                this.leafSegments[segment] = spilled;
+            }
+            return slot;
+        }
+    }
+
+    //copies the segment to a new region of the spill file
+    private ByteBuffer spill(final ByteBuffer buffer) {
+        try {
+            if (null == this.spillFile) {
+                final File file = File.createTempFile("keydepthmap", ".bin", this.spillDirectory);
+                this.spillFile = new RandomAccessFile(file, "rw");
+                if (false == file.delete()) {   //the file stays accessible until it's closed, see close()
+                    file.deleteOnExit();
+                }
+            }
+            final ByteBuffer mapped = this.spillFile.getChannel().map(FileChannel.MapMode.READ_WRITE, this.spilledBytes, SEGMENT_BYTES).order(ByteOrder.nativeOrder());
+            this.spilledBytes += SEGMENT_BYTES;
+            final ByteBuffer source = buffer.duplicate();
+            source.clear();
+            mapped.put(source);
+            mapped.clear();
+            return mapped;
+        } catch (IOException e) {
+            throw new IllegalStateException("can't spill to " + this.spillDirectory + ": " + e.toString());
+        }
+    }
+
+
+    /**
+     * Releases the spill file: its disk space and its file descriptor.
+     * The direct buffers are left to the garbage collector. This map must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        //the mappings of the spilled segments are dropped with the segments
+        this.nodeSegments = null;
+        this.leafSegments = null;
+        this.directBuffers = null;
+        if (null != this.spillFile) {
+            try {
+                this.spillFile.setLength(0);    //the mappings may outlive the file, but they are not used any more
+                this.spillFile.close();
+            } catch (IOException e) {
+                SolverLog.log("can't close the spill file: " + e.toString());
+            }
+            this.spillFile = null;
+        }
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedBytes()
+     */
+    @Override
+    public long allocatedBytes() {
+        return (this.nodeSegments.length + this.leafSegments.length + this.directBuffers.length) * 9L
+                + (this.nodeSizeLookup.length + this.elementLookup.length) * 4L;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedOffHeapBytes()
+     */
+    @Override
+    public long allocatedOffHeapBytes() {
+        return (long)this.numDirectBuffers * SEGMENT_BYTES + this.spilledBytes;
+    }
+
+
+    /**
+     * @return number of bytes that have been spilled to the memory-mapped file (included in <code>allocatedOffHeapBytes()</code>)
+     */
+    public long spilledBytes() {
+        return this.spilledBytes;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, long, int)
+     */
+    @Override
+    public boolean putIfGreater(long keyHi, long keyLo, final int byteValue) {
+        //this map is created only for keys that fit into a long (see KeyDepthMapFactory)
+        if (0 == keyHi) {
+            return this.putIfGreater(keyLo, byteValue);
+        }
+        throw new UnsupportedOperationException("wide keys are not supported by " + this.getClass().getSimpleName());
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#reset(driftingdroids.model.Board)
+     */
+    @Override
+    public boolean reset(final Board board) {
+        return false;   //the segments may have been spilled to the file, so they are not reused
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#size()
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+}
@@ -61,39 +61,23 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
     
     protected int size = 0;
 
+    //nibble leaves (see KeyDepthMapTrieSpecialNibble): 4 bits per value, see NibbleValues.
+    protected final boolean isNibbleLeaves;
+    protected final int leafArrayBytes;
+    protected final NibbleValues nibbleValues;
+
     public static KeyDepthMapTrieSpecial createInstance(final Board board, final boolean useMoreMemoryForSpeedup) {
         if (useMoreMemoryForSpeedup && (8 == board.sizeNumBits) && ((4 == board.getNumRobots()) || (5 == board.getNumRobots()))) {
             return new KeyDepthMapTrieSpecial8Bit(board);
         } else {
-            return new KeyDepthMapTrieSpecial(board);
+            return new KeyDepthMapTrieSpecial(board, false);
         }
     }
 
-    private KeyDepthMapTrieSpecial(final Board board) {
+    protected KeyDepthMapTrieSpecial(final Board board, final boolean isNibbleLeaves) {
         this.nodeSizeLookup = new int[board.size];
-        for (int i = 0;  i < this.nodeSizeLookup.length;  ++i) {
-            this.nodeSizeLookup[i] = board.size - 1 - i;
-        }
         this.elementLookup = new int[board.size];
-        for (int i = 0;  i < this.elementLookup.length;  ++i) {
-            this.elementLookup[i] = i;
-        }
-        for (int i = 0;  i < board.size;  ++i) {
-            if (true == board.isObstacle(i)) {
-                for (int j = 0;  j < i;  ++j) {
-                    this.nodeSizeLookup[j] -= 1;
-                }
-                for (int j = i;  j < this.elementLookup.length;  ++j) {
-                    this.elementLookup[j] -= 1;
-                }
-            }
-        }
-        for (int i = 0;  i < board.size;  ++i) {
-            if (true == board.isObstacle(i)) {
-                this.nodeSizeLookup[i] = Integer.MIN_VALUE;
-                this.elementLookup[i] = Integer.MIN_VALUE;
-            }
-        }
+        this.initLookups(board);
         this.nodeNumber = board.getNumRobots() - 1;
         this.nodeNumberUnCompr = (board.getNumRobots()*board.sizeNumBits + 8 - 31 + (board.sizeNumBits - 1)) / board.sizeNumBits;
         this.nodeShift = board.sizeNumBits;
@@ -115,6 +99,36 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
         this.numLeafArrays = 0;
         this.nextLeaf = this.leafSize;  //no leaves yet, but skip leaf "0" because this is the special value
         this.nextLeafArray = 0;         //no leaf arrays yet
+        this.isNibbleLeaves = isNibbleLeaves;
+        this.leafArrayBytes = (isNibbleLeaves ? LEAF_ARRAY_SIZE >>> 1 : LEAF_ARRAY_SIZE);
+        this.nibbleValues = (isNibbleLeaves ? new NibbleValues() : null);
+    }
+
+
+    //the number of elements per node and the element numbers skip the obstacles of the board
+    private void initLookups(final Board board) {
+        for (int i = 0;  i < this.nodeSizeLookup.length;  ++i) {
+            this.nodeSizeLookup[i] = board.size - 1 - i;
+        }
+        for (int i = 0;  i < this.elementLookup.length;  ++i) {
+            this.elementLookup[i] = i;
+        }
+        for (int i = 0;  i < board.size;  ++i) {
+            if (true == board.isObstacle(i)) {
+                for (int j = 0;  j < i;  ++j) {
+                    this.nodeSizeLookup[j] -= 1;
+                }
+                for (int j = i;  j < this.elementLookup.length;  ++j) {
+                    this.elementLookup[j] -= 1;
+                }
+            }
+        }
+        for (int i = 0;  i < board.size;  ++i) {
+            if (true == board.isObstacle(i)) {
+                this.nodeSizeLookup[i] = Integer.MIN_VALUE;
+                this.elementLookup[i] = Integer.MIN_VALUE;
+            }
+        }
     }
 
 
@@ -140,7 +154,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNode = this.nextNodeArray;
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
@@ -183,7 +197,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNode = this.nextNodeArray;
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
@@ -232,7 +246,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                 if (this.nodeArrays.length <= this.numNodeArrays) {
                     this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                 }
-                this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                this.addNodeArray();
                 this.nextNode = this.nextNodeArray;
                 this.nextNodeArray += NODE_ARRAY_SIZE;
             }
@@ -275,16 +289,22 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                 if (this.leafArrays.length <= this.numLeafArrays) {
                     this.leafArrays = Arrays.copyOf(this.leafArrays, this.leafArrays.length << 1);
                 }
-                final byte[] newLeafArray = new byte[LEAF_ARRAY_SIZE];
-                this.leafArrays[this.numLeafArrays++] = newLeafArray;
+                this.addLeafArray();
                 this.nextLeafArray += LEAF_ARRAY_SIZE;
             }
             leafIndex = this.nextLeaf;
             this.nextLeaf += this.leafSize;
             nodeArray[nidx] = leafIndex;
             //push the previous "compressed branch" further to the leaf
-            final int lidx = (leafIndex & LEAF_ARRAY_MASK) + (prevKey & this.leafMask);
-            this.leafArrays[leafIndex >>> LEAF_ARRAY_SHIFT][lidx] = (byte)prevVal;
+            if (true == this.isNibbleLeaves) {
+                this.putNibbleIfGreater(leafIndex + (prevKey & this.leafMask), prevVal);
+            } else {
+                final int lidx = (leafIndex & LEAF_ARRAY_MASK) + (prevKey & this.leafMask);
+                this.leafArrays[leafIndex >>> LEAF_ARRAY_SHIFT][lidx] = (byte)prevVal;
+            }
+        }
+        if (true == this.isNibbleLeaves) {
+            return this.putNibbleIfGreater(leafIndex + (key & this.leafMask), byteValue);
         }
         final byte[] leafArray = this.leafArrays[leafIndex >>> LEAF_ARRAY_SHIFT];
         final int lidx = (leafIndex & LEAF_ARRAY_MASK) + (key & this.leafMask);
@@ -320,7 +340,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNode = this.nextNodeArray;
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
@@ -363,7 +383,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNode = this.nextNodeArray;
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
@@ -412,7 +432,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                 if (this.nodeArrays.length <= this.numNodeArrays) {
                     this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                 }
-                this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                this.addNodeArray();
                 this.nextNode = this.nextNodeArray;
                 this.nextNodeArray += NODE_ARRAY_SIZE;
             }
@@ -455,16 +475,22 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                 if (this.leafArrays.length <= this.numLeafArrays) {
                     this.leafArrays = Arrays.copyOf(this.leafArrays, this.leafArrays.length << 1);
                 }
-                final byte[] newLeafArray = new byte[LEAF_ARRAY_SIZE];
-                this.leafArrays[this.numLeafArrays++] = newLeafArray;
+                this.addLeafArray();
                 this.nextLeafArray += LEAF_ARRAY_SIZE;
             }
             leafIndex = this.nextLeaf;
             this.nextLeaf += this.leafSize;
             nodeArray[nidx] = leafIndex;
             //push the previous "compressed branch" further to the leaf
-            final int lidx = (leafIndex & LEAF_ARRAY_MASK) + (prevKey & this.leafMask);
-            this.leafArrays[leafIndex >>> LEAF_ARRAY_SHIFT][lidx] = (byte)prevVal;
+            if (true == this.isNibbleLeaves) {
+                this.putNibbleIfGreater(leafIndex + (prevKey & this.leafMask), prevVal);
+            } else {
+                final int lidx = (leafIndex & LEAF_ARRAY_MASK) + (prevKey & this.leafMask);
+                this.leafArrays[leafIndex >>> LEAF_ARRAY_SHIFT][lidx] = (byte)prevVal;
+            }
+        }
+        if (true == this.isNibbleLeaves) {
+            return this.putNibbleIfGreater(leafIndex + ((int)key & this.leafMask), byteValue);
         }
         final byte[] leafArray = this.leafArrays[leafIndex >>> LEAF_ARRAY_SHIFT];
         final int lidx = (leafIndex & LEAF_ARRAY_MASK) + ((int)key & this.leafMask);
@@ -477,6 +503,12 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
     }
 
 
+    //g = leaf index + element: global index of the 4-bit value in leafArrays
+    private boolean putNibbleIfGreater(final int g, final int byteValue) {
+        return this.nibbleValues.putIfGreater(this.leafArrays[g >>> LEAF_ARRAY_SHIFT], g & LEAF_ARRAY_MASK, g, byteValue);
+    }
+
+
     /* (non-Javadoc)
      * @see driftingdroids.model.KeyDepthMap#allocatedBytes()
      */
@@ -489,10 +521,84 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
         for (int i = 0;  i < this.numLeafArrays;  ++i) {
             result += this.leafArrays[i].length * 1;
         }
+        if (null != this.nibbleValues) {
+            result += this.nibbleValues.allocatedBytes();
+        }
         return result;
     }
 
 
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#allocatedOffHeapBytes()
+     */
+    @Override
+    public long allocatedOffHeapBytes() {
+        return 0;   //everything is on the Java heap
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#putIfGreater(long, long, int)
+     */
+    @Override
+    public boolean putIfGreater(long keyHi, long keyLo, final int byteValue) {
+        //this map is created only for keys that fit into a long (see KeyDepthMapFactory)
+        if (0 == keyHi) {
+            return this.putIfGreater(keyLo, byteValue);
+        }
+        throw new UnsupportedOperationException("wide keys are not supported by " + this.getClass().getSimpleName());
+    }
+
+
+    //the node arrays after numNodeArrays have been kept by reset(), so they are cleared before they are used again
+    protected final void addNodeArray() {
+        final int[] nodeArray = this.nodeArrays[this.numNodeArrays];
+        if (null == nodeArray) {
+            this.nodeArrays[this.numNodeArrays] = new int[NODE_ARRAY_SIZE];
+        } else {
+            Arrays.fill(nodeArray, 0);
+        }
+        ++this.numNodeArrays;
+    }
+
+
+    //the leaf arrays after numLeafArrays have been kept by reset(), so they are cleared before they are used again
+    protected final void addLeafArray() {
+        final byte[] leafArray = this.leafArrays[this.numLeafArrays];
+        if (null == leafArray) {
+            this.leafArrays[this.numLeafArrays] = new byte[this.leafArrayBytes];
+        } else {
+            Arrays.fill(leafArray, (byte)0);
+        }
+        ++this.numLeafArrays;
+    }
+
+
+    /* (non-Javadoc)
+     * @see driftingdroids.model.KeyDepthMap#reset(driftingdroids.model.Board)
+     */
+    @Override
+    public boolean reset(final Board board) {
+        if ((board.size != this.nodeSizeLookup.length) || (board.getNumRobots() - 1 != this.nodeNumber) || (board.sizeNumBits != this.nodeShift)) {
+            return false;   //the nodes are tailored to another board size or number of robots
+        }
+        this.initLookups(board);    //the obstacles may be different
+        //the other node arrays and all leaf arrays are kept for the next keys
+        Arrays.fill(this.rootNode, 0, Math.min(this.nextNode, NODE_ARRAY_SIZE), 0);
+        this.numNodeArrays = 1;
+        this.nextNode = board.size;             //root node already exists
+        this.nextNodeArray = NODE_ARRAY_SIZE;   //first array already exists
+        this.numLeafArrays = 0;
+        this.nextLeaf = this.leafSize;  //no leaves yet, but skip leaf "0" because this is the special value
+        this.nextLeafArray = 0;         //no leaf arrays yet
+        this.size = 0;
+        if (null != this.nibbleValues) {
+            this.nibbleValues.clear();
+        }
+        return true;
+    }
+
+
     /* (non-Javadoc)
      * @see driftingdroids.model.KeyDepthMap#size()
      */
@@ -514,10 +620,19 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
         private final int[] lookupArray;
 
         private KeyDepthMapTrieSpecial8Bit(final Board board) {
-            super(board);
+            super(board, false);
             this.lookupArray = new int[LOOKUP_MASK + 1]; // 64 MiB
         }
 
+        @Override
+        public boolean reset(final Board board) {
+            if (false == super.reset(board)) {
+                return false;
+            }
+            Arrays.fill(this.lookupArray, 0);
+            return true;
+        }
+
         @Override
         public boolean putIfGreater(int key, int byteValue) { // for 4 robots
             int nidx = key & LOOKUP_MASK;
@@ -548,7 +663,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNode = this.nextNodeArray;
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
@@ -591,8 +706,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                     if (this.leafArrays.length <= this.numLeafArrays) {
                         this.leafArrays = Arrays.copyOf(this.leafArrays, this.leafArrays.length << 1);
                     }
-                    final byte[] newLeafArray = new byte[LEAF_ARRAY_SIZE];
-                    this.leafArrays[this.numLeafArrays++] = newLeafArray;
+                    this.addLeafArray();
                     this.nextLeafArray += LEAF_ARRAY_SIZE;
                 }
                 leafIndex = this.nextLeaf;
@@ -646,7 +760,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNode = this.nextNodeArray;
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
@@ -694,7 +808,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                     if (this.nodeArrays.length <= this.numNodeArrays) {
                         this.nodeArrays = Arrays.copyOf(this.nodeArrays, this.nodeArrays.length << 1);
                     }
-                    this.nodeArrays[this.numNodeArrays++] = new int[NODE_ARRAY_SIZE];
+                    this.addNodeArray();
                     this.nextNode = this.nextNodeArray;
                     this.nextNodeArray += NODE_ARRAY_SIZE;
                 }
@@ -737,8 +851,7 @@ public class KeyDepthMapTrieSpecial implements KeyDepthMap {
                     if (this.leafArrays.length <= this.numLeafArrays) {
                         this.leafArrays = Arrays.copyOf(this.leafArrays, this.leafArrays.length << 1);
                     }
-                    final byte[] newLeafArray = new byte[LEAF_ARRAY_SIZE];
-                    this.leafArrays[this.numLeafArrays++] = newLeafArray;
+                    this.addLeafArray();
                     this.nextLeafArray += LEAF_ARRAY_SIZE;
                 }
                 leafIndex = this.nextLeaf;
@@ -0,0 +1,36 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+
+
+/**
+ * This class is a variant of <code>KeyDepthMapTrieSpecial</code> that stores the values
+ * in its leaves with 4 bits instead of 8 bits, which halves the memory used by the leaves.
+ * The values of 15 and more are escaped, see <code>NibbleValues</code>.
+ * <p>
+ * Unlike <code>KeyDepthMapTrieSpecial.createInstance</code> it doesn't use the 64 MiB lookup
+ * array of the 8-bit variant, because its purpose is to save memory.
+ */
+public final class KeyDepthMapTrieSpecialNibble extends KeyDepthMapTrieSpecial {
+
+    public KeyDepthMapTrieSpecialNibble(final Board board) {
+        super(board, true);
+    }
+
+}
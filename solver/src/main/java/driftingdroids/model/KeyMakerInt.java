@@ -33,6 +33,53 @@ public abstract class KeyMakerInt {
     public abstract int run(final int[] state);
     
     
+    //used by runIncremental: number of sorted elements and their size in bits
+    private int numSorted, s1;
+    private int elementMask, unsortedMask;
+    
+    
+    /**
+     * Creates the <tt>int</tt> key of a state that differs from a state with a known key
+     * in the position of a single robot. The result is the same as <tt>run</tt> of the new state,
+     * but it's computed from the known key, without copying and sorting the whole state:
+     * the goal robot replaces its own element, any other robot is removed from the
+     * sorted elements and inserted again at its new position.
+     *
+     * @param key the key of the known state (created by <tt>run</tt> or <tt>runIncremental</tt>)
+     * @param robo the index of the robot that has moved
+     * @param oldPos the position of this robot in the known state
+     * @param newPos the position of this robot in the new state
+     * @return the key of the new state
+     */
+    public final int runIncremental(final int key, final int robo, final int oldPos, final int newPos) {
+        if (robo >= this.numSorted) {
+            //the goal robot is the last element of the key
+            final int shift = this.numSorted * this.s1;
+            return (key & ~(this.elementMask << shift)) | (newPos << shift);
+        }
+        int result = key & this.unsortedMask;
+        int shift = 0;
+        boolean isInserted = false;
+        for (int i = 0;  i < this.numSorted;  ++i) {
+            final int pos = (key >>> (i * this.s1)) & this.elementMask;
+            if (pos == oldPos) {
+                continue;
+            }
+            if ((false == isInserted) && (newPos < pos)) {
+                result |= newPos << shift;
+                shift += this.s1;
+                isInserted = true;
+            }
+            result |= pos << shift;
+            shift += this.s1;
+        }
+        if (false == isInserted) {
+            result |= newPos << shift;
+        }
+        return result;
+    }
+    
+    
     /**
      * Creates an instance of <tt>KeyMakerInt</tt> that is tailored to the given parameters.
      *
@@ -50,6 +97,10 @@ public abstract class KeyMakerInt {
         case 4:  keyMaker = (isBoardGoalWildcard ? new KeyMakerInt44(boardSizeNumBits) : new KeyMakerInt43(boardSizeNumBits)); break;
         default: keyMaker = new KeyMakerIntAll(boardNumRobots, boardSizeNumBits, isBoardGoalWildcard);
         }
+        keyMaker.numSorted = boardNumRobots - (isBoardGoalWildcard ? 0 : 1);
+        keyMaker.s1 = boardSizeNumBits;
+        keyMaker.elementMask = (1 << boardSizeNumBits) - 1;
+        keyMaker.unsortedMask = (isBoardGoalWildcard ? 0 : ~((1 << (keyMaker.numSorted * boardSizeNumBits)) - 1));
         return keyMaker;
     }
     
@@ -33,6 +33,53 @@ public abstract class KeyMakerLong {
     public abstract long run(final int[] state);
     
     
+    //used by runIncremental: number of sorted elements and their size in bits
+    private int numSorted, s1;
+    private long elementMask, unsortedMask;
+    
+    
+    /**
+     * Creates the <tt>long</tt> key of a state that differs from a state with a known key
+     * in the position of a single robot. The result is the same as <tt>run</tt> of the new state,
+     * but it's computed from the known key, without copying and sorting the whole state:
+     * the goal robot replaces its own element, any other robot is removed from the
+     * sorted elements and inserted again at its new position.
+     *
+     * @param key the key of the known state (created by <tt>run</tt> or <tt>runIncremental</tt>)
+     * @param robo the index of the robot that has moved
+     * @param oldPos the position of this robot in the known state
+     * @param newPos the position of this robot in the new state
+     * @return the key of the new state
+     */
+    public final long runIncremental(final long key, final int robo, final int oldPos, final int newPos) {
+        if (robo >= this.numSorted) {
+            //the goal robot is the last element of the key
+            final int shift = this.numSorted * this.s1;
+            return (key & ~(this.elementMask << shift)) | ((long)newPos << shift);
+        }
+        long result = key & this.unsortedMask;
+        int shift = 0;
+        boolean isInserted = false;
+        for (int i = 0;  i < this.numSorted;  ++i) {
+            final int pos = (int)(key >>> (i * this.s1)) & (int)this.elementMask;
+            if (pos == oldPos) {
+                continue;
+            }
+            if ((false == isInserted) && (newPos < pos)) {
+                result |= (long)newPos << shift;
+                shift += this.s1;
+                isInserted = true;
+            }
+            result |= (long)pos << shift;
+            shift += this.s1;
+        }
+        if (false == isInserted) {
+            result |= (long)newPos << shift;
+        }
+        return result;
+    }
+    
+    
     /**
      * Creates an instance of <tt>KeyMakerLong</tt> that is tailored to the given parameters.
      *
@@ -48,6 +95,10 @@ public abstract class KeyMakerLong {
         case 5:  keyMaker = (isBoardGoalWildcard ? new KeyMakerLongAll(boardNumRobots, boardSizeNumBits, isBoardGoalWildcard) : new KeyMakerLong54(boardSizeNumBits)); break;
         default: keyMaker = new KeyMakerLongAll(boardNumRobots, boardSizeNumBits, isBoardGoalWildcard);
         }
+        keyMaker.numSorted = boardNumRobots - (isBoardGoalWildcard ? 0 : 1);
+        keyMaker.s1 = boardSizeNumBits;
+        keyMaker.elementMask = (1L << boardSizeNumBits) - 1;
+        keyMaker.unsortedMask = (isBoardGoalWildcard ? 0 : ~((1L << (keyMaker.numSorted * boardSizeNumBits)) - 1));
         return keyMaker;
     }
     
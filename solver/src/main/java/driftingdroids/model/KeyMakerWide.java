@@ -0,0 +1,150 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.Arrays;
+
+
+
+
+/**
+ * Creates wide keys (up to 128 bits, stored in two <tt>long</tt> values) from the states of
+ * boards with more robots than <tt>KeyMakerLong</tt> can pack into 64 bits.
+ * <p>
+ * The elements are packed like <tt>KeyMakerLong</tt> does it: the sorted robots first,
+ * starting at the least significant bit, and the goal robot last (unless the goal is a wildcard goal).
+ * The keys are written into a <tt>long[]</tt> supplied by the caller, so no objects are allocated.
+ */
+public final class KeyMakerWide {
+    
+    public static final int MAX_KEY_BITS = 128;
+    
+    private final int[] tmpState;
+    private final int numSorted, s1, elementMask;
+    
+    
+    private KeyMakerWide(int boardNumRobots, int boardSizeNumBits, boolean isBoardGoalWildcard) {
+        this.tmpState = new int[boardNumRobots];
+        this.numSorted = boardNumRobots - (isBoardGoalWildcard ? 0 : 1);
+        this.s1 = boardSizeNumBits;
+        this.elementMask = (1 << boardSizeNumBits) - 1;
+    }
+    
+    
+    /**
+     * Creates an instance of <tt>KeyMakerWide</tt> that is tailored to the given parameters.
+     *
+     * @param boardNumRobots number of robots on the board (length of parameter <tt>state</tt> of method <tt>run</tt>)
+     * @param boardSizeNumBits number of bits required to store the size of the board (the 16x16 board need 8 bits)
+     * @param isBoardGoalWildcard true if the current goal is a wildcard goal (can be reached by any robot)
+     * @return the instance of KeyMakerWide created
+     * @throws IllegalArgumentException if the key of a state would be larger than <tt>MAX_KEY_BITS</tt>
+     */
+    public static KeyMakerWide createInstance(int boardNumRobots, int boardSizeNumBits, boolean isBoardGoalWildcard) {
+        if (boardNumRobots * boardSizeNumBits > MAX_KEY_BITS) {
+            throw new IllegalArgumentException("too many robots for a wide key: numRobots=" + boardNumRobots + " sizeNumBits=" + boardSizeNumBits);
+        }
+        return new KeyMakerWide(boardNumRobots, boardSizeNumBits, isBoardGoalWildcard);
+    }
+    
+    
+    /**
+     * Creates the wide key from the values of the given <tt>state</tt>.
+     *
+     * @param state array of int values (positions of the robots on the board)
+     * @param keys the key is written into this array: the lower 64 bits at <tt>index</tt>,
+     * the upper 64 bits at <tt>index + 1</tt>
+     * @param index the array index of the key
+     */
+    public void run(final int[] state, final long[] keys, final int index) {
+        assert this.tmpState.length == state.length : state.length;
+        //copy and sort state
+        System.arraycopy(state, 0, this.tmpState, 0, state.length);
+        Arrays.sort(this.tmpState, 0, this.numSorted);
+        this.pack(keys, index);
+    }
+    
+    
+    /**
+     * Creates the wide key of a state that differs from a state with a known key
+     * in the position of a single robot. The result is the same as <tt>run</tt> of the new state,
+     * but the sorted elements are taken from the known key, so the state is not sorted again:
+     * the moved robot is only shifted to its new place among them.
+     *
+     * @param keys array that contains the known key and receives the new key
+     * @param parentIndex the array index of the known key (created by <tt>run</tt> or <tt>runIncremental</tt>)
+     * @param index the array index of the new key
+     * @param robo the index of the robot that has moved
+     * @param oldPos the position of this robot in the known state
+     * @param newPos the position of this robot in the new state
+     */
+    public void runIncremental(final long[] keys, final int parentIndex, final int index, final int robo, final int oldPos, final int newPos) {
+        //unpack the known key
+        final long keyLo = keys[parentIndex], keyHi = keys[parentIndex + 1];
+        for (int i = 0, shift = 0;  i < this.tmpState.length;  ++i, shift += this.s1) {
+            final long value;
+            if (0 == shift) {
+                value = keyLo;
+            } else if (shift < 64) {
+                value = (keyLo >>> shift) | (keyHi << (64 - shift));
+            } else {
+                value = keyHi >>> (shift - 64);
+            }
+            this.tmpState[i] = (int)value & this.elementMask;
+        }
+        if (robo >= this.numSorted) {
+            //the goal robot is the last element of the key
+            this.tmpState[this.numSorted] = newPos;
+        } else {
+            //replace the old position and move the new one to its sorted place
+            int i = 0;
+            while (this.tmpState[i] != oldPos) { ++i; }
+            while ((i > 0) && (this.tmpState[i - 1] > newPos)) {
+                this.tmpState[i] = this.tmpState[i - 1];
+                --i;
+            }
+            while ((i < this.numSorted - 1) && (this.tmpState[i + 1] < newPos)) {
+                this.tmpState[i] = this.tmpState[i + 1];
+                ++i;
+            }
+            this.tmpState[i] = newPos;
+        }
+        this.pack(keys, index);
+    }
+    
+    
+    //pack tmpState into two long values
+    private void pack(final long[] keys, final int index) {
+        long keyLo = 0, keyHi = 0;
+        for (int i = 0, shift = 0;  i < this.tmpState.length;  ++i, shift += this.s1) {
+            final long value = this.tmpState[i];
+            if (shift < 64) {
+                keyLo |= value << shift;
+                if (shift + this.s1 > 64) {
+                    keyHi |= value >>> (64 - shift);
+                }
+            } else {
+                keyHi |= value << (shift - 64);
+            }
+        }
+        keys[index] = keyLo;
+        keys[index + 1] = keyHi;
+    }
+
+
+}
@@ -0,0 +1,94 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+
+
+/**
+ * The 4-bit values of <code>KeyDepthMapTrieSpecialNibble</code> and <code>KeyDepthMapDenseRanked</code>:
+ * two values per byte in the byte arrays of these maps.
+ * <p>
+ * The values stored by the IDDFS solver are the remaining heights of the search tree,
+ * which are almost always smaller than 15. The few larger values are marked as "escaped"
+ * in the byte array and are stored in a small <code>KeyDepthMapHashRobinHood</code>,
+ * which is created when the first value is escaped.
+ */
+final class NibbleValues {
+
+    static final int ESCAPE = 15;
+
+    private KeyDepthMapHashRobinHood escapedValues = null;
+
+
+    /**
+     * @param array byte array that contains the 4-bit value
+     * @param index index of the 4-bit value in the array
+     * @return the 4-bit value; 0 if no value has been stored, <code>ESCAPE</code> if the value is escaped
+     */
+    static int get(final byte[] array, final int index) {
+        return (array[index >>> 1] >>> ((index & 1) << 2)) & 0xf;
+    }
+
+
+    /**
+     * Like <code>KeyDepthMap.putIfGreater</code> for a single 4-bit value.
+     *
+     * @param array byte array that contains the 4-bit value
+     * @param index index of the 4-bit value in the array
+     * @param id unique number of this value in the map: the key of the escaped value
+     * @param byteValue unsigned byte value (1...255)
+     * @return true if the specified value was placed in the map
+     */
+    boolean putIfGreater(final byte[] array, final int index, final int id, final int byteValue) {
+        final int bidx = index >>> 1;
+        final int shift = (index & 1) << 2;
+        final int prevByte = array[bidx];
+        final int prevVal = (prevByte >>> shift) & 0xf;
+        if (ESCAPE == prevVal) {
+            return this.escapedValues.putIfGreater(id, byteValue);
+        }
+        if (byteValue > prevVal) {  //putIfGreater
+            final int newVal = Math.min(byteValue, ESCAPE);
+            array[bidx] = (byte)((prevByte & ~(0xf << shift)) | (newVal << shift));
+            if (ESCAPE == newVal) {
+                if (null == this.escapedValues) {
+                    this.escapedValues = new KeyDepthMapHashRobinHood(32);
+                }
+                this.escapedValues.putIfGreater(id, byteValue);
+            }
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Removes the escaped values; the byte arrays are cleared by the maps.
+     */
+    void clear() {
+        this.escapedValues = null;
+    }
+
+
+    /**
+     * @return number of bytes allocated by the escaped values (approximate)
+     */
+    long allocatedBytes() {
+        return ((null == this.escapedValues) ? 0 : this.escapedValues.allocatedBytes());
+    }
+}
@@ -0,0 +1,131 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+/**
+ * Static analysis of the squares where each robot can stop, done by the solvers before the search.
+ * <p>
+ * A robot stops in front of a wall, or in front of another robot. Starting with the current positions,
+ * the squares where each robot can stop are added until nothing changes, assuming that each of the
+ * other robots can be on any of its own squares at the same time (a blocker is available there).
+ * This is more than the robots can really do, so a square that is not found can't be reached at all:
+ * if the goal robot (any robot if the goal is a wildcard) can't stop on the goal, the board has no solution.
+ * <p>
+ * Otherwise the analysis gives an upper bound of the length of the optimal solution: a solution that
+ * visits a state twice isn't optimal, and the number of states is at most the product of the number
+ * of squares of all robots. This bound is small only if the robots are locked up in small areas.
+ */
+public final class Reachability {
+
+    private final boolean[][] squares;  //[robot][position]
+    private final boolean isGoalReachable;
+    private final long maxSolutionLength;
+
+
+    /**
+     * Analyzes the current robot positions and the goal of the specified board.
+     *
+     * @param board the board that is to be solved
+     */
+    public Reachability(final Board board) {
+        final boolean[][] walls = board.getWalls();
+        final int[] robots = board.getRobotPositions();
+        this.squares = new boolean[robots.length][board.size];
+        final int[] numRobotsOnSquare = new int[board.size];    //number of robots that can stop on each square
+        for (int robo = 0;  robo < robots.length;  ++robo) {
+            this.squares[robo][robots[robo]] = true;
+            ++numRobotsOnSquare[robots[robo]];
+        }
+        final int[] queue = new int[board.size];
+        boolean isChanged = true;
+        while (true == isChanged) {
+            isChanged = false;
+            for (final boolean[] own : this.squares) {
+                int queueEnd = 0;
+                for (int pos = 0;  pos < own.length;  ++pos) {
+                    if (true == own[pos]) { queue[queueEnd++] = pos; }
+                }
+                for (int queueStart = 0;  queueStart < queueEnd;  ++queueStart) {
+                    final int pos = queue[queueStart];
+                    for (int dir = 0;  dir < 4;  ++dir) {
+                        final boolean[] wallsDir = walls[dir];
+                        final int dirIncr = board.directionIncrement[dir];
+                        for (int newPos = pos;  false == wallsDir[newPos];  ) {   //NOTE: we rely on the fact that all boards
+                            newPos += dirIncr;                                      //are surrounded by outer walls.
+                            final int nextPos = newPos + dirIncr;
+                            //the robot stops here in front of a wall, or in front of another robot that can stop on the next square
+                            if (((true == wallsDir[newPos]) || (numRobotsOnSquare[nextPos] > (own[nextPos] ? 1 : 0)))
+                                    && (false == own[newPos])) {
+                                own[newPos] = true;
+                                ++numRobotsOnSquare[newPos];
+                                queue[queueEnd++] = newPos;
+                                isChanged = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        boolean isReachable = false;
+        final Board.Goal goal = board.getGoal();
+        if (null != goal) {
+            for (int robo = 0;  robo < robots.length;  ++robo) {
+                if (((goal.robotNumber == robo) || (goal.robotNumber < 0)) && (true == this.squares[robo][goal.position])) {
+                    isReachable = true;
+                }
+            }
+        }
+        this.isGoalReachable = isReachable;
+        long numStates = 1;
+        for (int robo = 0;  robo < robots.length;  ++robo) {
+            final int num = this.getNumSquares(robo);
+            numStates = ((numStates > Long.MAX_VALUE / num) ? Long.MAX_VALUE : numStates * num);
+        }
+        this.maxSolutionLength = numStates - 1;
+    }
+
+
+
+    /**
+     * @return false if the goal can't be reached, so the board has no solution.
+     *         true if it may be reachable (or if no goal is set).
+     */
+    public boolean isGoalReachable() {
+        return this.isGoalReachable;
+    }
+
+    /**
+     * @return an upper bound of the number of moves of the optimal solution, if there is a solution.
+     *         (not valid in the "solution01" special case, where the goal robot may return to its start)
+     */
+    public long getMaxSolutionLength() {
+        return this.maxSolutionLength;
+    }
+
+    /**
+     * @param robot the number of a robot
+     * @return the number of squares where the robot may stop, including its current position
+     */
+    public int getNumSquares(final int robot) {
+        int num = 0;
+        for (final boolean isSquare : this.squares[robot]) {
+            if (true == isSquare) { ++num; }
+        }
+        return num;
+    }
+}
@@ -226,7 +226,9 @@ public class Solution implements Comparable<Solution> {
     private void minimizeColorChanges(List<List<Move>> thisSolution) {
         final long startNano = System.nanoTime();
         if (this.numColors == this.numColorChanges) {
-            System.out.println("minimizeColorChanges: no search, already at global minimum " + this.numColorChanges);
+            if (true == SolverLog.isEnabled()) {
+                SolverLog.log("minimizeColorChanges: no search, already at global minimum " + this.numColorChanges);
+            }
             return; // nothing to be minimized here
         }
         final Set<List<List<Move>>> knownSet = new HashSet<List<List<Move>>>();
@@ -246,12 +248,16 @@ try_swap_loop:
                     for (final Move move2 : nextMoves) {
                         if (move1.pathMap.containsKey(Integer.valueOf(move2.newPosition)) ||
                             move2.pathMap.containsKey(Integer.valueOf(move1.oldPosition))) {
-                            System.out.println("minimizeColorChanges: blocked path  " + move1.toString() + "  " + move2.toString());
+                            if (true == SolverLog.isEnabled()) {
+                                SolverLog.log("minimizeColorChanges: blocked path  " + move1.toString() + "  " + move2.toString());
+                            }
                             continue try_swap_loop; // no swap - blocked path
                         }
                         if ((move1.newPosition == move2.oldPosition - board.directionIncrement[move1.direction]) ||
                             (move2.newPosition == move1.newPosition - board.directionIncrement[move2.direction])) {
-                            System.out.println("minimizeColorChanges: blocker position  " + move1.toString() + "  " + move2.toString());
+                            if (true == SolverLog.isEnabled()) {
+                                SolverLog.log("minimizeColorChanges: blocker position  " + move1.toString() + "  " + move2.toString());
+                            }
                             continue try_swap_loop; // no swap - blocker position
                         }
                     }
@@ -269,14 +275,18 @@ try_swap_loop:
                         thisMoves.addAll(nextMoves);
                         nextSolution.set(j - 1, thisMoves);
                         nextSolution.remove(j--);
-                        System.out.println("minimizeColorChanges: merged " + Board.ROBOT_COLOR_NAMES_LONG[thisMoves.get(0).robotNumber]);
+                        if (true == SolverLog.isEnabled()) {
+                            SolverLog.log("minimizeColorChanges: merged " + Board.ROBOT_COLOR_NAMES_LONG[thisMoves.get(0).robotNumber]);
+                        }
                     } else {
                         thisMoves = nextMoves;
                     }
                 }
                 // if this is a new minimum of color changes then update the solution
                 if (this.numColorChanges > nextSolution.size()) {
-                    System.out.println("minimizeColorChanges: reduced from " + this.numColorChanges + " to " + nextSolution.size());
+                    if (true == SolverLog.isEnabled()) {
+                        SolverLog.log("minimizeColorChanges: reduced from " + this.numColorChanges + " to " + nextSolution.size());
+                    }
                     this.numColorChanges = nextSolution.size();
                     this.movesList.clear();
                     int stepNumber = 0;
@@ -289,7 +299,9 @@ try_swap_loop:
                     knownSet.clear();
                     todoList.clear();
                     if (this.numColors == this.numColorChanges) { // global minimum reached
-                        System.out.println("minimizeColorChanges: global minimum reached " + this.numColorChanges);
+                        if (true == SolverLog.isEnabled()) {
+                            SolverLog.log("minimizeColorChanges: global minimum reached " + this.numColorChanges);
+                        }
                         break search_loop; // end of search
                     }
                 }
@@ -299,7 +311,9 @@ try_swap_loop:
             }
         }
         final long millis = (System.nanoTime() - startNano) / 1000000L;
-        System.out.println("minimizeColorChanges: finished after " + millis + " ms.");
+        if (true == SolverLog.isEnabled()) {
+            SolverLog.log("minimizeColorChanges: finished after " + millis + " ms.");
+        }
     }
 }
 
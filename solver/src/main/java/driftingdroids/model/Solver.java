@@ -0,0 +1,408 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.List;
+
+
+
+public abstract class Solver {
+    
+    public enum SOLUTION_MODE {
+        MINIMUM("minimum", "solver.Minimum.text"), MAXIMUM("maximum", "solver.Maximum.text");
+        private final String name, l10nKey;
+        private SOLUTION_MODE(String name, String l10nKey) { this.name = name;  this.l10nKey = l10nKey; }
+        public String getName() { return this.name; }
+    }
+    
+    
+    protected Board board;
+    protected boolean[][] boardWalls;
+    protected int boardSizeBitMask;
+    protected boolean isBoardStateInt32;
+    protected boolean isBoardStateInt64;
+    protected boolean isBoardGoalWildcard;
+    
+    protected SOLUTION_MODE optSolutionMode = SOLUTION_MODE.MINIMUM;
+    protected boolean optAllowRebounds = true;
+    protected boolean optCollectStats = false;
+    protected int optAllSolutionsMax = 0;
+    protected long optAllSolutionsMilliSeconds = 0;
+    
+    protected List<Solution> lastResultSolutions = null;
+    protected long solutionMilliSeconds = 0;
+    protected int solutionStoredStates = 0;
+    protected int solutionMemoryMegabytes = 0;
+    protected SolverStats stats = null;
+    protected boolean lastResultBudgetExceeded = false;
+    protected int lastResultSearchedDepth = 0;
+    protected boolean lastResultUnsolvable = false;
+    
+    protected long budgetDeadline = 0;      //System.nanoTime() when the time budget runs out; 0 if there is none
+    protected long budgetMemoryBytes = 0;   //0 if there is no memory budget
+    
+    private SolverListener listener = null;
+    
+    
+    
+    public static Solver createInstance(final Board board) {
+        return createInstance(board, 1);
+    }
+
+    /**
+     * Creates a solver for the specified board.
+     * The breadth-first <code>SolverBFS</code> is chosen if its estimated worst-case memory use
+     * fits into the memory that is currently available to the VM, otherwise <code>SolverIDDFS</code>
+     * searches each depth iteration with the specified number of threads.
+     * All engines find solutions with the same (optimal) number of moves.
+     * <p>
+     * <code>SolverBFS</code> searches in a single thread: it uses the specified number of threads
+     * only if it delegates to <code>SolverIDDFS</code> (for options that it doesn't support).
+     * Use <code>createIDDFSInstance</code> to search with the threads in any case.
+     *
+     * @param board the board that is to be solved
+     * @param numThreads number of threads used by <code>SolverIDDFS</code>; 1 (or less) selects the sequential search
+     * @return the solver
+     */
+    public static Solver createInstance(final Board board, final int numThreads) {
+        if (SolverBFS.getEstimatedMemoryBytes(board) <= getAvailableMemoryBytes()) {
+            return new SolverBFS(board, numThreads);
+        }
+        return createIDDFSInstance(board, numThreads);
+    }
+
+    /**
+     * Creates a <code>SolverIDDFS</code> for the specified board, which needs much less memory
+     * than <code>SolverBFS</code> and searches each depth iteration with the specified number of threads.
+     * The search with a wildcard goal or without rebounds is always sequential,
+     * because its solutions would depend on the timing of the threads.
+     *
+     * @param board the board that is to be solved
+     * @param numThreads number of threads; 1 (or less) selects the sequential search
+     * @return the solver
+     */
+    public static Solver createIDDFSInstance(final Board board, final int numThreads) {
+        return new SolverIDDFS(board, numThreads);
+    }
+
+    /**
+     * Creates a solver that finds a solution for the specified board quickly, usually within milliseconds,
+     * but not necessarily one with the optimal number of moves (see <code>SolverGreedy</code>).
+     * It can be run first, so that there is a hint while the solver from <code>createInstance</code>
+     * is still searching the optimal solution.
+     *
+     * @param board the board that is to be solved
+     * @return the solver
+     */
+    public static Solver createGreedyInstance(final Board board) {
+        return new SolverGreedy(board);
+    }
+
+    private static long getAvailableMemoryBytes() {
+        final Runtime rt = Runtime.getRuntime();
+        return rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+    }
+    
+    
+    
+    /**
+     * Searches the solutions for the current robot positions of the board.
+     * It may be called again after the robots have been moved with <code>Board.setRobots()</code>:
+     * the tables that depend only on the walls and the goal are computed once and then reused.
+     *
+     * @return the solutions, sorted according to the solution mode
+     * @throws InterruptedException if the thread has been interrupted
+     */
+    public abstract List<Solution> execute() throws InterruptedException;
+    
+    
+    
+    /**
+     * Searches like <code>execute()</code>, but within a budget of time and memory.
+     * If the budget runs out before the search is finished, it stops and returns what is known so far,
+     * instead of being interrupted: <code>isBudgetExceeded()</code> returns true, and
+     * <code>getSearchedDepth()</code> returns the proven lower bound (no solution has fewer moves).
+     * The resources that have been used are reported by <code>getSolutionMilliSeconds()</code>
+     * and <code>getSolutionMemoryMegabytes()</code> as usual.
+     * <p>
+     * The result normally contains only an empty solution then; solutions that have been found
+     * at the last depth before the budget ran out are returned, too (they are optimal, but not
+     * necessarily all of them, or the best ranked one).
+     *
+     * @param maxMilliSeconds the time budget, starting now; 0 for no limit
+     * @param maxMemoryBytes the memory budget for the states that the search stores; 0 for no limit
+     * @return the solutions, sorted according to the solution mode
+     * @throws InterruptedException if the thread has been interrupted
+     */
+    public final List<Solution> execute(final long maxMilliSeconds, final long maxMemoryBytes) throws InterruptedException {
+        this.budgetDeadline = ((maxMilliSeconds > 0) ? System.nanoTime() + maxMilliSeconds * 1000000L : 0);
+        this.budgetMemoryBytes = Math.max(0, maxMemoryBytes);
+        try {
+            return this.execute();
+        } finally {
+            this.budgetDeadline = 0;
+            this.budgetMemoryBytes = 0;
+        }
+    }
+    
+    //true if execute() has been called with a budget
+    protected final boolean hasBudget() {
+        return (0 != this.budgetDeadline) || (0 != this.budgetMemoryBytes);
+    }
+    
+    //true if the time budget has run out or if more than the memory budget has been allocated
+    protected final boolean isBudgetExceeded(final long bytesAllocated) {
+        return ((0 != this.budgetDeadline) && (System.nanoTime() - this.budgetDeadline > 0))
+                || ((0 != this.budgetMemoryBytes) && (bytesAllocated > this.budgetMemoryBytes));
+    }
+    
+    
+    
+    protected Solver(final Board board) {
+        this.setBoard(board);
+    }
+    
+    //the fields that depend on the board
+    private void setBoard(final Board board) {
+        this.board = board;
+        this.boardWalls = this.board.getWalls();
+        int bitMask = 0;
+        for (int i = 0;  i < this.board.sizeNumBits;  ++i) { bitMask += bitMask + 1; }
+        this.boardSizeBitMask = bitMask;
+        this.isBoardStateInt32 = (this.board.sizeNumBits * this.board.getNumRobots() <= 32);
+        this.isBoardStateInt64 = (this.board.sizeNumBits * this.board.getNumRobots() <= 64);
+        this.isBoardGoalWildcard = ((null != this.board.getGoal()) && (this.board.getGoal().robotNumber < 0));
+    }
+
+    /**
+     * Prepares this solver for another board, so that it can be used like a new instance from
+     * <code>createInstance</code>, without allocating its large internal data structures again.
+     * The options are set to their defaults and the listener is removed.
+     * It must not be called while <code>execute()</code> is running.
+     * This implementation returns false: subclasses that can be reused override it.
+     *
+     * @param board the board that is to be solved next
+     * @return true if this solver has been prepared for the board; false if a new solver must be created
+     */
+    public boolean reset(final Board board) {
+        return false;
+    }
+    
+    /**
+     * Releases the resources that this solver keeps after <code>execute()</code> and that are not
+     * freed by the garbage collector in time, like the spill file of <code>KeyDepthMapTrieOffHeap</code>.
+     * The solver can still be used; its next search may have to allocate its map of known states again.
+     * It must not be called while <code>execute()</code> is running.
+     * This implementation does nothing.
+     */
+    public void releaseResources() {
+    }
+    
+    //used by the reset() implementations of subclasses
+    protected final void resetBoard(final Board board) {
+        this.setBoard(board);
+        this.optSolutionMode = SOLUTION_MODE.MINIMUM;
+        this.optAllowRebounds = true;
+        this.optCollectStats = false;
+        this.optAllSolutionsMax = 0;
+        this.optAllSolutionsMilliSeconds = 0;
+        this.lastResultSolutions = null;
+        this.solutionMilliSeconds = 0;
+        this.solutionStoredStates = 0;
+        this.solutionMemoryMegabytes = 0;
+        this.stats = null;
+        this.lastResultBudgetExceeded = false;
+        this.lastResultSearchedDepth = 0;
+        this.lastResultUnsolvable = false;
+        this.listener = null;
+    }
+    
+    protected final String stateString(final int[] state) {
+        final Formatter formatter = new Formatter();
+        this.swapGoalLast(state);
+        for (int i = 0;  i < state.length;  i++) {
+            formatter.format("%02x", Integer.valueOf(state[i]));
+        }
+        this.swapGoalLast(state);
+        return "0x" + formatter.out().toString();
+    }
+    
+    protected final void swapGoalLast(final int[] state) {
+        //swap goal robot and last robot (if goal is not wildcard)
+        if (false == this.isBoardGoalWildcard) {
+            final int tmp = state[state.length - 1];
+            state[state.length - 1] = state[this.board.getGoal().robotNumber];
+            state[this.board.getGoal().robotNumber] = tmp;
+        }
+    }
+    
+    protected final void fireDepthFinished(final int depthLimit, final int storedStates, final int megaBytes, final long milliSeconds) {
+        if (null != this.listener) {
+            this.listener.onDepthFinished(depthLimit, storedStates, megaBytes, milliSeconds);
+        }
+    }
+    
+    protected final void fireSolutionFound(final Solution solution) {
+        if (null != this.listener) {
+            this.listener.onSolutionFound(solution);
+        }
+    }
+    
+    protected final void sortSolutions() {
+        if (0 == this.lastResultSolutions.size()) {
+            this.lastResultSolutions.add(new Solution(this.board));
+        }
+        if (SOLUTION_MODE.MINIMUM == this.optSolutionMode) {
+            Collections.sort(this.lastResultSolutions);
+        } else if (SOLUTION_MODE.MAXIMUM == this.optSolutionMode) {
+            Collections.sort(this.lastResultSolutions, Collections.reverseOrder());
+        }
+    }
+    
+    
+    
+    public final List<Solution> get() {
+        return this.lastResultSolutions;
+    }
+    
+    public final void setOptionSolutionMode(SOLUTION_MODE mode) {
+        this.optSolutionMode = mode;
+    }
+    
+    public final SOLUTION_MODE getOptionSolutionMode() {
+        return this.optSolutionMode;
+    }
+    
+    public final void setOptionAllowRebounds(boolean allowRebounds) {
+        this.optAllowRebounds = allowRebounds;
+    }
+    
+    public final boolean getOptionAllowRebounds() {
+        return this.optAllowRebounds;
+    }
+    
+    /**
+     * Switches the collection of <code>SolverStats</code> on or off.
+     * The counters are summed up once per depth, so the overhead is small, but it's off by default.
+     *
+     * @param collectStats true if the next runs of <code>execute()</code> should collect statistics
+     */
+    public final void setOptionCollectStats(boolean collectStats) {
+        this.optCollectStats = collectStats;
+    }
+    
+    public final boolean getOptionCollectStats() {
+        return this.optCollectStats;
+    }
+    
+    /**
+     * Switches the enumeration of all optimal solutions on or off.
+     * Normally the search stops at the first depth that has a solution, and some of the other
+     * solutions of this depth are not found, because their states have already been visited on
+     * another path. With this option, such states are searched again if they lead to a solution,
+     * so the result contains all distinct optimal solutions, ranked by <code>Solution.compareTo</code>
+     * and the solution mode, up to the specified limits.
+     *
+     * @param maxSolutions the maximum number of solutions; 0 switches the enumeration off
+     * @param maxMilliSeconds the time spent on the enumeration after the first solution has been found; 0 for no limit
+     */
+    public final void setOptionAllSolutions(int maxSolutions, long maxMilliSeconds) {
+        this.optAllSolutionsMax = Math.max(0, maxSolutions);
+        this.optAllSolutionsMilliSeconds = Math.max(0, maxMilliSeconds);
+    }
+    
+    public final int getOptionAllSolutionsMax() {
+        return this.optAllSolutionsMax;
+    }
+    
+    public final long getOptionAllSolutionsMilliSeconds() {
+        return this.optAllSolutionsMilliSeconds;
+    }
+    
+    /**
+     * @return the statistics of the last run of <code>execute()</code>, or null if they were not collected
+     */
+    public final SolverStats getStats() {
+        return this.stats;
+    }
+    
+    /**
+     * Sets the listener that receives the progress of <code>execute()</code>.
+     * It is called by the thread that executes the solver.
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public final void setListener(SolverListener listener) {
+        this.listener = listener;
+    }
+    
+    public final SolverListener getListener() {
+        return this.listener;
+    }
+    
+    public final String getOptionsAsString() {
+        return this.optSolutionMode.getName() + " number of robots moved; "
+                + (this.optAllowRebounds ? "with" : "no") + " rebound moves"
+                + (this.optAllSolutionsMax > 0 ? "; all solutions (max " + this.optAllSolutionsMax + ")" : "");
+    }
+    
+    /**
+     * @return true if the last run of <code>execute(long, long)</code> has been stopped because its budget ran out
+     */
+    public final boolean isBudgetExceeded() {
+        return this.lastResultBudgetExceeded;
+    }
+    
+    /**
+     * @return the largest number of moves that the last run of <code>execute()</code> has searched completely:
+     *         there is no solution with this number of moves or less. 0 if no depth has been searched completely.
+     */
+    public final int getSearchedDepth() {
+        return this.lastResultSearchedDepth;
+    }
+    
+    /**
+     * @return true if the last run of <code>execute()</code> has proven that the board has no solution:
+     *         the goal can't be reached (see <code>Reachability</code>), or all states have been searched.
+     */
+    public final boolean isUnsolvable() {
+        return this.lastResultUnsolvable;
+    }
+    
+    public final long getSolutionMilliSeconds() {
+        return this.solutionMilliSeconds;
+    }
+    
+    public final int getSolutionStoredStates() {
+        return this.solutionStoredStates;
+    }
+    
+    public final int getSolutionMemoryMegabytes() {
+        return this.solutionMemoryMegabytes;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append("storedStates=").append(this.solutionStoredStates);
+        s.append(", time=").append(this.solutionMilliSeconds / 1000d).append(" seconds");
+        return s.toString();
+    }
+}
@@ -0,0 +1,451 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+
+/**
+ * Breadth-first solver: each state is expanded exactly once, level by level.
+ * <p>
+ * The states of each level are stored as packed keys (made by <code>KeyMakerInt</code>
+ * or <code>KeyMakerLong</code>) in growable primitive arrays, together with the keys
+ * of their predecessor states. A <code>KeyDepthMap</code> detects the states that
+ * have been visited before. When the goal is reached, the moves are rebuilt
+ * from the chain of predecessor keys.
+ * <p>
+ * All levels are kept in memory until the search is finished, so this solver needs
+ * much more memory than <code>SolverIDDFS</code>. It supports only the common case
+ * (no wildcard goal, no "solution01" special case, rebound moves allowed);
+ * in all other cases it delegates to <code>SolverIDDFS</code>.
+ * <p>
+ * The breadth-first search itself runs in the calling thread only. The number of threads
+ * is used by the <code>SolverIDDFS</code> that it delegates to.
+ */
+public class SolverBFS extends Solver {
+
+    private static final int MAX_DEPTH = 126;
+    private static final int OBSTACLE_ROBOT = (1 << 4);
+    private static final int VISITED = 1;
+    private static final int MAP_BYTES_PER_STATE = 4;   //rough estimate for a KeyDepthMap that is nearly full
+
+    private final int[] obstacles;
+    private final int goalPosition;
+    private final int goalRobot;
+    private final int[] directionIncrement;
+    private final List<Level> levels = new ArrayList<Level>();
+    private KeyDepthMap visitedStates;
+    private KeyMakerInt keyMakerInt;
+    private KeyMakerLong keyMakerLong;
+    private final int numThreads;   //of the SolverIDDFS that this solver delegates to
+
+
+    protected SolverBFS(final Board board) {
+        this(board, 1);
+    }
+
+    protected SolverBFS(final Board board, final int numThreads) {
+        super(board);
+        this.numThreads = numThreads;
+        this.obstacles = new int[board.size];
+        for (int pos = 0;  pos < this.obstacles.length;  ++pos) {
+            int obstacle = 0;
+            for (int dir = 0;  dir < 4;  ++dir) {
+                if (true == this.boardWalls[dir][pos]) { obstacle |= (1 << dir); }
+            }
+            this.obstacles[pos] = obstacle;
+        }
+        this.goalPosition = (null == this.board.getGoal() ? 0 : this.board.getGoal().position);
+        this.goalRobot = this.board.getNumRobots() - 1;     //swapGoalLast
+        this.directionIncrement = this.board.directionIncrement;
+    }
+
+
+
+    /**
+     * Estimates the memory that a breadth-first search of the specified board needs in the worst case,
+     * that is when all possible states of the robots must be visited.
+     *
+     * @param board the board that is to be solved
+     * @return number of bytes (approximate), or <code>Long.MAX_VALUE</code> if this solver doesn't support the board
+     */
+    public static long getEstimatedMemoryBytes(final Board board) {
+        if ((null == board.getGoal()) || (board.getGoal().robotNumber < 0) || (true == board.isSolution01())) {
+            return Long.MAX_VALUE;
+        }
+        if (board.sizeNumBits * board.getNumRobots() > 64) {
+            return Long.MAX_VALUE;  //wide keys are supported by SolverIDDFS only
+        }
+        int freeCells = 0;
+        for (int pos = 0;  pos < board.size;  ++pos) {
+            if (false == board.isObstacle(pos)) { ++freeCells; }
+        }
+        //the goal robot on any cell, the other (interchangeable) robots on any combination of the remaining cells
+        double numStates = freeCells;
+        for (int i = 1;  i < board.getNumRobots();  ++i) {
+            numStates = numStates * (freeCells - i) / i;
+        }
+        final int keyBytes = ((board.sizeNumBits * board.getNumRobots() <= 32) ? 4 : 8);
+        return (long)Math.min(Long.MAX_VALUE, numStates * (2 * keyBytes + MAP_BYTES_PER_STATE));
+    }
+
+
+
+    private boolean isSupported() {
+        return (null != this.board.getGoal()) && (false == this.isBoardGoalWildcard)
+                && (false == this.board.isSolution01()) && (true == this.optAllowRebounds)
+                && (0 == this.optAllSolutionsMax);
+    }
+
+
+
+    @Override
+    public List<Solution> execute() throws InterruptedException {
+        if (false == this.isSupported()) {
+            //options may have been changed after the engine was chosen
+            final Solver fallback = new SolverIDDFS(this.board, this.numThreads);
+            fallback.setOptionSolutionMode(this.optSolutionMode);
+            fallback.setOptionAllowRebounds(this.optAllowRebounds);
+            fallback.setOptionCollectStats(this.optCollectStats);
+            fallback.setOptionAllSolutions(this.optAllSolutionsMax, this.optAllSolutionsMilliSeconds);
+            fallback.setListener(this.getListener());
+            fallback.budgetDeadline = this.budgetDeadline;
+            fallback.budgetMemoryBytes = this.budgetMemoryBytes;
+            try {
+                this.lastResultSolutions = fallback.execute();
+            } finally {
+                fallback.releaseResources();
+            }
+            this.lastResultBudgetExceeded = fallback.isBudgetExceeded();
+            this.lastResultSearchedDepth = fallback.getSearchedDepth();
+            this.lastResultUnsolvable = fallback.isUnsolvable();
+            this.stats = fallback.getStats();
+            this.solutionMilliSeconds = fallback.getSolutionMilliSeconds();
+            this.solutionStoredStates = fallback.getSolutionStoredStates();
+            this.solutionMemoryMegabytes = fallback.getSolutionMemoryMegabytes();
+            return this.lastResultSolutions;
+        }
+        final long startExecute = System.nanoTime();
+        this.lastResultSolutions = new ArrayList<Solution>();
+        this.lastResultBudgetExceeded = false;
+        this.lastResultSearchedDepth = 0;
+        this.lastResultUnsolvable = false;
+
+        this.stats = ((true == this.optCollectStats) ? new SolverStats() : null);
+
+        final int[] startState = this.board.getRobotPositions().clone();
+        swapGoalLast(startState);   //goal robot is always the last one.
+        if (true == SolverLog.isEnabled()) {
+            SolverLog.log("***** " + this.getClass().getSimpleName() + " *****");
+            SolverLog.log("options: " + this.getOptionsAsString());
+            SolverLog.log("startState=" + this.stateString(startState));
+        }
+
+        if (false == new Reachability(this.board).isGoalReachable()) {
+            SolverLog.log("no robot can stop on the goal - no solution!");
+            this.lastResultUnsolvable = true;
+        } else {
+            this.bfs(startState);
+
+            long bytes = this.visitedStates.allocatedBytes() + this.visitedStates.allocatedOffHeapBytes();
+            int numStates = 0;
+            for (final Level level : this.levels) {
+                bytes += level.allocatedBytes();
+                numStates += level.keys.size();
+            }
+            this.solutionStoredStates = numStates;
+            this.solutionMemoryMegabytes = (int)((bytes + (1 << 20) - 1) >> 20);
+            this.levels.clear();        //allow garbage collection
+            KeyDepthMapFactory.release(this.visitedStates);
+            this.visitedStates = null;
+        }
+        this.sortSolutions();
+        if (null != this.stats) {
+            this.stats.setSolutionsFound(this.lastResultSolutions.get(0).size() > 0 ? this.lastResultSolutions.size() : 0);
+        }
+
+        this.solutionMilliSeconds = (System.nanoTime() - startExecute) / 1000000L;
+        return this.lastResultSolutions;
+    }
+
+
+
+    private void bfs(final int[] startState) throws InterruptedException {
+        final long nanoStart = System.nanoTime();
+        this.visitedStates = KeyDepthMapFactory.newInstance(this.board);
+        if (true == this.isBoardStateInt32) {
+            this.keyMakerInt = KeyMakerInt.createInstance(this.board.getNumRobots(), this.board.sizeNumBits, false);
+        } else {
+            this.keyMakerLong = KeyMakerLong.createInstance(this.board.getNumRobots(), this.board.sizeNumBits, false);
+        }
+        this.levels.clear();
+        Level level = new Level(this.isBoardStateInt32);
+        final long startKey = this.makeKey(startState);
+        this.addVisited(startKey);
+        level.add(startKey, startKey);
+        this.levels.add(level);
+        final int[] state = new int[startState.length];
+        int numStates = 1;
+        long numNodes = 0, numLookups = 0;   //statistics
+        for (int depth = 1;  (MAX_DEPTH > depth) && (level.keys.size() > 0);  ++depth) {
+            final long nanoLevel = System.nanoTime();
+            final Level nextLevel = new Level(this.isBoardStateInt32);
+            final KeyArray goalIndexes = new KeyArray(true);
+            numNodes += level.keys.size();
+            for (int i = 0;  i < level.keys.size();  ++i) {
+                if ((0 == (i & 0xfff)) && Thread.interrupted()) { throw new InterruptedException(); }
+                if ((0 == (i & 0xfff)) && (true == this.hasBudget()) && (true == this.isBudgetExceeded(this.getBytesAllocated(nextLevel)))) {
+                    this.lastResultBudgetExceeded = true;
+                    return; //the result is the searched depth
+                }
+                final long oldKey = level.keys.get(i);
+                this.unpackKey(oldKey, state);
+                for (final int pos : state) { this.obstacles[pos] |= OBSTACLE_ROBOT; }  //set robot positions
+                //move all robots
+                for (int robo = 0;  robo < state.length;  ++robo) {
+                    final int oldRoboPos = state[robo];
+                    for (int dir = 0;  dir < 4;  ++dir) {
+                        final int newRoboPos = this.moveRobot(oldRoboPos, dir);
+                        if (oldRoboPos != newRoboPos) {
+                            state[robo] = newRoboPos;
+                            final long newKey = this.makeKey(state);
+                            ++numLookups;
+                            if (true == this.addVisited(newKey)) {
+                                nextLevel.add(newKey, oldKey);
+                                if ((this.goalRobot == robo) && (this.goalPosition == newRoboPos)) {
+                                    goalIndexes.add(nextLevel.keys.size() - 1);
+                                }
+                            }
+                            state[robo] = oldRoboPos;
+                        }
+                    }
+                }
+                for (final int pos : state) { this.obstacles[pos] ^= OBSTACLE_ROBOT; }  //unset robot positions
+            }
+            this.levels.add(nextLevel);
+            numStates += nextLevel.keys.size();
+            final long nanoEnd = System.nanoTime();
+            long bytes = this.visitedStates.allocatedBytes() + this.visitedStates.allocatedOffHeapBytes();
+            for (final Level l : this.levels) { bytes += l.allocatedBytes(); }
+            if (null != this.stats) {
+                this.stats.finishDepth(depth, numNodes, nanoEnd - nanoLevel, 0, 0,
+                        numLookups - (numStates - 1), numStates - 1,
+                        this.visitedStates.allocatedBytes(), this.visitedStates.allocatedOffHeapBytes());
+            }
+            if (true == SolverLog.isEnabled()) {
+                SolverLog.log("bfs:  finished depth=" + depth +
+                        " states=" + nextLevel.keys.size() +
+                        " megaBytes=" + ((this.visitedStates.allocatedBytes() + nextLevel.allocatedBytes()) >> 20) +
+                        " time=" + (nanoEnd - nanoLevel) / 1000000L + "ms" +
+                        " totalTime=" + (nanoEnd - nanoStart) / 1000000L + "ms");
+            }
+            final int megaBytes = (int)((bytes + (1 << 20) - 1) >> 20);
+            if (goalIndexes.size() > 0) {
+                this.buildSolutions(startState, depth, goalIndexes);
+                for (final Solution solution : this.lastResultSolutions) {
+                    this.fireSolutionFound(solution);
+                }
+                break;  //found solution(s)
+            }
+            this.lastResultSearchedDepth = depth;
+            this.fireDepthFinished(depth, numStates, megaBytes, (nanoEnd - nanoStart) / 1000000L);
+            level = nextLevel;
+        }
+        if ((true == this.lastResultSolutions.isEmpty()) && (0 == level.keys.size())) {
+            this.lastResultUnsolvable = true;   //all states have been searched
+        }
+    }
+
+
+
+    //the memory of the visited states and of all levels, including the one that is being built
+    private long getBytesAllocated(final Level nextLevel) {
+        long bytes = this.visitedStates.allocatedBytes() + this.visitedStates.allocatedOffHeapBytes() + nextLevel.allocatedBytes();
+        for (final Level l : this.levels) { bytes += l.allocatedBytes(); }
+        return bytes;
+    }
+
+
+
+    //move the robot until it reaches a wall or another robot.
+    private int moveRobot(final int oldRoboPos, final int dir) {
+        final int dirIncr = this.directionIncrement[dir];
+        final int wallMask = (1 << dir);
+        int newRoboPos = oldRoboPos;
+        int obstacle = this.obstacles[oldRoboPos];
+        while (0 == (obstacle & wallMask)) {
+            newRoboPos += dirIncr;                      //NOTE: we rely on the fact that all boards are surrounded
+            obstacle = this.obstacles[newRoboPos];      //by outer walls.
+            if (0 != (obstacle & OBSTACLE_ROBOT)) {
+                newRoboPos -= dirIncr;
+                break;
+            }
+        }
+        return newRoboPos;
+    }
+
+
+
+    private long makeKey(final int[] state) {
+        if (true == this.isBoardStateInt32) {
+            return this.keyMakerInt.run(state) & 0xffffffffL;
+        } else {
+            return this.keyMakerLong.run(state);
+        }
+    }
+
+    private boolean addVisited(final long key) {
+        if (true == this.isBoardStateInt32) {
+            return this.visitedStates.putIfGreater((int)key, VISITED);
+        } else {
+            return this.visitedStates.putIfGreater(key, VISITED);
+        }
+    }
+
+    //the keys contain the sorted non-goal robots, followed by the goal robot
+    private void unpackKey(long key, final int[] state) {
+        for (int i = 0;  i < state.length;  ++i) {
+            state[i] = (int)key & this.boardSizeBitMask;
+            key >>>= this.board.sizeNumBits;
+        }
+    }
+
+
+
+    private void buildSolutions(final int[] startState, final int depth, final KeyArray goalIndexes) {
+        //walk back through the levels and find the index of each state's predecessor
+        final int numPaths = goalIndexes.size();
+        final int[][] paths = new int[depth + 1][numPaths];
+        for (int p = 0;  p < numPaths;  ++p) {
+            paths[depth][p] = (int)goalIndexes.get(p);
+        }
+        for (int d = depth;  d > 0;  --d) {
+            final Level level = this.levels.get(d);
+            final long[] predKeys = new long[numPaths];
+            for (int p = 0;  p < numPaths;  ++p) {
+                predKeys[p] = level.predecessorKeys.get(paths[d][p]);
+            }
+            final long[] sortedPredKeys = predKeys.clone();
+            Arrays.sort(sortedPredKeys);
+            final int[] sortedPredIndexes = new int[numPaths];
+            final KeyArray prevKeys = this.levels.get(d - 1).keys;
+            for (int i = 0;  i < prevKeys.size();  ++i) {
+                final int found = Arrays.binarySearch(sortedPredKeys, prevKeys.get(i));
+                if (found >= 0) {
+                    sortedPredIndexes[found] = i;
+                }
+            }
+            for (int p = 0;  p < numPaths;  ++p) {
+                paths[d - 1][p] = sortedPredIndexes[Arrays.binarySearch(sortedPredKeys, predKeys[p])];
+            }
+        }
+        //replay each path from the start state, so that the moves are done by the correct robots
+        for (int p = 0;  p < numPaths;  ++p) {
+            final Solution tmpSolution = new Solution(this.board);
+            int[] state0 = startState.clone();
+            for (int d = 1;  d <= depth;  ++d) {
+                final int[] state1 = this.findNextState(state0, this.levels.get(d).keys.get(paths[d][p]));
+                final int[] move0 = state0.clone(), move1 = state1.clone();
+                swapGoalLast(move0);
+                swapGoalLast(move1);
+                tmpSolution.add(new Move(this.board, move0, move1, d - 1));
+                state0 = state1;
+            }
+            this.lastResultSolutions.add(tmpSolution.finish());
+            if (true == SolverLog.isEnabled()) {
+                SolverLog.log(tmpSolution.toMovelistString() + " " + tmpSolution.toString() + " finalState=" + this.stateString(state0));
+            }
+        }
+    }
+
+    private int[] findNextState(final int[] oldState, final long nextKey) {
+        final int[] newState = oldState.clone();
+        for (final int pos : oldState) { this.obstacles[pos] |= OBSTACLE_ROBOT; }  //set robot positions
+        try {
+            for (int robo = 0;  robo < oldState.length;  ++robo) {
+                for (int dir = 0;  dir < 4;  ++dir) {
+                    newState[robo] = this.moveRobot(oldState[robo], dir);
+                    if (nextKey == this.makeKey(newState)) {
+                        return newState;
+                    }
+                }
+                newState[robo] = oldState[robo];
+            }
+        } finally {
+            for (final int pos : oldState) { this.obstacles[pos] ^= OBSTACLE_ROBOT; }  //unset robot positions
+        }
+        throw new IllegalStateException("no move found from state " + this.stateString(oldState));
+    }
+
+
+
+    //one level of the search: the keys of its states and the keys of their predecessor states
+    private static final class Level {
+        private final KeyArray keys, predecessorKeys;
+        private Level(final boolean isInt) {
+            this.keys = new KeyArray(isInt);
+            this.predecessorKeys = new KeyArray(isInt);
+        }
+        private void add(final long key, final long predecessorKey) {
+            this.keys.add(key);
+            this.predecessorKeys.add(predecessorKey);
+        }
+        private long allocatedBytes() {
+            return this.keys.allocatedBytes() + this.predecessorKeys.allocatedBytes();
+        }
+    }
+
+    //growable array of packed keys: int[] if the keys fit into 32 bits, long[] otherwise
+    private static final class KeyArray {
+        private int[] ints;
+        private long[] longs;
+        private int size = 0;
+        private KeyArray(final boolean isInt) {
+            if (true == isInt) {
+                this.ints = new int[16];
+            } else {
+                this.longs = new long[16];
+            }
+        }
+        private void add(final long key) {
+            if (null != this.ints) {
+                if (this.size == this.ints.length) {
+                    this.ints = Arrays.copyOf(this.ints, this.size + (this.size >> 1));
+                }
+                this.ints[this.size++] = (int)key;
+            } else {
+                if (this.size == this.longs.length) {
+                    this.longs = Arrays.copyOf(this.longs, this.size + (this.size >> 1));
+                }
+                this.longs[this.size++] = key;
+            }
+        }
+        private long get(final int index) {
+            return ((null != this.ints) ? (this.ints[index] & 0xffffffffL) : this.longs[index]);
+        }
+        private int size() {
+            return this.size;
+        }
+        private long allocatedBytes() {
+            return ((null != this.ints) ? this.ints.length * 4L : this.longs.length * 8L);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+
+/**
+ * Weighted best-first solver (weighted A*): finds a solution within milliseconds in most cases,
+ * but not necessarily one with the optimal number of moves.
+ * <p>
+ * The states are expanded in the order of <code>depth + WEIGHT * minimumMovesToGoal</code>, where
+ * <code>minimumMovesToGoal</code> is the number of moves that the goal robot needs at least, as if
+ * it could be stopped on any square (the same estimate that <code>SolverIDDFS</code> uses for pruning).
+ * The estimate never decreases by more than 1 per move, so the solution has at most
+ * <code>WEIGHT</code> times the optimal number of moves; usually it has only a few more.
+ * <p>
+ * This solver returns only one solution, and <code>getSearchedDepth()</code> is always 0.
+ * It supports the common case (no "solution01" special case, rebound moves allowed, keys of at most 64 bits);
+ * in all other cases it delegates to <code>SolverIDDFS</code>. It should be run with a budget
+ * (see <code>execute(long, long)</code>), because it has to visit all reachable states
+ * if the board has no solution.
+ */
+public class SolverGreedy extends Solver {
+
+    private static final int MAX_DEPTH = 126;
+    private static final int WEIGHT = 3;
+    private static final int OBSTACLE_ROBOT = (1 << 4);
+
+    private final int[] obstacles;
+    private final int goalPosition;
+    private final int goalRobot;
+    private final int[] directionIncrement;
+    private final int[] minimumMovesToGoal;
+    private int maxMinimumMovesToGoal;
+    private KeyDepthMap visitedStates;
+    private KeyMakerInt keyMakerInt;
+    private KeyMakerLong keyMakerLong;
+
+    //the states that have been reached: numRobots positions, the index of the predecessor and the depth of each node
+    private int[] nodeStates;
+    private int[] nodePredecessors;
+    private int[] nodeDepths;
+    private int numNodes;
+
+
+    protected SolverGreedy(final Board board) {
+        super(board);
+        this.obstacles = new int[board.size];
+        for (int pos = 0;  pos < this.obstacles.length;  ++pos) {
+            int obstacle = 0;
+            for (int dir = 0;  dir < 4;  ++dir) {
+                if (true == this.boardWalls[dir][pos]) { obstacle |= (1 << dir); }
+            }
+            this.obstacles[pos] = obstacle;
+        }
+        this.goalPosition = (null == this.board.getGoal() ? 0 : this.board.getGoal().position);
+        this.goalRobot = (this.isBoardGoalWildcard ? -1 : this.board.getNumRobots() - 1);     //swapGoalLast
+        this.directionIncrement = this.board.directionIncrement;
+        this.minimumMovesToGoal = new int[board.size];
+    }
+
+
+
+    private boolean isSupported() {
+        return (null != this.board.getGoal()) && (false == this.board.isSolution01())
+                && (true == this.optAllowRebounds) && (true == this.isBoardStateInt64);
+    }
+
+
+
+    @Override
+    public List<Solution> execute() throws InterruptedException {
+        if (false == this.isSupported()) {
+            final Solver fallback = new SolverIDDFS(this.board);
+            fallback.setOptionSolutionMode(this.optSolutionMode);
+            fallback.setOptionAllowRebounds(this.optAllowRebounds);
+            fallback.setOptionCollectStats(this.optCollectStats);
+            fallback.setListener(this.getListener());
+            fallback.budgetDeadline = this.budgetDeadline;
+            fallback.budgetMemoryBytes = this.budgetMemoryBytes;
+            try {
+                this.lastResultSolutions = fallback.execute();
+            } finally {
+                fallback.releaseResources();
+            }
+            this.lastResultBudgetExceeded = fallback.isBudgetExceeded();
+            this.lastResultSearchedDepth = fallback.getSearchedDepth();
+            this.lastResultUnsolvable = fallback.isUnsolvable();
+            this.stats = fallback.getStats();
+            this.solutionMilliSeconds = fallback.getSolutionMilliSeconds();
+            this.solutionStoredStates = fallback.getSolutionStoredStates();
+            this.solutionMemoryMegabytes = fallback.getSolutionMemoryMegabytes();
+            return this.lastResultSolutions;
+        }
+        final long startExecute = System.nanoTime();
+        this.lastResultSolutions = new ArrayList<Solution>();
+        this.lastResultBudgetExceeded = false;
+        this.lastResultSearchedDepth = 0;
+        this.lastResultUnsolvable = false;
+        this.stats = null;  //not supported
+
+        final int[] startState = this.board.getRobotPositions().clone();
+        swapGoalLast(startState);   //goal robot is always the last one.
+        if (true == SolverLog.isEnabled()) {
+            SolverLog.log("***** " + this.getClass().getSimpleName() + " *****");
+            SolverLog.log("options: " + this.getOptionsAsString());
+            SolverLog.log("startState=" + this.stateString(startState));
+        }
+
+        if (false == new Reachability(this.board).isGoalReachable()) {
+            SolverLog.log("no robot can stop on the goal - no solution!");
+            this.lastResultUnsolvable = true;
+        } else {
+            this.precomputeMinimumMovesToGoal();
+            this.search(startState);
+
+            this.solutionStoredStates = this.numNodes;
+            this.solutionMemoryMegabytes = (int)((this.getBytesAllocated() + (1 << 20) - 1) >> 20);
+        }
+        this.visitedStates = null;  //allow garbage collection
+        this.nodeStates = null;
+        this.nodePredecessors = null;
+        this.nodeDepths = null;
+        this.sortSolutions();
+
+        this.solutionMilliSeconds = (System.nanoTime() - startExecute) / 1000000L;
+        return this.lastResultSolutions;
+    }
+
+
+
+    //breadth-first search from the goal; a robot may stop anywhere on its way, because another robot could block it there.
+    private void precomputeMinimumMovesToGoal() {
+        Arrays.fill(this.minimumMovesToGoal, Integer.MAX_VALUE);
+        this.minimumMovesToGoal[this.goalPosition] = 0;
+        final int[] queue = new int[this.minimumMovesToGoal.length];
+        int queueEnd = 0;
+        queue[queueEnd++] = this.goalPosition;
+        for (int queueStart = 0;  queueStart < queueEnd;  ++queueStart) {
+            final int pos = queue[queueStart];
+            final int depth = this.minimumMovesToGoal[pos] + 1;
+            for (int dir = 0;  dir < 4;  ++dir) {
+                final int dirIncr = this.directionIncrement[dir];
+                final int wallMask = (1 << dir);
+                for (int newPos = pos;  0 == (this.obstacles[newPos] & wallMask);  ) {
+                    newPos += dirIncr;
+                    if (depth < this.minimumMovesToGoal[newPos]) {
+                        this.minimumMovesToGoal[newPos] = depth;
+                        queue[queueEnd++] = newPos;
+                    }
+                }
+            }
+        }
+        this.maxMinimumMovesToGoal = this.minimumMovesToGoal[queue[queueEnd - 1]];
+    }
+
+
+
+    //the estimate of the number of moves to the goal; Integer.MAX_VALUE if the goal can't be reached
+    private int getMinimumMovesToGoal(final int[] state) {
+        if (true == this.isBoardGoalWildcard) {
+            int min = Integer.MAX_VALUE;
+            for (final int pos : state) {
+                min = Math.min(min, this.minimumMovesToGoal[pos]);
+            }
+            return min;
+        }
+        return this.minimumMovesToGoal[state[this.goalRobot]];
+    }
+
+
+
+    private void search(final int[] startState) throws InterruptedException {
+        final long nanoStart = System.nanoTime();
+        final int numRobots = startState.length;
+        this.visitedStates = KeyDepthMapFactory.newInstance(this.board, KeyDepthMapHashRobinHood.class);   //grows on demand
+        if (true == this.isBoardStateInt32) {
+            this.keyMakerInt = KeyMakerInt.createInstance(numRobots, this.board.sizeNumBits, this.isBoardGoalWildcard);
+        } else {
+            this.keyMakerLong = KeyMakerLong.createInstance(numRobots, this.board.sizeNumBits, this.isBoardGoalWildcard);
+        }
+        this.nodeStates = new int[1024 * numRobots];
+        this.nodePredecessors = new int[1024];
+        this.nodeDepths = new int[1024];
+        this.numNodes = 0;
+        //bucket queue: the nodes of each priority, the last one is expanded first
+        final int[][] buckets = new int[MAX_DEPTH + WEIGHT * this.maxMinimumMovesToGoal + 1][];
+        final int[] bucketSizes = new int[buckets.length];
+        int minBucket = buckets.length;
+
+        final int startMinMoves = this.getMinimumMovesToGoal(startState);
+        if (Integer.MAX_VALUE == startMinMoves) {
+            return;     //the goal can't be reached
+        }
+        this.addVisited(startState, 0);
+        minBucket = this.addNode(startState, -1, 0, WEIGHT * startMinMoves, buckets, bucketSizes, minBucket);
+        final int[] state = new int[numRobots];
+        int numExpanded = 0;
+        while (minBucket < buckets.length) {
+            if ((0 == (numExpanded & 0xfff)) && Thread.interrupted()) { throw new InterruptedException(); }
+            if ((0 == (numExpanded & 0xfff)) && (true == this.hasBudget()) && (true == this.isBudgetExceeded(this.getBytesAllocated()))) {
+                this.lastResultBudgetExceeded = true;
+                return; //no solution
+            }
+            ++numExpanded;
+            final int node = buckets[minBucket][--bucketSizes[minBucket]];
+            while ((minBucket < buckets.length) && (0 == bucketSizes[minBucket])) { ++minBucket; }
+            final int depth1 = this.nodeDepths[node] + 1;
+            if (MAX_DEPTH <= depth1) {
+                continue;
+            }
+            System.arraycopy(this.nodeStates, node * numRobots, state, 0, numRobots);
+            for (final int pos : state) { this.obstacles[pos] |= OBSTACLE_ROBOT; }  //set robot positions
+            try {
+                //move all robots
+                for (int robo = 0;  robo < numRobots;  ++robo) {
+                    final int oldRoboPos = state[robo];
+                    for (int dir = 0;  dir < 4;  ++dir) {
+                        final int newRoboPos = this.moveRobot(oldRoboPos, dir);
+                        if (oldRoboPos != newRoboPos) {
+                            state[robo] = newRoboPos;
+                            if ((this.goalPosition == newRoboPos) && ((this.goalRobot == robo) || (this.goalRobot < 0))) {
+                                this.buildSolution(node, state);
+                                state[robo] = oldRoboPos;
+                                if (true == SolverLog.isEnabled()) {
+                                    SolverLog.log("greedy:  finished depth=" + depth1 + " expanded=" + numExpanded + " nodes=" + this.numNodes +
+                                            " totalTime=" + (System.nanoTime() - nanoStart) / 1000000L + "ms");
+                                }
+                                return;
+                            }
+                            final int minMoves = this.getMinimumMovesToGoal(state);
+                            //a state that has been reached with fewer moves is expanded again
+                            if ((Integer.MAX_VALUE != minMoves) && (true == this.addVisited(state, depth1))) {
+                                minBucket = this.addNode(state, node, depth1, depth1 + WEIGHT * minMoves, buckets, bucketSizes, minBucket);
+                            }
+                            state[robo] = oldRoboPos;
+                        }
+                    }
+                }
+            } finally {
+                for (final int pos : state) { this.obstacles[pos] &= ~OBSTACLE_ROBOT; }  //unset robot positions
+            }
+        }
+    }
+
+
+
+    //returns the new minimum bucket
+    private int addNode(final int[] state, final int predecessor, final int depth, final int priority,
+            final int[][] buckets, final int[] bucketSizes, final int minBucket) {
+        final int numRobots = state.length;
+        if (this.numNodes == this.nodeDepths.length) {
+            final int newLength = this.numNodes + (this.numNodes >> 1);
+            this.nodeStates = Arrays.copyOf(this.nodeStates, newLength * numRobots);
+            this.nodePredecessors = Arrays.copyOf(this.nodePredecessors, newLength);
+            this.nodeDepths = Arrays.copyOf(this.nodeDepths, newLength);
+        }
+        final int node = this.numNodes++;
+        System.arraycopy(state, 0, this.nodeStates, node * numRobots, numRobots);
+        this.nodePredecessors[node] = predecessor;
+        this.nodeDepths[node] = depth;
+        int[] bucket = buckets[priority];
+        if (null == bucket) {
+            bucket = buckets[priority] = new int[64];
+        } else if (bucketSizes[priority] == bucket.length) {
+            bucket = buckets[priority] = Arrays.copyOf(bucket, bucket.length * 2);
+        }
+        bucket[bucketSizes[priority]++] = node;
+        return Math.min(minBucket, priority);
+    }
+
+
+
+    private long getBytesAllocated() {
+        long bytes = this.visitedStates.allocatedBytes() + this.visitedStates.allocatedOffHeapBytes();
+        bytes += 4L * (this.nodeStates.length + this.nodePredecessors.length + this.nodeDepths.length);
+        return bytes;
+    }
+
+
+
+    //move the robot until it reaches a wall or another robot.
+    private int moveRobot(final int oldRoboPos, final int dir) {
+        final int dirIncr = this.directionIncrement[dir];
+        final int wallMask = (1 << dir);
+        int newRoboPos = oldRoboPos;
+        int obstacle = this.obstacles[oldRoboPos];
+        while (0 == (obstacle & wallMask)) {
+            newRoboPos += dirIncr;                      //NOTE: we rely on the fact that all boards are surrounded
+            obstacle = this.obstacles[newRoboPos];      //by outer walls.
+            if (0 != (obstacle & OBSTACLE_ROBOT)) {
+                newRoboPos -= dirIncr;
+                break;
+            }
+        }
+        return newRoboPos;
+    }
+
+
+
+    //the map stores (MAX_DEPTH - depth), so a state is added again if it is reached with fewer moves
+    private boolean addVisited(final int[] state, final int depth) {
+        if (true == this.isBoardStateInt32) {
+            return this.visitedStates.putIfGreater(this.keyMakerInt.run(state), MAX_DEPTH - depth);
+        } else {
+            return this.visitedStates.putIfGreater(this.keyMakerLong.run(state), MAX_DEPTH - depth);
+        }
+    }
+
+
+
+    private void buildSolution(final int lastNode, final int[] goalState) {
+        final int numRobots = goalState.length;
+        final int depth = this.nodeDepths[lastNode] + 1;
+        final int[][] path = new int[depth + 1][];
+        path[depth] = goalState.clone();
+        for (int node = lastNode;  node >= 0;  node = this.nodePredecessors[node]) {
+            path[this.nodeDepths[node]] = Arrays.copyOfRange(this.nodeStates, node * numRobots, (node + 1) * numRobots);
+        }
+        final Solution tmpSolution = new Solution(this.board);
+        for (int d = 0;  d < depth;  ++d) {
+            final int[] move0 = path[d].clone(), move1 = path[d + 1].clone();
+            swapGoalLast(move0);
+            swapGoalLast(move1);
+            tmpSolution.add(new Move(this.board, move0, move1, d));
+        }
+        final Solution solution = tmpSolution.finish();
+        this.lastResultSolutions.add(solution);
+        this.fireSolutionFound(solution);
+        if (true == SolverLog.isEnabled()) {
+            SolverLog.log(tmpSolution.toMovelistString() + " " + tmpSolution.toString() + " finalState=" + this.stateString(goalState));
+        }
+    }
+}
@@ -0,0 +1,1581 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+
+public class SolverIDDFS extends Solver {
+    
+    private static final int MAX_DEPTH = 126;
+    private static final int HELPER_MIN_DEPTH = 8;      //precompute the pattern database when the search gets this deep
+    private static final int SPLIT_DEPTH = 2;           //parallel mode: depth of the moves that are split into tasks
+    private static final int PARALLEL_MIN_DEPTH = 4;    //parallel mode: smaller depthLimits are searched sequentially
+    private static final int CLAIM_TAG_SPLIT = 255;     //parallel mode: the tags of the ordered search, see ClaimMap
+    
+    private int[][] states;
+    private int[][] directions;
+    private static final int DIRECTION_NOT_MOVED_YET = 7;
+    private static final int PACKED_TURNED = 8;
+    private static final int KERNEL_STANDARD = 0;       //dfsRecursion: supports all cases
+    private static final int KERNEL_FAST = 1;           //dfsRecursionFast: no wildcard goal, no solution01, rebounds allowed
+    private static final int KERNEL_WILDCARD = 2;       //dfsRecursionWildcard: wildcard goal, no solution01
+    private static final int KERNEL_NO_REBOUND = 3;     //dfsRecursionNoRebound: no wildcard goal, no solution01, no rebounds
+    private final int[][] slideStop = new int[4][];     //[dir][pos] where a robot that moves from pos stops if no other robot is in its way
+    private final int[][] slideCoord = new int[4][];    //[dir][pos] coordinate of pos that increases by 1 per step in direction dir
+    private KnownStates knownStates;
+    private int goalPosition;
+    private int minRobotLast;
+    private int goalRobot;
+    private boolean isSolution01;
+    private int[] minimumMovesToGoal;
+    private boolean isMinimumMovesToGoalComputed = false;
+    private byte[] minimumMovesToGoalWithHelper;    //[goal robot position * board.size + helper robot position]
+    private byte[] helperTable;         //kept for reset(): the array of minimumMovesToGoalWithHelper
+    private int[] queue;                //kept for reset(): the queue of the breadth-first searches
+    private long numNodes;              //statistics: counted in plain fields of each thread, see SolverStats
+    private long numPrunedMinMoves;
+    private long numPrunedWithHelper;
+    private long numSolutionsFound;     //all-solutions mode: including the duplicates
+    private Enumeration enumeration;    //all-solutions mode: not null during the enumeration
+    private boolean isLastFast;         //all-solutions mode: dfsRecursion searches the last move with dfsLastFast
+    private int[] directionIncrement;
+    
+    private int depthLimit;
+    
+    private final int maxThreads;
+    private int numThreads;
+    private SolverIDDFS[] workers;      //parallel mode: kept for the next execute()
+    private KeyDepthMap recycledMap;    //the map of the last search, reused by the next one if possible
+    private boolean isRecycledMapShared;
+    private final List<SplitTask> splitTasks = new ArrayList<SplitTask>();
+    private List<long[]> solutionClaims;    //parallel mode: the claimed states of the solutions, see dfsParallelOrdered()
+    
+
+    protected SolverIDDFS(final Board board) {
+        this(board, 1);
+    }
+    
+    protected SolverIDDFS(final Board board, final int numThreads) {
+        this(board, numThreads, new int[board.size]);
+    }
+    
+    //parallel mode: creates a worker that shares the board analysis of its parent solver
+    private SolverIDDFS(final SolverIDDFS parent) {
+        this(parent.board, 1, parent.minimumMovesToGoal);
+        this.optSolutionMode = parent.optSolutionMode;
+        this.optAllowRebounds = parent.optAllowRebounds;
+    }
+    
+    private SolverIDDFS(final Board board, final int numThreads, final int[] minimumMovesToGoal) {
+        super(board);
+        this.maxThreads = Math.max(1, numThreads);
+        this.minimumMovesToGoal = minimumMovesToGoal;
+        this.initBoard();
+    }
+    
+    
+    
+    //the fields that depend on the board. the arrays are reused if they have the right size.
+    private void initBoard() {
+        this.initSlides();
+        final int numRobots = this.board.getRobotPositions().length;
+        if ((null == this.states) || (this.states[0].length != numRobots)) {
+            this.states = new int[MAX_DEPTH][numRobots];
+            this.directions = new int[MAX_DEPTH][numRobots];
+        }
+        this.goalPosition = (null == this.board.getGoal() ? 0 : this.board.getGoal().position);
+        this.minRobotLast = (this.isBoardGoalWildcard ? 0 : numRobots - 1); //swapGoalLast
+        this.goalRobot = (this.isBoardGoalWildcard ? (null == this.board.getGoal() ? 0 : this.board.getGoal().robotNumber) : this.minRobotLast); //swapGoalLast
+        this.isSolution01 = this.board.isSolution01();
+        this.directionIncrement = this.board.directionIncrement;
+        this.numThreads = (this.isBoardStateInt64 ? this.maxThreads : 1);   //the shared map doesn't support wide keys
+        this.isMinimumMovesToGoalComputed = false;
+        this.minimumMovesToGoalWithHelper = null;
+    }
+    
+    
+    
+    /* (non-Javadoc)
+     * @see driftingdroids.model.Solver#reset(driftingdroids.model.Board)
+     */
+    @Override
+    public boolean reset(final Board board) {
+        this.resetBoard(board);
+        if (this.minimumMovesToGoal.length != board.size) {
+            this.minimumMovesToGoal = new int[board.size];
+        }
+        this.initBoard();
+        return true;
+    }
+    
+    
+    
+    @Override
+    public void releaseResources() {
+        //only maps that can't be reset hold such resources, so the other maps are kept for reset()
+        if (this.recycledMap instanceof Closeable) {
+            KeyDepthMapFactory.release(this.recycledMap);
+            this.recycledMap = null;
+        }
+    }
+    
+    
+    
+    //parallel mode: prepares a worker of the last execute() for the current search of its parent solver
+    private void resetWorker(final SolverIDDFS parent) {
+        this.resetBoard(parent.board);
+        this.minimumMovesToGoal = parent.minimumMovesToGoal;
+        this.initBoard();
+        this.optSolutionMode = parent.optSolutionMode;
+        this.optAllowRebounds = parent.optAllowRebounds;
+    }
+    
+    
+    
+    //a robot can only be stopped by a wall or by another robot. the wall stops are precomputed here,
+    //so a move only needs to check which robot (if any) is the nearest one on its way.
+    private void initSlides() {
+        for (int dir = 0;  dir < 4;  ++dir) {
+            final boolean[] walls = this.boardWalls[dir];
+            final int dirIncr = this.board.directionIncrement[dir];
+            final int[] stops = (((null != this.slideStop[dir]) && (this.slideStop[dir].length == this.board.size)) ? this.slideStop[dir] : new int[this.board.size]);
+            final int[] coords = (((null != this.slideCoord[dir]) && (this.slideCoord[dir].length == this.board.size)) ? this.slideCoord[dir] : new int[this.board.size]);
+            for (int pos = 0;  pos < stops.length;  ++pos) {
+                int stop = pos;
+                while (false == walls[stop]) {  //NOTE: we rely on the fact that all boards are surrounded by outer walls.
+                    stop += dirIncr;
+                }
+                stops[pos] = stop;
+                //row by row for east and west, column by column for north and south
+                final int coord = ((0 == (dir & 1)) ? (pos % this.board.width) * this.board.height + pos / this.board.width : pos);
+                coords[pos] = ((dirIncr > 0) ? coord : -coord);
+            }
+            this.slideStop[dir] = stops;
+            this.slideCoord[dir] = coords;
+        }
+    }
+    
+    
+    
+    //the position where a robot stops that moves from oldPos in direction dir:
+    //the wall stop, or the position in front of the nearest robot of "state" on the way there.
+    //the coordinates are consecutive along the way, so the number of free cells in front of
+    //a robot is a difference of coordinates; it doesn't depend on the length of the move.
+    private int slide(final int[] state, final int oldPos, final int dir, final int dirIncr) {
+        final int wallStop = this.slideStop[dir][oldPos];
+        if (oldPos == wallStop) {
+            return oldPos;  //in front of a wall
+        }
+        final int[] coords = this.slideCoord[dir];
+        final int oldCoord = coords[oldPos];
+        int numCells = coords[wallStop] - oldCoord;
+        for (final int pos : state) {
+            //negative if the robot is behind (or is the moving robot itself): masked to a huge positive number.
+            //Math.min instead of if() because the branch would be unpredictable.
+            numCells = Math.min(numCells, (coords[pos] - oldCoord - 1) & Integer.MAX_VALUE);
+        }
+        return oldPos + numCells * dirIncr;
+    }
+    
+    
+    
+    @Override
+    public List<Solution> execute() throws InterruptedException {
+        final long startExecute = System.nanoTime();
+        this.lastResultSolutions = new ArrayList<Solution>();
+        this.lastResultBudgetExceeded = false;
+        this.lastResultSearchedDepth = 0;
+        this.lastResultUnsolvable = false;
+        
+        this.stats = ((true == this.optCollectStats) ? new SolverStats() : null);
+        
+        if (true == SolverLog.isEnabled()) {
+            SolverLog.log("***** " + this.getClass().getSimpleName() + " *****");
+            SolverLog.log("options: " + this.getOptionsAsString() + "; threads=" + this.numThreads);
+        }
+        
+        final Reachability reachability = ((null == this.board.getGoal()) ? null : new Reachability(this.board));
+        if (null == this.board.getGoal()) {
+            SolverLog.log("no goal is set - nothing to solve!");
+        } else if (false == reachability.isGoalReachable()) {
+            SolverLog.log("no robot can stop on the goal - no solution!");
+            this.lastResultUnsolvable = true;
+        } else {
+            //the robots may have been moved since the last execute(), see Board.setRobots()
+            this.isSolution01 = this.board.isSolution01();
+            System.arraycopy(this.board.getRobotPositions(), 0, this.states[0], 0, this.states[0].length);
+            swapGoalLast(this.states[0]);   //goal robot is always the last one.
+            if (true == SolverLog.isEnabled()) {
+                SolverLog.log("startState=" + this.stateString(this.states[0]));
+            }
+            
+            Arrays.fill(this.directions[0], DIRECTION_NOT_MOVED_YET);
+            
+            this.iddfs(reachability);
+            
+            this.solutionStoredStates = this.knownStates.size();
+            this.solutionMemoryMegabytes = this.knownStates.getMegaBytesAllocated();
+            this.recycledMap = this.knownStates.getMap();    //kept for the next search, see obtainMap()
+            this.isRecycledMapShared = (this.recycledMap instanceof KeyDepthMapTrieConcurrent);
+            this.knownStates = null;
+        }
+        this.sortSolutions();
+        if ((this.optAllSolutionsMax > 0) && (this.lastResultSolutions.size() > this.optAllSolutionsMax)) {
+            //the normal search may have found more
+            this.lastResultSolutions.subList(this.optAllSolutionsMax, this.lastResultSolutions.size()).clear();
+        }
+        if (null != this.stats) {
+            this.stats.setSolutionsFound(this.lastResultSolutions.get(0).size() > 0 ? this.lastResultSolutions.size() : 0);
+        }
+        
+        this.solutionMilliSeconds = (System.nanoTime() - startExecute) / 1000000L;
+        return this.lastResultSolutions;
+    }
+    
+    
+    
+    //breadth-first search from the goal; a robot may stop anywhere on its way, because another robot could block it there.
+    private void precomputeMinimumMovesToGoal() {
+        Arrays.fill(this.minimumMovesToGoal, Integer.MAX_VALUE);
+        this.minimumMovesToGoal[this.goalPosition] = 0;
+        final int[] queue = this.getQueue(this.minimumMovesToGoal.length);
+        int queueEnd = 0;
+        queue[queueEnd++] = this.goalPosition;
+        for (int queueStart = 0;  queueStart < queueEnd;  ++queueStart) {
+            final int pos = queue[queueStart];
+            final int depth = this.minimumMovesToGoal[pos] + 1;
+            int dir = -1;
+            for (int dirIncr : this.directionIncrement) {
+                final int stop = this.slideStop[++dir][pos];
+                for (int newPos = pos;  newPos != stop;  ) {
+                    newPos += dirIncr;
+                    if (depth < this.minimumMovesToGoal[newPos]) {
+                        this.minimumMovesToGoal[newPos] = depth;
+                        queue[queueEnd++] = newPos;
+                    }
+                }
+            }
+        }
+    }
+    
+    
+    
+    //pattern database for the goal robot and one helper robot: both robots may stop anywhere on their way
+    //(because one of the other robots could block them there), but they can't move through each other.
+    //this makes all moves reversible, so a breadth-first search that starts at the goal finds the minimum moves.
+    private void precomputeMinimumMovesToGoalWithHelper() {
+        final int size = this.board.size;
+        if ((null == this.helperTable) || (this.helperTable.length != size * size)) {
+            this.helperTable = null;    //allow garbage collection
+            this.helperTable = new byte[size * size];
+        }
+        final byte[] table = this.helperTable;
+        Arrays.fill(table, Byte.MAX_VALUE);
+        final int[] queue = this.getQueue(table.length);
+        int queueEnd = 0;
+        for (int helperPos = 0;  helperPos < size;  ++helperPos) {
+            if (this.goalPosition != helperPos) {
+                table[this.goalPosition * size + helperPos] = 0;
+                queue[queueEnd++] = this.goalPosition * size + helperPos;
+            }
+        }
+        for (int queueStart = 0;  queueStart < queueEnd;  ++queueStart) {
+            final int pair = queue[queueStart];
+            final int depth = table[pair] + 1;
+            final int goalRoboPos = pair / size;
+            final int helperPos = pair - goalRoboPos * size;
+            int dir = -1;
+            for (int dirIncr : this.directionIncrement) {
+                final boolean[] walls = this.boardWalls[++dir];
+                //move the goal robot
+                for (int newPos = goalRoboPos;  (false == walls[newPos]) && (helperPos != newPos + dirIncr);  ) {
+                    newPos += dirIncr;
+                    final int newPair = newPos * size + helperPos;
+                    if (depth < table[newPair]) {
+                        table[newPair] = (byte)depth;
+                        queue[queueEnd++] = newPair;
+                    }
+                }
+                //move the helper robot
+                for (int newPos = helperPos;  (false == walls[newPos]) && (goalRoboPos != newPos + dirIncr);  ) {
+                    newPos += dirIncr;
+                    final int newPair = goalRoboPos * size + newPos;
+                    if (depth < table[newPair]) {
+                        table[newPair] = (byte)depth;
+                        queue[queueEnd++] = newPair;
+                    }
+                }
+            }
+        }
+        this.minimumMovesToGoalWithHelper = table;
+    }
+    
+    
+    
+    //the queue of the breadth-first searches is kept for the next board.
+    private int[] getQueue(final int length) {
+        if ((null == this.queue) || (this.queue.length < length)) {
+            this.queue = null;  //allow garbage collection
+            this.queue = new int[length];
+        }
+        return this.queue;
+    }
+    
+    
+    
+    //lower bound of the moves to goal that takes the position of each of the other robots into account.
+    //not used for wildcard goals (goal robot is always the last one).
+    private int minimumMovesToGoalWithHelpers(final int[] state) {
+        final byte[] table = this.minimumMovesToGoalWithHelper;
+        if (null == table) {
+            return 0;
+        }
+        final int offset = state[this.goalRobot] * this.board.size;
+        int max = 0;
+        for (int robo = 0;  robo < this.goalRobot;  ++robo) {
+            final int tmp = table[offset + state[robo]];
+            if (max < tmp) { max = tmp; }
+        }
+        return max;
+    }
+    
+    
+    
+    //wildcard goal: the lower bound of the robot that can reach the goal with the fewest moves.
+    //the pattern database doesn't depend on the color of the robots, so each robot is tried as the goal robot.
+    private int minimumMovesToGoalWithHelpersWildcard(final int[] state, final int height) {
+        final byte[] table = this.minimumMovesToGoalWithHelper;
+        if (null == table) {
+            return 0;
+        }
+        int min = Integer.MAX_VALUE;
+        for (int goalRobo = 0;  goalRobo < state.length;  ++goalRobo) {
+            final int goalRoboPos = state[goalRobo];
+            if (this.minimumMovesToGoal[goalRoboPos] <= height) {  //the other robots can't reach the goal anyway
+                final int offset = goalRoboPos * this.board.size;
+                int max = 0;
+                for (int robo = 0;  robo < state.length;  ++robo) {
+                    final int tmp = table[offset + state[robo]];
+                    if ((max < tmp) && (goalRobo != robo)) { max = tmp; }
+                }
+                if (min > max) { min = max; }
+            }
+        }
+        return min;
+    }
+    
+    
+    
+    private void iddfs(final Reachability reachability) throws InterruptedException {
+        final long nanoStart = System.nanoTime();
+        //walls and goal don't change, so the tables are computed once and reused
+        //when execute() is called again after the robots have been moved.
+        if (false == this.isMinimumMovesToGoalComputed) {
+            this.precomputeMinimumMovesToGoal();
+            this.isMinimumMovesToGoalComputed = true;
+        }
+        this.numNodes = 0;
+        this.numPrunedMinMoves = 0;
+        this.numPrunedWithHelper = 0;
+        final int kernel = this.getKernel();
+        this.isLastFast = (KERNEL_FAST == kernel);
+        final boolean isParallel = this.isParallel(kernel);
+        this.knownStates = null;
+        this.knownStates = new KnownStates(this.obtainMap(isParallel));
+        this.knownStates.initKey(0, this.states[0]);
+        //a solution doesn't visit a state twice, so the number of states limits the depth. (except for solution01)
+        final long maxSolutionLength = ((true == this.isSolution01) ? Long.MAX_VALUE : reachability.getMaxSolutionLength());
+        final int maxDepthLimit = (int)Math.min(MAX_DEPTH - 1, maxSolutionLength);
+        final SolverIDDFS[] workers = this.createWorkers(isParallel);
+        final ExecutorService executor = ((workers.length > 0) ? Executors.newFixedThreadPool(workers.length) : null);
+        boolean isCompleted = false;
+        try {
+            for (this.depthLimit = 2;  maxDepthLimit >= this.depthLimit;  ++this.depthLimit) {
+                final long nanoDfs = System.nanoTime();
+                if ((true == this.hasBudget()) && (true == this.isBudgetExceeded(this.knownStates.getBytesAllocated()))) {
+                    throw new BudgetExceededException();
+                }
+                if ((HELPER_MIN_DEPTH <= this.depthLimit) && (null == this.minimumMovesToGoalWithHelper)
+                        && ((false == this.isBoardGoalWildcard) || (KERNEL_WILDCARD == kernel))) {
+                    this.precomputeMinimumMovesToGoalWithHelper();
+                    for (final SolverIDDFS worker : workers) {
+                        worker.minimumMovesToGoalWithHelper = this.minimumMovesToGoalWithHelper;
+                    }
+                }
+                if ((null != executor) && (PARALLEL_MIN_DEPTH <= this.depthLimit)) {
+                    this.dfsParallel(executor, workers, kernel);
+                    //special case (isSolution01): the states are not stored, so the threads don't race for them
+                    if ((false == this.lastResultSolutions.isEmpty()) && (false == this.isSolution01)) {
+                        this.dfsParallelOrdered(executor, workers, kernel);
+                    }
+                } else {
+                    this.dfsKernel(kernel, 1, -1, -1);
+                }
+                if ((this.optAllSolutionsMax > 0) && (false == this.lastResultSolutions.isEmpty())) {
+                    this.enumerateSolutions();
+                }
+                final long nanoEnd = System.nanoTime();
+                if ((null != this.stats) || (true == SolverLog.isEnabled())) {
+                    this.finishDepthStats(workers, nanoEnd - nanoDfs, nanoEnd - nanoStart);
+                }
+                for (final Solution solution : this.lastResultSolutions) {
+                    this.fireSolutionFound(solution);
+                }
+                if (false == this.lastResultSolutions.isEmpty()) {
+                    break;  //found solution(s)
+                }
+                this.lastResultSearchedDepth = this.depthLimit;
+                this.fireDepthFinished(this.depthLimit, this.knownStates.size(), this.knownStates.getMegaBytesAllocated(), (nanoEnd - nanoStart) / 1000000L);
+            }
+            if ((true == this.lastResultSolutions.isEmpty()) && (maxSolutionLength < this.depthLimit)) {
+                if (true == SolverLog.isEnabled()) {
+                    SolverLog.log("searched all " + maxSolutionLength + " moves that a solution can have - no solution!");
+                }
+                this.lastResultUnsolvable = true;
+            }
+            isCompleted = true;
+        } catch (BudgetExceededException e) {
+            this.lastResultBudgetExceeded = true;   //the result is the searched depth
+            if (null != executor) {
+                //the workers stop soon, and then the map can be reused
+                executor.shutdownNow();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            if (null != executor) {
+                executor.shutdownNow();
+            }
+            if (false == isCompleted) {
+                this.workers = null;    //interrupted: they may still be running, so they are not reused
+            }
+        }
+    }
+    
+    
+    
+    //the search method for the current board and options.
+    //the wildcard and no-rebound kernels pack the directions of the robots into an int, see packMove().
+    private int getKernel() {
+        if (true == this.isSolution01) {
+            return KERNEL_STANDARD;
+        } else if ((false == this.isBoardGoalWildcard) && (true == this.optAllowRebounds)) {
+            return KERNEL_FAST;
+        } else if (this.states[0].length > 8) {
+            return KERNEL_STANDARD;     //4 bits per robot
+        } else if (true == this.isBoardGoalWildcard) {
+            return KERNEL_WILDCARD;
+        } else {
+            return KERNEL_NO_REBOUND;
+        }
+    }
+    
+    
+    
+    //parallel mode: the fast kernel finds the same solutions as the sequential search, see dfsParallelOrdered().
+    //the other kernels depend on the directions of the robots on the path that reaches a state first
+    //(no rebounds, and the wildcard goal needs a robot that has turned), so they search sequentially.
+    private boolean isParallel(final int kernel) {
+        return (this.numThreads > 1) && ((KERNEL_FAST == kernel) || (true == this.isSolution01));
+    }
+    
+    
+    
+    //search the current depthLimit, starting with the state at (depth - 1): the start state or the state of a split task
+    private void dfsKernel(final int kernel, final int depth, final int prevRobo, final int prevDirBit0) throws InterruptedException {
+        final int[] oldState = this.states[depth - 1];
+        switch (kernel) {
+        case KERNEL_FAST:       this.dfsRecursionFast(depth, prevRobo, prevDirBit0, oldState);  break;
+        case KERNEL_WILDCARD:   this.dfsRecursionWildcard(depth, prevRobo, prevDirBit0, oldState, this.packDirections(depth - 1));  break;
+        case KERNEL_NO_REBOUND: this.dfsRecursionNoRebound(depth, oldState, this.packDirections(depth - 1));  break;
+        default:                this.dfsRecursion(depth, prevRobo, prevDirBit0, oldState, this.directions[depth - 1]);  break;
+        }
+    }
+    
+    
+    
+    //sum up the counters of this solver and its workers
+    private void finishDepthStats(final SolverIDDFS[] workers, final long nanosDepth, final long nanosTotal) {
+        long nodes = this.numNodes, prunedMinMoves = this.numPrunedMinMoves, prunedWithHelper = this.numPrunedWithHelper;
+        long lookups = this.knownStates.numLookups, stored = this.knownStates.numStored;
+        for (final SolverIDDFS worker : workers) {
+            nodes += worker.numNodes;
+            prunedMinMoves += worker.numPrunedMinMoves;
+            prunedWithHelper += worker.numPrunedWithHelper;
+            lookups += worker.knownStates.numLookups;
+            stored += worker.knownStates.numStored;
+        }
+        final long bytes = this.knownStates.allKeys.getBytesAllocated();
+        if (null != this.stats) {
+            final KeyDepthMap map = this.knownStates.getMap();
+            this.stats.finishDepth(this.depthLimit, nodes, nanosDepth, prunedMinMoves, prunedWithHelper, lookups - stored, stored,
+                    map.allocatedBytes(), map.allocatedOffHeapBytes());
+        }
+        if (true == SolverLog.isEnabled()) {
+            SolverLog.log("iddfs:  finished depthLimit=" + this.depthLimit +
+                    " megaBytes=" + ((bytes + (1 << 20) - 1) >> 20) +
+                    " totalNodes=" + nodes +
+                    " prunedWithHelper=" + prunedWithHelper +
+                    " time=" + nanosDepth / 1000000L + "ms" +
+                    " totalTime=" + nanosTotal / 1000000L + "ms");
+        }
+    }
+    
+    
+    
+    //the map of the last search is reset and reused if it is suitable for the current board.
+    //parallel mode needs the thread-safe map.
+    private KeyDepthMap obtainMap(final boolean isParallel) {
+        final KeyDepthMap map = this.recycledMap;
+        this.recycledMap = null;
+        if ((null != map) && (this.isRecycledMapShared == isParallel) && (true == map.reset(this.board))) {
+            return map;
+        }
+        KeyDepthMapFactory.release(map);
+        return ((true == isParallel) ? KeyDepthMapFactory.newConcurrentInstance(this.board) : KeyDepthMapFactory.newInstance(this.board));
+    }
+    
+    
+    
+    // parallel mode: one worker per thread, each with its own states and directions.
+    // the workers of the last execute() are reused.
+    private SolverIDDFS[] createWorkers(final boolean isParallel) {
+        final int numWorkers = ((true == isParallel) ? this.numThreads : 0);
+        if ((null == this.workers) || (this.workers.length != numWorkers)) {
+            this.workers = new SolverIDDFS[numWorkers];
+        }
+        final SolverIDDFS[] workers = this.workers;
+        for (int i = 0;  i < workers.length;  ++i) {
+            final SolverIDDFS worker;
+            if (null == workers[i]) {
+                worker = new SolverIDDFS(this);
+            } else {
+                worker = workers[i];
+                worker.resetWorker(this);
+            }
+            System.arraycopy(this.states[0], 0, worker.states[0], 0, this.states[0].length);
+            System.arraycopy(this.directions[0], 0, worker.directions[0], 0, this.directions[0].length);
+            worker.knownStates = worker.new KnownStates(this.knownStates.getMap());
+            worker.minimumMovesToGoalWithHelper = this.minimumMovesToGoalWithHelper;
+            worker.budgetDeadline = this.budgetDeadline;
+            worker.budgetMemoryBytes = this.budgetMemoryBytes;
+            workers[i] = worker;
+        }
+        return workers;
+    }
+    
+    
+    
+    // parallel mode: expand the first SPLIT_DEPTH moves, then let the workers search the subtrees.
+    // the solutions are collected in the order of the tasks, but the threads race for the states that are
+    // reached by more than one task, so they may differ from the solutions of the sequential search.
+    private void dfsParallel(final ExecutorService executor, final SolverIDDFS[] workers, final int kernel) throws InterruptedException {
+        this.splitTasks.clear();
+        this.splitRecursion(1, -1, -1, this.states[0], this.directions[0]);
+        final int numTasks = this.splitTasks.size();
+        final List<List<Solution>> taskSolutions = new ArrayList<List<Solution>>(Collections.<List<Solution>>nCopies(numTasks, null));
+        this.runParallel(executor, workers, kernel, numTasks, taskSolutions, null);
+        for (final List<Solution> solutions : taskSolutions) {
+            if (null != solutions) {
+                this.lastResultSolutions.addAll(solutions);
+            }
+        }
+    }
+    
+    
+    
+    // parallel mode: search the depth of the solutions again, so that each state is searched by the task that
+    // reaches it first in the order of the sequential search; then the solutions are the same.
+    // a state is searched only at the height that dfsParallel() has stored for it (its minimum depth),
+    // because the sequential search can't find a solution on a path that reaches a state at a greater depth.
+    // the tasks claim the states with their tags (see ClaimMap): an earlier task takes over a state that a
+    // later task has claimed before, so at the end a solution is kept only if its task still owns all its states.
+    private void dfsParallelOrdered(final ExecutorService executor, final SolverIDDFS[] workers, final int kernel) throws InterruptedException {
+        final KnownStates knownStates = this.knownStates;
+        final KnownStates[] workerStates = new KnownStates[workers.length];
+        final KeyDepthMapTrieConcurrent heights = (KeyDepthMapTrieConcurrent)knownStates.getMap();
+        final KeyDepthMapTrieConcurrent claims = new KeyDepthMapTrieConcurrent(this.board);
+        final List<Solution> unorderedSolutions = this.lastResultSolutions;
+        boolean isCompleted = false;
+        try {
+            this.knownStates = new KnownStates(new ClaimMap(heights, claims));
+            this.knownStates.initKey(0, this.states[0]);
+            for (int i = 0;  i < workers.length;  ++i) {
+                workerStates[i] = workers[i].knownStates;
+                workers[i].knownStates = workers[i].new KnownStates(new ClaimMap(heights, claims));
+            }
+            this.splitTasks.clear();
+            this.splitRecursion(1, -1, -1, this.states[0], this.directions[0]);
+            final int numTasks = this.splitTasks.size();
+            final List<List<Solution>> taskSolutions = new ArrayList<List<Solution>>(Collections.<List<Solution>>nCopies(numTasks, null));
+            final List<List<long[]>> taskClaims = new ArrayList<List<long[]>>(Collections.<List<long[]>>nCopies(numTasks, null));
+            //the tasks that don't get a tag of their own are searched one after another by this thread
+            final int numTagged = Math.min(numTasks, CLAIM_TAG_SPLIT - 2);
+            this.runParallel(executor, workers, kernel, numTagged, taskSolutions, taskClaims);
+            this.runSplitTasks(this.splitTasks, numTasks, new AtomicInteger(numTagged), taskSolutions, taskClaims, kernel);
+            this.lastResultSolutions = new ArrayList<Solution>();
+            for (int i = 0;  i < numTasks;  ++i) {
+                final List<Solution> solutions = taskSolutions.get(i);
+                final List<long[]> keys = taskClaims.get(i);
+                for (int j = 0;  j < solutions.size();  ++j) {
+                    if (true == isClaimed(claims, keys.get(j), getClaimTag(i))) {
+                        this.lastResultSolutions.add(solutions.get(j));
+                    }
+                }
+            }
+            isCompleted = true;
+        } finally {
+            knownStates.addCounters(this.knownStates);
+            this.knownStates = knownStates;
+            for (int i = 0;  i < workers.length;  ++i) {
+                if (null != workerStates[i]) {
+                    workerStates[i].addCounters(workers[i].knownStates);
+                    workers[i].knownStates = workerStates[i];
+                }
+            }
+            if (false == isCompleted) {
+                this.lastResultSolutions = unorderedSolutions;  //stopped by the budget: keep the solutions of dfsParallel()
+            }
+        }
+    }
+    
+    //parallel mode: the tag of a task; the greatest tag (the earliest task) wins, see ClaimMap
+    private static int getClaimTag(final int taskIndex) {
+        return Math.max(1, CLAIM_TAG_SPLIT - 1 - taskIndex);
+    }
+    
+    //parallel mode: true if the task with this tag owns all the states of a solution
+    private static boolean isClaimed(final KeyDepthMapTrieConcurrent claims, final long[] keys, final int tag) {
+        for (final long key : keys) {
+            if (tag != claims.get(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    
+    
+    // parallel mode: the workers search the first numTasks split tasks.
+    // taskClaims is null, except for the ordered search of dfsParallelOrdered().
+    private void runParallel(final ExecutorService executor, final SolverIDDFS[] workers, final int kernel, final int numTasks,
+            final List<List<Solution>> taskSolutions, final List<List<long[]>> taskClaims) throws InterruptedException {
+        final AtomicInteger nextTask = new AtomicInteger(0);
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>(workers.length);
+        try {
+            for (final SolverIDDFS worker : workers) {
+                worker.depthLimit = this.depthLimit;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws InterruptedException {
+                        worker.runSplitTasks(SolverIDDFS.this.splitTasks, numTasks, nextTask, taskSolutions, taskClaims, kernel);
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof InterruptedException) { throw (InterruptedException)cause; }
+            if (cause instanceof Error) { throw (Error)cause; }
+            throw new RuntimeException(cause);
+        } finally {
+            for (final Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+    
+    
+    
+    // parallel mode: executed by the workers
+    private void runSplitTasks(final List<SplitTask> tasks, final int numTasks, final AtomicInteger nextTask,
+            final List<List<Solution>> taskSolutions, final List<List<long[]>> taskClaims, final int kernel) throws InterruptedException {
+        final int depth1 = SPLIT_DEPTH + 1;
+        try {
+            for (int i = nextTask.getAndIncrement();  i < numTasks;  i = nextTask.getAndIncrement()) {
+                final SplitTask task = tasks.get(i);
+                for (int depth = 1;  depth <= SPLIT_DEPTH;  ++depth) {
+                    System.arraycopy(task.states[depth - 1], 0, this.states[depth], 0, this.states[depth].length);
+                    System.arraycopy(task.directions[depth - 1], 0, this.directions[depth], 0, this.directions[depth].length);
+                }
+                this.knownStates.initKey(SPLIT_DEPTH, this.states[SPLIT_DEPTH]);
+                this.lastResultSolutions = new ArrayList<Solution>();
+                if (null != taskClaims) {
+                    ((ClaimMap)this.knownStates.getMap()).tag = getClaimTag(i);
+                    this.solutionClaims = new ArrayList<long[]>();
+                }
+                this.dfsKernel(kernel, depth1, task.prevRobo, task.prevDirBit0);
+                taskSolutions.set(i, this.lastResultSolutions);
+                if (null != taskClaims) {
+                    taskClaims.set(i, this.solutionClaims);
+                }
+            }
+        } finally {
+            this.solutionClaims = null;
+        }
+    }
+    
+    
+    
+    // parallel mode: same as dfsRecursion, but the states at SPLIT_DEPTH are stored as tasks instead of being searched
+    private void splitRecursion(final int depth, final int prevRobo, final int prevDirBit0, final int[] oldState, final int[] oldDirs) {
+        final int height = this.depthLimit - depth + 1;
+        final int minMovesToGoal;
+        if (true == this.isBoardGoalWildcard) {
+            int min = Integer.MAX_VALUE;
+            for (final int pos : oldState) {
+                final int tmp = this.minimumMovesToGoal[pos];
+                if (min > tmp) { min = tmp; }
+            }
+            minMovesToGoal = min;
+        } else {
+            minMovesToGoal = this.minimumMovesToGoal[oldState[this.goalRobot]];
+        }
+        if (minMovesToGoal > height) {
+            ++this.numPrunedMinMoves;
+            return; //useless to move any robot: can't reach goal
+        }
+        if ((false == this.isBoardGoalWildcard) && (this.minimumMovesToGoalWithHelpers(oldState) > height)) {
+            ++this.numPrunedWithHelper;
+            return; //useless to move any robot: another robot is in the way
+        }
+        final int[] newState = this.states[depth];
+        System.arraycopy(oldState, 0, newState, 0, oldState.length);
+        //move all robots
+        int robo = 0;
+        for (final int oldRoboPos : oldState) {
+            final boolean isGoalRobot = (this.goalRobot == robo) || (this.goalRobot < 0);
+            if ((minMovesToGoal == height) && (false == isGoalRobot)) {
+                ++robo;
+                continue;   //useless to move this robot: can't reach goal
+            }
+            final int oldDir = oldDirs[robo];
+            int dir = 0;
+            for (final int dirIncr : this.directionIncrement) {
+                if (((true == this.optAllowRebounds) || ((oldDir != dir) && (oldDir != (dir ^ 2)))) // (dir + 2) & 3
+                        && ((prevRobo != robo) || (prevDirBit0 != (dir & 1)))) {
+                    final int newRoboPos = this.slide(oldState, oldRoboPos, dir, dirIncr);
+                    if ((oldRoboPos != newRoboPos)
+                            && ((false == this.isSolution01) || !((this.goalPosition == newRoboPos) && (true == isGoalRobot)))) {
+                        newState[robo] = newRoboPos;
+                        if ((true == this.isSolution01) || (true == this.knownStates.add(depth, robo, oldRoboPos, newRoboPos, height))) {
+                            final int[] newDirs = this.directions[depth];
+                            System.arraycopy(oldDirs, 0, newDirs, 0, oldDirs.length);
+                            newDirs[robo] = dir;
+                            if (SPLIT_DEPTH > depth) {
+                                this.splitRecursion(depth + 1, robo, (dir & 1), newState, newDirs);
+                            } else {
+                                this.splitTasks.add(new SplitTask(this.states, this.directions, robo, (dir & 1)));
+                            }
+                        }
+                    }
+                }
+                ++dir;
+            }
+            newState[robo++] = oldRoboPos;
+        }
+    }
+    
+    
+    
+    // parallel mode: the map of the ordered search, see dfsParallelOrdered().
+    // "putIfGreater" is true if the height is the one that the unordered search has stored for the state
+    // and no task with a greater tag has claimed the state yet. the tags are stored in a second map:
+    // the greatest tag is used by the split recursion, then each task has a smaller tag than the task before it.
+    // each thread has its own ClaimMap, because the tag is the one of the task that the thread is searching.
+    private static final class ClaimMap implements KeyDepthMap {
+        private final KeyDepthMapTrieConcurrent heights, claims;
+        private int tag = CLAIM_TAG_SPLIT;
+        
+        private ClaimMap(final KeyDepthMapTrieConcurrent heights, final KeyDepthMapTrieConcurrent claims) {
+            this.heights = heights;
+            this.claims = claims;
+        }
+        
+        @Override
+        public boolean putIfGreater(final int key, final int byteValue) {
+            return (byteValue == this.heights.get(key)) && (true == this.claims.putIfGreater(key, this.tag));
+        }
+        
+        @Override
+        public boolean putIfGreater(final long key, final int byteValue) {
+            return (byteValue == this.heights.get(key)) && (true == this.claims.putIfGreater(key, this.tag));
+        }
+        
+        @Override
+        public boolean putIfGreater(final long keyHi, final long keyLo, final int byteValue) {
+            if (0 == keyHi) {
+                return this.putIfGreater(keyLo, byteValue);
+            }
+            throw new UnsupportedOperationException("wide keys are not supported by " + this.getClass().getSimpleName());
+        }
+        
+        @Override
+        public boolean reset(final Board board) {
+            return false;   //used once only
+        }
+        
+        @Override
+        public int size() {
+            return this.heights.size();
+        }
+        
+        @Override
+        public long allocatedBytes() {
+            return this.heights.allocatedBytes() + this.claims.allocatedBytes();
+        }
+        
+        @Override
+        public long allocatedOffHeapBytes() {
+            return 0;
+        }
+    }
+    
+    
+    
+    // parallel mode: the first SPLIT_DEPTH moves of a subtree that is searched by a worker
+    private static final class SplitTask {
+        private final int[][] states = new int[SPLIT_DEPTH][];
+        private final int[][] directions = new int[SPLIT_DEPTH][];
+        private final int prevRobo, prevDirBit0;
+        private SplitTask(final int[][] states, final int[][] directions, final int prevRobo, final int prevDirBit0) {
+            for (int i = 0;  i < SPLIT_DEPTH;  ++i) {
+                this.states[i] = states[i + 1].clone();
+                this.directions[i] = directions[i + 1].clone();
+            }
+            this.prevRobo = prevRobo;
+            this.prevDirBit0 = prevDirBit0;
+        }
+    }
+    
+    
+    
+    // standard version: supports wildcard goal, solution01 special case and option noRebounds
+    private void dfsRecursion(final int depth, final int prevRobo, final int prevDirBit0, final int[] oldState, final int[] oldDirs) throws InterruptedException {
+        if ((null != this.enumeration) && (true == this.enumeration.isStopped())) {
+            return; //all-solutions mode: enough solutions found
+        }
+        ++this.numNodes;
+        final int height = this.depthLimit - depth + 1;
+        final int minMovesToGoal;
+        if (true == this.isBoardGoalWildcard) {
+            int min = Integer.MAX_VALUE;
+            for (final int pos : oldState) {
+                final int tmp = this.minimumMovesToGoal[pos];
+                if (min > tmp) { min = tmp; }
+            }
+            minMovesToGoal = min;
+        } else {
+            minMovesToGoal = this.minimumMovesToGoal[oldState[this.goalRobot]];
+        }
+        if (minMovesToGoal > height) {
+            ++this.numPrunedMinMoves;
+            return; //useless to move any robot: can't reach goal
+        }
+        if ((false == this.isBoardGoalWildcard) && (this.minimumMovesToGoalWithHelpers(oldState) > height)) {
+            ++this.numPrunedWithHelper;
+            return; //useless to move any robot: another robot is in the way
+        }
+        final int[] newState = this.states[depth];
+        final int depth1 = depth + 1;
+        System.arraycopy(oldState, 0, newState, 0, oldState.length);
+        final boolean doRecursion = (this.depthLimit > depth1);
+        //all-solutions mode: the states stored by the normal search of this depthLimit are new to the enumeration
+        final int storedHeight = ((null != this.enumeration) ? height + 1 : height);
+        //move all robots
+        int robo = 0;
+        for (final int oldRoboPos : oldState) {
+            final boolean isGoalRobot = (this.goalRobot == robo) || (this.goalRobot < 0);
+            if ((minMovesToGoal == height) && (false == isGoalRobot)) {
+                ++robo;
+                continue;   //useless to move this robot: can't reach goal
+            }
+            final int oldDir = oldDirs[robo];
+            int dir = 0;
+            for (final int dirIncr : this.directionIncrement) {
+                if (((true == this.optAllowRebounds) || ((oldDir != dir) && (oldDir != (dir ^ 2)))) // (dir + 2) & 3
+                        && ((prevRobo != robo) || (prevDirBit0 != (dir & 1)))) {
+                    final int newRoboPos = this.slide(oldState, oldRoboPos, dir, dirIncr);
+                    //the robot has actually moved
+                    //special case (isSolution01): the goal robot has _NOT_ arrived at the goal
+                    if ((oldRoboPos != newRoboPos)
+                            && ((false == this.isSolution01) || !((this.goalPosition == newRoboPos) && (true == isGoalRobot)))) {
+                        newState[robo] = newRoboPos;
+                        //special case (isSolution01): we must be able to visit states more than once, so we don't add them to knownStates
+                        //the new state is not already known (i.e. stored in knownStates)
+                        //all-solutions mode: or it is known to lead to a solution at this depth
+                        if ((true == this.isSolution01) || (true == this.knownStates.add(depth, robo, oldRoboPos, newRoboPos, storedHeight))
+                                || ((null != this.enumeration) && (true == this.enumeration.isLive(this.knownStates, depth)))) {
+                            final int[] newDirs = this.directions[depth];
+                            System.arraycopy(oldDirs, 0, newDirs, 0, oldDirs.length);
+                            newDirs[robo] = dir;
+                            final long numFound = this.numSolutionsFound;
+                            if (true == doRecursion) {
+                                this.dfsRecursion(depth1, robo, (dir & 1), newState, newDirs);
+                            } else if (true == this.isLastFast) {
+                                this.dfsLastFast(depth1, robo, (dir & 1), newState);
+                            } else {
+                                this.dfsLast(depth1, robo, (dir & 1), newState, newDirs);
+                            }
+                            if ((null != this.enumeration) && (false == this.isSolution01) && (numFound < this.numSolutionsFound)) {
+                                this.enumeration.markLive(this.knownStates, depth);
+                            }
+                        }
+                    }
+                }
+                ++dir;
+            }
+            newState[robo++] = oldRoboPos;
+        }
+    }
+    
+    
+    
+    // fast version: (false == this.isBoardGoalWildcard) && (false == this.isSolution01) && (true == this.optAllowRebounds)
+    private void dfsRecursionFast(final int depth, final int prevRobo, final int prevDirBit0, final int[] oldState) throws InterruptedException {
+        ++this.numNodes;
+        final int minMovesToGoal = this.minimumMovesToGoal[oldState[this.goalRobot]];
+        final int height = this.depthLimit - depth + 1;
+        if (minMovesToGoal > height) {
+            ++this.numPrunedMinMoves;
+            return; //useless to move any robot: can't reach goal
+        }
+        if (this.minimumMovesToGoalWithHelpers(oldState) > height) {
+            ++this.numPrunedWithHelper;
+            return; //useless to move any robot: another robot is in the way
+        }
+        final int[] newState = this.states[depth];
+        final int depth1 = depth + 1;
+        final boolean doRecursion = (this.depthLimit > depth1);
+        System.arraycopy(oldState, 0, newState, 0, oldState.length);
+        //move all robots
+        int robo = 0;
+        for (final int oldRoboPos : oldState) {
+            if ((minMovesToGoal == height) && (this.goalRobot != robo)) {
+                ++robo; //useless to move this robot: can't reach goal
+            } else {
+                int dir = 0;
+                for (final int dirIncr : this.directionIncrement) {
+                    if ((prevRobo != robo) || (prevDirBit0 != (dir & 1))) {
+                        final int newRoboPos = this.slide(oldState, oldRoboPos, dir, dirIncr);
+                        //the robot has actually moved
+                        if (oldRoboPos != newRoboPos) {
+                            newState[robo] = newRoboPos;
+                            //the new state is not already known (i.e. stored in knownStates)
+                            if (true == this.knownStates.add(depth, robo, oldRoboPos, newRoboPos, height)) {
+                                if (true == doRecursion) {
+                                    this.dfsRecursionFast(depth1, robo, (dir & 1), newState);
+                                } else {
+                                    this.dfsLastFast(depth1, robo, (dir & 1), newState);
+                                }
+                            }
+                        }
+                    }
+                    ++dir;
+                }
+                newState[robo++] = oldRoboPos;
+            }
+        }
+    }
+    
+    
+    
+    // standard version: supports wildcard goal, solution01 special case and option noRebounds
+    private void dfsLast(final int depth, final int prevRobo, final int prevDirBit0, final int[] oldState, final int[] oldDirs) throws InterruptedException {
+        if (Thread.interrupted()) { throw new InterruptedException(); }
+        this.checkBudget();
+        if ((null != this.enumeration) && (true == this.enumeration.isStopped())) {
+            return; //all-solutions mode: enough solutions found
+        }
+        ++this.numNodes;
+        //move goal robot(s) only
+        for (int robo = this.minRobotLast;  robo < oldState.length;  ++robo) {
+            final int oldRoboPos = oldState[robo];
+            final int oldDir = oldDirs[robo];
+            int dir = 0;
+            for (final int dirIncr : this.directionIncrement) {
+                if (((true == this.optAllowRebounds) || ((oldDir != dir) && (oldDir != (dir ^ 2)))) // (dir + 2) & 3
+                    && ((prevRobo != robo) || (prevDirBit0 != (dir & 1)))) {
+                    final int newRoboPos = this.slide(oldState, oldRoboPos, dir, dirIncr);
+                    //the robot has arrived at the goal (it may have stopped there before, without a perpendicular move)
+                    if ((this.goalPosition == newRoboPos) && (oldRoboPos != newRoboPos) && hasPerpendicularMove(depth, robo, dir)) {
+                        System.arraycopy(oldState, 0, this.states[depth], 0, oldState.length);
+                        this.states[depth][robo] = newRoboPos;
+                        this.buildSolution(depth);
+                    }
+                }
+                ++dir;
+            }
+        }
+    }
+    
+    
+    
+    // fast version: (false == this.isBoardGoalWildcard) && (false == this.isSolution01) && (true == this.optAllowRebounds)
+    private void dfsLastFast(final int depth, final int prevRobo, final int prevDirBit0, final int[] oldState) throws InterruptedException {
+        if (Thread.interrupted()) { throw new InterruptedException(); }
+        this.checkBudget();
+        if ((null != this.enumeration) && (true == this.enumeration.isStopped())) {
+            return; //all-solutions mode: enough solutions found
+        }
+        ++this.numNodes;
+        final int oldRoboPos = oldState[this.goalRobot];
+        int dir = 0;
+        //move goal robot only
+        for (final int dirIncr : this.directionIncrement) {
+            if ((prevRobo != this.goalRobot) || (prevDirBit0 != (dir & 1))) {
+                final int newRoboPos = this.slide(oldState, oldRoboPos, dir, dirIncr);
+                //the robot has moved and arrived at the goal
+                if ((this.goalPosition == newRoboPos) && (oldRoboPos != newRoboPos)) {
+                    System.arraycopy(oldState, 0, this.states[depth], 0, oldState.length);
+                    this.states[depth][this.goalRobot] = newRoboPos;
+                    this.buildSolution(depth);
+                }
+            }
+            ++dir;
+        }
+    }
+    
+    
+    
+    // wildcard version: (true == this.isBoardGoalWildcard) && (false == this.isSolution01)
+    private void dfsRecursionWildcard(final int depth, final int prevRobo, final int prevDirBit0, final int[] oldState, final int oldDirs) throws InterruptedException {
+        ++this.numNodes;
+        final int height = this.depthLimit - depth + 1;
+        int minMovesToGoal = Integer.MAX_VALUE;
+        for (final int pos : oldState) {
+            final int tmp = this.minimumMovesToGoal[pos];
+            if (minMovesToGoal > tmp) { minMovesToGoal = tmp; }
+        }
+        if (minMovesToGoal > height) {
+            ++this.numPrunedMinMoves;
+            return; //useless to move any robot: can't reach goal
+        }
+        if (this.minimumMovesToGoalWithHelpersWildcard(oldState, height) > height) {
+            ++this.numPrunedWithHelper;
+            return; //useless to move any robot: other robots are in the way
+        }
+        final int[] newState = this.states[depth];
+        final int depth1 = depth + 1;
+        final boolean doRecursion = (this.depthLimit > depth1);
+        System.arraycopy(oldState, 0, newState, 0, oldState.length);
+        //move all robots
+        int robo = 0;
+        for (final int oldRoboPos : oldState) {
+            if ((minMovesToGoal == height) && (this.minimumMovesToGoal[oldRoboPos] > height)) {
+                ++robo; //useless to move this robot: no robot could reach the goal afterwards
+            } else {
+                final int oldDir = (oldDirs >>> (robo << 2)) & 7;
+                int dir = 0;
+                for (final int dirIncr : this.directionIncrement) {
+                    if (((true == this.optAllowRebounds) || ((oldDir != dir) && (oldDir != (dir ^ 2)))) // (dir + 2) & 3
+                            && ((prevRobo != robo) || (prevDirBit0 != (dir & 1)))) {
+                        final int newRoboPos = this.slide(oldState, oldRoboPos, dir, dirIncr);
+                        //the robot has actually moved
+                        if (oldRoboPos != newRoboPos) {
+                            newState[robo] = newRoboPos;
+                            //the new state is not already known (i.e. stored in knownStates)
+                            if (true == this.knownStates.add(depth, robo, oldRoboPos, newRoboPos, height)) {
+                                final int newDirs = packMove(oldDirs, robo, dir);
+                                if (true == doRecursion) {
+                                    this.dfsRecursionWildcard(depth1, robo, (dir & 1), newState, newDirs);
+                                } else {
+                                    this.dfsLastWildcard(depth1, robo, (dir & 1), newState, newDirs);
+                                }
+                            }
+                        }
+                    }
+                    ++dir;
+                }
+                newState[robo++] = oldRoboPos;
+            }
+        }
+    }
+    
+    
+    
+    // wildcard version: (true == this.isBoardGoalWildcard) && (false == this.isSolution01)
+    private void dfsLastWildcard(final int depth, final int prevRobo, final int prevDirBit0, final int[] oldState, final int oldDirs) throws InterruptedException {
+        if (Thread.interrupted()) { throw new InterruptedException(); }
+        this.checkBudget();
+        ++this.numNodes;
+        //move the robots that can reach the goal with one move only
+        int robo = 0;
+        for (final int oldRoboPos : oldState) {
+            if (1 == this.minimumMovesToGoal[oldRoboPos]) {
+                final int oldDirBits = (oldDirs >>> (robo << 2)) & 15;
+                final int oldDir = oldDirBits & 7;
+                int dir = 0;
+                for (final int dirIncr : this.directionIncrement) {
+                    if (((true == this.optAllowRebounds) || ((oldDir != dir) && (oldDir != (dir ^ 2)))) // (dir + 2) & 3
+                            && ((prevRobo != robo) || (prevDirBit0 != (dir & 1)))) {
+                        final int newRoboPos = this.slide(oldState, oldRoboPos, dir, dirIncr);
+                        //the robot has arrived at the goal, and it has changed to a perpendicular direction on its way
+                        if ((this.goalPosition == newRoboPos) && (0 != (packMove(oldDirBits, 0, dir) & PACKED_TURNED))) {
+                            System.arraycopy(oldState, 0, this.states[depth], 0, oldState.length);
+                            this.states[depth][robo] = newRoboPos;
+                            this.buildSolution(depth);
+                        }
+                    }
+                    ++dir;
+                }
+            }
+            ++robo;
+        }
+    }
+    
+    
+    
+    // no-rebound version: (false == this.isBoardGoalWildcard) && (false == this.isSolution01) && (false == this.optAllowRebounds)
+    // the robot that moved last can't move again in the same or in the opposite direction, so prevRobo isn't needed.
+    private void dfsRecursionNoRebound(final int depth, final int[] oldState, final int oldDirs) throws InterruptedException {
+        ++this.numNodes;
+        final int minMovesToGoal = this.minimumMovesToGoal[oldState[this.goalRobot]];
+        final int height = this.depthLimit - depth + 1;
+        if (minMovesToGoal > height) {
+            ++this.numPrunedMinMoves;
+            return; //useless to move any robot: can't reach goal
+        }
+        if (this.minimumMovesToGoalWithHelpers(oldState) > height) {
+            ++this.numPrunedWithHelper;
+            return; //useless to move any robot: another robot is in the way
+        }
+        final int[] newState = this.states[depth];
+        final int depth1 = depth + 1;
+        final boolean doRecursion = (this.depthLimit > depth1);
+        System.arraycopy(oldState, 0, newState, 0, oldState.length);
+        //move all robots
+        int robo = 0;
+        for (final int oldRoboPos : oldState) {
+            if ((minMovesToGoal == height) && (this.goalRobot != robo)) {
+                ++robo; //useless to move this robot: can't reach goal
+            } else {
+                final int oldDir = (oldDirs >>> (robo << 2)) & 7;
+                int dir = 0;
+                for (final int dirIncr : this.directionIncrement) {
+                    if ((oldDir != dir) && (oldDir != (dir ^ 2))) { // (dir + 2) & 3
+                        final int newRoboPos = this.slide(oldState, oldRoboPos, dir, dirIncr);
+                        //the robot has actually moved
+                        if (oldRoboPos != newRoboPos) {
+                            newState[robo] = newRoboPos;
+                            //the new state is not already known (i.e. stored in knownStates)
+                            if (true == this.knownStates.add(depth, robo, oldRoboPos, newRoboPos, height)) {
+                                final int newDirs = packMove(oldDirs, robo, dir);
+                                if (true == doRecursion) {
+                                    this.dfsRecursionNoRebound(depth1, newState, newDirs);
+                                } else {
+                                    this.dfsLastNoRebound(depth1, newState, newDirs);
+                                }
+                            }
+                        }
+                    }
+                    ++dir;
+                }
+                newState[robo++] = oldRoboPos;
+            }
+        }
+    }
+    
+    
+    
+    // no-rebound version: (false == this.isBoardGoalWildcard) && (false == this.isSolution01) && (false == this.optAllowRebounds)
+    private void dfsLastNoRebound(final int depth, final int[] oldState, final int oldDirs) throws InterruptedException {
+        if (Thread.interrupted()) { throw new InterruptedException(); }
+        this.checkBudget();
+        ++this.numNodes;
+        final int oldDir = (oldDirs >>> (this.goalRobot << 2)) & 7;
+        if (DIRECTION_NOT_MOVED_YET == oldDir) {
+            return; //the first move of the goal robot has no perpendicular move before it
+        }
+        final int oldRoboPos = oldState[this.goalRobot];
+        //move goal robot only, perpendicular to its last move
+        for (int dir = ((oldDir + 1) & 1);  dir < 4;  dir += 2) {
+            final int newRoboPos = this.slide(oldState, oldRoboPos, dir, this.directionIncrement[dir]);
+            //the robot has arrived at the goal (it may have stopped there before, without a perpendicular move)
+            if ((this.goalPosition == newRoboPos) && (oldRoboPos != newRoboPos)) {
+                System.arraycopy(oldState, 0, this.states[depth], 0, oldState.length);
+                this.states[depth][this.goalRobot] = newRoboPos;
+                this.buildSolution(depth);
+            }
+        }
+    }
+    
+    
+    
+    //wildcard and no-rebound versions: the directions of all robots are packed into an int, 4 bits per robot:
+    //the direction of the last move of the robot (or DIRECTION_NOT_MOVED_YET) and the flag PACKED_TURNED,
+    //which is set when the robot has moved perpendicular to its previous move (see hasPerpendicularMove).
+    private static int packMove(final int packedDirs, final int robo, final int dir) {
+        final int shift = robo << 2;
+        final int oldDir = (packedDirs >>> shift) & 7;
+        final int turned = (((DIRECTION_NOT_MOVED_YET != oldDir) && (0 != ((oldDir ^ dir) & 1))) ? PACKED_TURNED : 0);
+        return (packedDirs & ~(7 << shift)) | ((dir | turned) << shift);
+    }
+    
+    //the packed directions of the robots at the specified depth, made from the directions arrays
+    private int packDirections(final int depth) {
+        int packedDirs = 0;
+        for (int robo = 0;  robo < this.directions[0].length;  ++robo) {
+            packedDirs |= (this.directions[0][robo] << (robo << 2));
+        }
+        for (int i = 1;  i <= depth;  ++i) {
+            for (int robo = 0;  robo < this.directions[i].length;  ++robo) {
+                if (this.directions[i][robo] != this.directions[i - 1][robo]) {
+                    packedDirs = packMove(packedDirs, robo, this.directions[i][robo]);
+                }
+            }
+        }
+        return packedDirs;
+    }
+    
+    
+    
+    //the budget of execute(long, long) is checked every 4096 nodes
+    private void checkBudget() throws BudgetExceededException {
+        if ((0 == (this.numNodes & 0xfff)) && (true == this.hasBudget()) && (true == this.isBudgetExceeded(this.knownStates.getBytesAllocated()))) {
+            throw new BudgetExceededException();
+        }
+    }
+    
+    
+    
+    //stops the search when the budget has run out. it's an InterruptedException,
+    //so that it's passed on like an interrupt by the search methods and by the workers.
+    private static final class BudgetExceededException extends InterruptedException {
+        private static final long serialVersionUID = 1L;
+    }
+    
+    
+    
+    private boolean hasPerpendicularMove(final int depth, final int robot, final int lastDir) {
+        int prevDir = this.directions[0][robot];
+        for (int i = 1;  depth > i;  ++i) {
+            final int thisDir = this.directions[i][robot];
+            if ((((thisDir + 1) & 3) == prevDir) || (((thisDir + 3) & 3) == prevDir)) {
+                return true;
+            }
+            prevDir = thisDir;
+        }
+        if ((((lastDir + 1) & 3) == prevDir) || (((lastDir + 3) & 3) == prevDir)) {
+            return true;
+        }
+        return false;
+    }
+    
+    
+    
+    private void buildSolution(final int depth) {
+        final Solution tmpSolution = new Solution(this.board);
+        int[] state0 = this.states[0].clone();
+        swapGoalLast(state0);
+        for (int i = 0;  i < depth;  ++i) {
+            final int[] state1 = this.states[i + 1].clone();
+            swapGoalLast(state1);
+            tmpSolution.add(new Move(this.board, state0, state1, i));
+            state0 = state1;
+        }
+        final Solution solution = tmpSolution.finish();
+        ++this.numSolutionsFound;
+        //all-solutions mode: different paths may result in the same solution
+        if ((null == this.enumeration) || (true == this.enumeration.add(solution))) {
+            this.lastResultSolutions.add(solution);
+            if (null != this.solutionClaims) {
+                //parallel mode: the keys of the states below the split task, see dfsParallelOrdered()
+                final long[] keys = new long[Math.max(0, depth - SPLIT_DEPTH - 1)];
+                for (int i = 0;  i < keys.length;  ++i) {
+                    keys[i] = this.knownStates.getKey(SPLIT_DEPTH + 1 + i);
+                }
+                this.solutionClaims.add(keys);
+            }
+        }
+        if (true == SolverLog.isEnabled()) {
+            SolverLog.log(tmpSolution.toMovelistString() + " " + tmpSolution.toString() + " finalState=" + this.stateString(states[depth]));
+        }
+    }
+    
+    
+    
+    //all-solutions mode: search the depth of the solutions again, sequentially.
+    //the known states are searched only once per depth, so a state that leads to a solution must be
+    //searched again if it is reached on another path. the workers can't do this, because one of them
+    //could skip a state while another one is still searching it.
+    private void enumerateSolutions() throws InterruptedException {
+        this.enumeration = new Enumeration(this.optAllSolutionsMax, this.optAllSolutionsMilliSeconds);
+        final List<Solution> solutions = this.lastResultSolutions;
+        this.lastResultSolutions = new ArrayList<Solution>();
+        for (final Solution solution : solutions) {
+            if (true == this.enumeration.add(solution)) {
+                this.lastResultSolutions.add(solution);
+            }
+        }
+        try {
+            //special case (isSolution01): the states are not stored, so all solutions have been found already
+            if (false == this.isSolution01) {
+                this.dfsRecursion(1, -1, -1, this.states[0], this.directions[0]);
+            }
+        } finally {
+            this.enumeration = null;
+        }
+    }
+    
+    
+    
+    //all-solutions mode: the distinct solutions, the states that lead to them and the limits
+    private static final class Enumeration {
+        private final int maxSolutions;
+        private final long deadline;
+        private final Set<Solution> solutions = new HashSet<Solution>();
+        private final Set<LiveKey> liveStates = new HashSet<LiveKey>();
+        private boolean isStopped = false;
+        
+        private Enumeration(final int maxSolutions, final long maxMilliSeconds) {
+            this.maxSolutions = maxSolutions;
+            this.deadline = ((maxMilliSeconds > 0) ? System.nanoTime() + maxMilliSeconds * 1000000L : 0);
+        }
+        
+        //returns false if the solution is a duplicate
+        private boolean add(final Solution solution) {
+            if (false == this.solutions.add(solution)) {
+                return false;
+            }
+            if (this.solutions.size() >= this.maxSolutions) {
+                this.isStopped = true;
+            }
+            return true;
+        }
+        
+        private boolean isStopped() {
+            if ((false == this.isStopped) && (0 != this.deadline) && (System.nanoTime() - this.deadline > 0)) {
+                this.isStopped = true;
+            }
+            return this.isStopped;
+        }
+        
+        private boolean isLive(final KnownStates knownStates, final int depth) {
+            return (false == this.liveStates.isEmpty()) && this.liveStates.contains(knownStates.getLiveKey(depth));
+        }
+        
+        private void markLive(final KnownStates knownStates, final int depth) {
+            this.liveStates.add(knownStates.getLiveKey(depth));
+        }
+    }
+    
+    
+    
+    //all-solutions mode: the key of a state at a depth
+    private static final class LiveKey {
+        private final long keyHi, keyLo;
+        private final int depth;
+        
+        private LiveKey(final long keyHi, final long keyLo, final int depth) {
+            this.keyHi = keyHi;
+            this.keyLo = keyLo;
+            this.depth = depth;
+        }
+        
+        @Override
+        public boolean equals(final Object obj) {
+            if (false == (obj instanceof LiveKey)) {
+                return false;
+            }
+            final LiveKey other = (LiveKey)obj;
+            return (this.keyLo == other.keyLo) && (this.keyHi == other.keyHi) && (this.depth == other.depth);
+        }
+        
+        @Override
+        public int hashCode() {
+            final long h = (this.keyLo * 0x9E3779B97F4A7C15L) ^ this.keyHi;
+            return (int)(h ^ (h >>> 32)) + this.depth;
+        }
+    }
+    
+    
+    
+    private class KnownStates {
+        private final AllKeys allKeys;
+        private long numLookups = 0, numStored = 0;    //statistics: KnownStates hits = numLookups - numStored
+        
+        //parallel mode: the workers share the map, but each of them has its own (not thread-safe) KeyMaker
+        public KnownStates(final KeyDepthMap theMap) {
+            if (true == isBoardStateInt32) {
+                this.allKeys = new AllKeysInt(theMap);
+            } else if (true == isBoardStateInt64) {
+                this.allKeys = new AllKeysLong(theMap);
+            } else {
+                this.allKeys = new AllKeysWide(theMap);
+            }
+        }
+        
+        //store the unique keys of all known states
+        private abstract class AllKeys {
+            protected final KeyDepthMap theMap;
+            
+            protected AllKeys(final KeyDepthMap theMap) {
+                this.theMap = theMap;
+            }
+            
+            //compute the key of the state at this depth from scratch
+            public abstract void initKey(final int depth, final int[] state);
+            
+            //compute the key of the state at this depth from the key of its parent state
+            //at (depth - 1), where only robot "robo" has moved; then store it with "height".
+            public abstract boolean add(final int depth, final int robo, final int oldPos, final int newPos, final int height);
+            
+            //the key of the state at this depth, as computed by initKey or add
+            public abstract long getKeyHi(final int depth);
+            public abstract long getKeyLo(final int depth);
+            
+            public long getBytesAllocated() {
+                return this.theMap.allocatedBytes() + this.theMap.allocatedOffHeapBytes();
+            }
+        }
+        //store the unique keys of all known states in 32-bit ints
+        //supports up to 4 robots with a board size of 256 (16*16)
+        private final class AllKeysInt extends AllKeys {
+            private final KeyMakerInt keyMaker = KeyMakerInt.createInstance(board.getNumRobots(), board.sizeNumBits, isBoardGoalWildcard);
+            private final int[] keys = new int[MAX_DEPTH];
+            public AllKeysInt(final KeyDepthMap theMap) {
+                super(theMap);
+            }
+            @Override
+            public final void initKey(final int depth, final int[] state) {
+                this.keys[depth] = this.keyMaker.run(state);
+            }
+            @Override
+            public final boolean add(final int depth, final int robo, final int oldPos, final int newPos, final int height) {
+                final int key = this.keyMaker.runIncremental(this.keys[depth - 1], robo, oldPos, newPos);
+                this.keys[depth] = key;
+                return this.theMap.putIfGreater(key, height);
+            }
+            @Override
+            public final long getKeyHi(final int depth) {
+                return 0;
+            }
+            @Override
+            public final long getKeyLo(final int depth) {
+                return this.keys[depth] & 0xffffffffL;  //unsigned, like the int key in the map
+            }
+        }
+        //store the unique keys of all known states in 64-bit longs
+        //supports more than 4 robots and/or board sizes larger than 256
+        private final class AllKeysLong extends AllKeys {
+            private final KeyMakerLong keyMaker = KeyMakerLong.createInstance(board.getNumRobots(), board.sizeNumBits, isBoardGoalWildcard);
+            private final long[] keys = new long[MAX_DEPTH];
+            public AllKeysLong(final KeyDepthMap theMap) {
+                super(theMap);
+            }
+            @Override
+            public final void initKey(final int depth, final int[] state) {
+                this.keys[depth] = this.keyMaker.run(state);
+            }
+            @Override
+            public final boolean add(final int depth, final int robo, final int oldPos, final int newPos, final int height) {
+                final long key = this.keyMaker.runIncremental(this.keys[depth - 1], robo, oldPos, newPos);
+                this.keys[depth] = key;
+                return this.theMap.putIfGreater(key, height);
+            }
+            @Override
+            public final long getKeyHi(final int depth) {
+                return 0;
+            }
+            @Override
+            public final long getKeyLo(final int depth) {
+                return this.keys[depth];
+            }
+        }
+        //store the unique keys of all known states in two 64-bit longs
+        //supports more robots than fit into a long key (up to 128 bits)
+        private final class AllKeysWide extends AllKeys {
+            private final KeyMakerWide keyMaker = KeyMakerWide.createInstance(board.getNumRobots(), board.sizeNumBits, isBoardGoalWildcard);
+            private final long[] keys = new long[MAX_DEPTH * 2];   //lower and upper 64 bits
+            public AllKeysWide(final KeyDepthMap theMap) {
+                super(theMap);
+            }
+            @Override
+            public final void initKey(final int depth, final int[] state) {
+                this.keyMaker.run(state, this.keys, depth * 2);
+            }
+            @Override
+            public final boolean add(final int depth, final int robo, final int oldPos, final int newPos, final int height) {
+                final int index = depth * 2;
+                this.keyMaker.runIncremental(this.keys, index - 2, index, robo, oldPos, newPos);
+                return this.theMap.putIfGreater(this.keys[index + 1], this.keys[index], height);
+            }
+            @Override
+            public final long getKeyHi(final int depth) {
+                return this.keys[depth * 2 + 1];
+            }
+            @Override
+            public final long getKeyLo(final int depth) {
+                return this.keys[depth * 2];
+            }
+        }
+
+        public void initKey(int depth, int[] state) {
+            this.allKeys.initKey(depth, state);
+        }
+        public boolean add(int depth, int robo, int oldPos, int newPos, int height) {
+            ++this.numLookups;
+            if (true == this.allKeys.add(depth, robo, oldPos, newPos, height)) {
+                ++this.numStored;
+                return true;
+            }
+            return false;
+        }
+        public final int size() {
+            return this.allKeys.theMap.size();
+        }
+        public final int getMegaBytesAllocated() {
+            return (int)((this.allKeys.getBytesAllocated() + (1 << 20) - 1) >> 20);
+        }
+        public final long getBytesAllocated() {
+            return this.allKeys.getBytesAllocated();
+        }
+        public final KeyDepthMap getMap() {
+            return this.allKeys.theMap;
+        }
+        public final void addCounters(final KnownStates other) {
+            this.numLookups += other.numLookups;
+            this.numStored += other.numStored;
+        }
+        public final long getKey(final int depth) {
+            return this.allKeys.getKeyLo(depth);    //parallel mode: the keys fit into a long
+        }
+        public final LiveKey getLiveKey(final int depth) {
+            return new LiveKey(this.allKeys.getKeyHi(depth), this.allKeys.getKeyLo(depth), depth);
+        }
+    }
+
+}
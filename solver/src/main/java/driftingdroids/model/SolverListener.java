@@ -0,0 +1,47 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+/**
+ * This interface receives the progress of a running <code>Solver</code>.
+ * <p>
+ * The methods are called by the thread that executes the solver, so they should
+ * return quickly and must not block (for example by waiting for the UI thread).
+ */
+public interface SolverListener {
+
+    /**
+     * Called when a search depth has been searched completely without finding a solution:
+     * there is no solution with <code>depthLimit</code> moves or less.
+     * It's not called for the depth where the solutions are found;
+     * they are reported by <code>onSolutionFound</code>.
+     *
+     * @param depthLimit - the number of moves that has been searched
+     * @param storedStates - number of states stored so far (0 if the state map doesn't count them)
+     * @param megaBytes - memory allocated for the stored states
+     * @param milliSeconds - time since the solver has been started
+     */
+    public void onDepthFinished(int depthLimit, int storedStates, int megaBytes, long milliSeconds);
+
+    /**
+     * Called for each solution that has been found.
+     *
+     * @param solution - the solution
+     */
+    public void onSolutionFound(Solution solution);
+}
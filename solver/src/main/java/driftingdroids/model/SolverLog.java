@@ -0,0 +1,73 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+/**
+ * The log output of the solver goes to a pluggable sink, which is not set by default,
+ * so the solver is silent.
+ * <p>
+ * Callers should check <code>isEnabled()</code> before they build the message,
+ * so that no strings are formatted while the log is switched off.
+ */
+public final class SolverLog {
+
+    /**
+     * Receives the log messages. It may be called by several solver threads at the same time.
+     */
+    public interface Sink {
+        public void log(String message);
+    }
+
+    /**
+     * A sink that writes the messages to <code>System.out</code>.
+     */
+    public static final Sink STDOUT = new Sink() {
+        @Override
+        public void log(String message) {
+            System.out.println(message);
+        }
+    };
+
+    private static volatile Sink sink = null;
+
+
+
+    private SolverLog() { }
+
+    /**
+     * @param newSink the sink that receives the log messages, or null to switch the log off
+     */
+    public static void setSink(final Sink newSink) {
+        sink = newSink;
+    }
+
+    public static Sink getSink() {
+        return sink;
+    }
+
+    public static boolean isEnabled() {
+        return (null != sink);
+    }
+
+    public static void log(final String message) {
+        final Sink s = sink;
+        if (null != s) {
+            s.log(message);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+/**
+ * A pool of solvers that are reused for other boards (see <code>Solver.reset()</code>),
+ * so that solving one board after the other doesn't allocate the large internal data structures
+ * (the map of known states, the precomputed tables and the search stacks) again for each board.
+ * <p>
+ * A pooled solver keeps the memory of the largest search it has done.
+ * All methods are thread-safe, but a solver must be released only after its
+ * <code>execute()</code> has returned, and it must not be used after it has been released.
+ */
+public final class SolverPool {
+
+    private final int numThreads;
+    private final Solver[] solvers;
+    private int size = 0;
+
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param maxSize the maximum number of solvers that are kept
+     * @param numThreads number of threads of the solvers, see <code>Solver.createInstance(Board, int)</code>
+     */
+    public SolverPool(final int maxSize, final int numThreads) {
+        this.numThreads = numThreads;
+        this.solvers = new Solver[Math.max(0, maxSize)];
+    }
+
+
+    /**
+     * Returns a solver for the specified board: a released solver that has been reset,
+     * or a new one from <code>Solver.createInstance(Board, int)</code> if there is none.
+     *
+     * @param board the board that is to be solved
+     * @return the solver
+     */
+    public Solver obtain(final Board board) {
+        Solver solver;
+        while (null != (solver = this.poll())) {
+            if (true == solver.reset(board)) {  //outside of the lock: it may have to clear a large map
+                return solver;
+            }
+        }
+        return Solver.createInstance(board, this.numThreads);
+    }
+
+
+    /**
+     * Returns a solver to this pool. It is dropped if the pool is full
+     * or if it can't be reset for another board.
+     * Its resources that are not freed by the garbage collector in time are released
+     * in both cases (see <code>Solver.releaseResources()</code>).
+     *
+     * @param solver the solver that is no longer used; may be null
+     */
+    public void release(final Solver solver) {
+        if (null != solver) {
+            solver.releaseResources();
+        }
+        if (false == (solver instanceof SolverIDDFS)) {
+            return;     //SolverBFS can't be reset
+        }
+        synchronized (this) {
+            if (this.size < this.solvers.length) {
+                this.solvers[this.size++] = solver;
+            }
+        }
+    }
+
+
+    private synchronized Solver poll() {
+        if (0 == this.size) {
+            return null;
+        }
+        final Solver solver = this.solvers[--this.size];
+        this.solvers[this.size] = null;
+        return solver;
+    }
+}
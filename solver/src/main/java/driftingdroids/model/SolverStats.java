@@ -0,0 +1,161 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.Arrays;
+
+/**
+ * Counters of one run of <code>Solver.execute()</code>.
+ * <p>
+ * The solver counts in plain fields of each search thread and copies the sums
+ * into this object when a depth has been finished, so the search itself isn't slowed down.
+ * The statistics are collected only if they have been switched on with
+ * <code>Solver.setOptionCollectStats(true)</code>.
+ */
+public final class SolverStats {
+
+    private long[] nodesPerDepth = new long[0];
+    private long[] nanosPerDepth = new long[0];
+    private int lastDepth = 0;
+    private long prunedMinMovesToGoal = 0;
+    private long prunedWithHelper = 0;
+    private long knownStatesHits = 0;
+    private long knownStatesMisses = 0;
+    private long keyDepthMapBytes = 0;
+    private long keyDepthMapOffHeapBytes = 0;
+    private int solutionsFound = 0;
+
+
+
+    //called by the solver when a depth has been finished; the counters are the totals since the start.
+    void finishDepth(final int depth, final long totalNodes, final long nanos,
+            final long prunedMinMovesToGoal, final long prunedWithHelper,
+            final long knownStatesHits, final long knownStatesMisses, final long keyDepthMapBytes, final long keyDepthMapOffHeapBytes) {
+        if (depth >= this.nodesPerDepth.length) {
+            this.nodesPerDepth = Arrays.copyOf(this.nodesPerDepth, depth + 1);
+            this.nanosPerDepth = Arrays.copyOf(this.nanosPerDepth, depth + 1);
+        }
+        long previousNodes = 0;
+        for (int d = 0;  d < depth;  ++d) { previousNodes += this.nodesPerDepth[d]; }
+        this.nodesPerDepth[depth] = totalNodes - previousNodes;
+        this.nanosPerDepth[depth] = nanos;
+        this.lastDepth = depth;
+        this.prunedMinMovesToGoal = prunedMinMovesToGoal;
+        this.prunedWithHelper = prunedWithHelper;
+        this.knownStatesHits = knownStatesHits;
+        this.knownStatesMisses = knownStatesMisses;
+        this.keyDepthMapBytes = keyDepthMapBytes;
+        this.keyDepthMapOffHeapBytes = keyDepthMapOffHeapBytes;
+    }
+
+    void setSolutionsFound(final int solutionsFound) {
+        this.solutionsFound = solutionsFound;
+    }
+
+
+
+    /**
+     * @return the last depth that has been searched (0 if nothing has been searched)
+     */
+    public int getLastDepth() {
+        return this.lastDepth;
+    }
+
+    /**
+     * @param depth - the depth limit (IDDFS) or level (BFS)
+     * @return number of nodes that have been expanded while this depth was searched
+     */
+    public long getNodes(final int depth) {
+        return ((depth < this.nodesPerDepth.length) ? this.nodesPerDepth[depth] : 0);
+    }
+
+    public long getTotalNodes() {
+        long result = 0;
+        for (final long nodes : this.nodesPerDepth) { result += nodes; }
+        return result;
+    }
+
+    /**
+     * @param depth - the depth limit (IDDFS) or level (BFS)
+     * @return time spent on this depth, in milliseconds
+     */
+    public long getMilliSeconds(final int depth) {
+        return ((depth < this.nanosPerDepth.length) ? this.nanosPerDepth[depth] / 1000000L : 0);
+    }
+
+    /**
+     * @return number of states that have been cut because <code>minimumMovesToGoal</code> exceeds the remaining depth
+     */
+    public long getPrunedMinMovesToGoal() {
+        return this.prunedMinMovesToGoal;
+    }
+
+    /**
+     * @return number of states that have been cut by the goal/helper robot table
+     */
+    public long getPrunedWithHelper() {
+        return this.prunedWithHelper;
+    }
+
+    /**
+     * @return number of states that were already known (at the same or a smaller depth)
+     */
+    public long getKnownStatesHits() {
+        return this.knownStatesHits;
+    }
+
+    /**
+     * @return number of states that have been added to (or updated in) the known states
+     */
+    public long getKnownStatesMisses() {
+        return this.knownStatesMisses;
+    }
+
+    /**
+     * @return bytes of the known states map on the Java heap
+     */
+    public long getKeyDepthMapBytes() {
+        return this.keyDepthMapBytes;
+    }
+
+    /**
+     * @return bytes of the known states map outside of the Java heap (direct buffers and memory-mapped files)
+     */
+    public long getKeyDepthMapOffHeapBytes() {
+        return this.keyDepthMapOffHeapBytes;
+    }
+
+    public int getSolutionsFound() {
+        return this.solutionsFound;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder s = new StringBuilder();
+        s.append("depth=").append(this.lastDepth);
+        s.append(" nodes=").append(this.getTotalNodes());
+        s.append(" prunedMinMovesToGoal=").append(this.prunedMinMovesToGoal);
+        s.append(" prunedWithHelper=").append(this.prunedWithHelper);
+        s.append(" knownStatesHits=").append(this.knownStatesHits);
+        s.append(" knownStatesMisses=").append(this.knownStatesMisses);
+        s.append(" keyDepthMapBytes=").append(this.keyDepthMapBytes);
+        s.append(" keyDepthMapOffHeapBytes=").append(this.keyDepthMapOffHeapBytes);
+        s.append(" solutions=").append(this.solutionsFound);
+        return s.toString();
+    }
+}
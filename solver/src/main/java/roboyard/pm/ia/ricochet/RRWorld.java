@@ -1,6 +1,5 @@
 package roboyard.pm.ia.ricochet;
 
-import roboyard.eclabs.MainActivity;
 import roboyard.pm.ia.AWorld;
 
 /**
@@ -9,16 +8,21 @@ import roboyard.pm.ia.AWorld;
  * @author Pierre Michel
  */
 public class RRWorld extends AWorld {
+
+  private final int boardSizeX;
+  private final int boardSizeY;
   
-  public RRWorld(){
-    this.grid = new RRGridCell[MainActivity.boardSizeX][MainActivity.boardSizeY];
-    for(int i = 0; i< MainActivity.boardSizeX; i++){
-      for(int j=0; j<MainActivity.boardSizeY; j++){
+  public RRWorld(int boardSizeX, int boardSizeY){
+    this.boardSizeX = boardSizeX;
+    this.boardSizeY = boardSizeY;
+    this.grid = new RRGridCell[boardSizeX][boardSizeY];
+    for(int i = 0; i< boardSizeX; i++){
+      for(int j=0; j<boardSizeY; j++){
         RRGridCell nc = new RRGridCell();
         if(i==0){ nc.setWall(ERRGameMove.LEFT, false); }
         if(j==0){ nc.setWall(ERRGameMove.UP, false); }
-        if(i==MainActivity.boardSizeX-1){ nc.setWall(ERRGameMove.RIGHT, false); }
-        if(j==MainActivity.boardSizeX-1){ nc.setWall(ERRGameMove.DOWN, false); }
+        if(i==boardSizeX-1){ nc.setWall(ERRGameMove.RIGHT, false); }
+        if(j==boardSizeY-1){ nc.setWall(ERRGameMove.DOWN, false); }
         this.grid[i][j] = nc;
       }
     }
@@ -38,9 +42,9 @@ public class RRWorld extends AWorld {
   }
   
   public void setVerticalWall(int x, int y){
-    if(y < MainActivity.boardSizeY)
+    if(y < boardSizeY)
     {
-      if(x < MainActivity.boardSizeX)
+      if(x < boardSizeX)
         this.grid[x][y].setWall(ERRGameMove.LEFT, false);
       if((x-1)>0)
         this.grid[x-1][y].setWall(ERRGameMove.RIGHT, false);
@@ -48,9 +52,9 @@ public class RRWorld extends AWorld {
   }
   
   public void setHorizontalWall(int x, int y){
-    if(x < MainActivity.boardSizeX)
+    if(x < boardSizeX)
     {
-      if(y < MainActivity.boardSizeY)
+      if(y < boardSizeY)
         this.grid[x][y].setWall(ERRGameMove.UP, false);
       if((y-1)>0)
         this.grid[x][y-1].setWall(ERRGameMove.DOWN, false);
@@ -80,12 +84,12 @@ public class RRWorld extends AWorld {
           }
           break;
         case 2: //RIGHT
-          if(x!=MainActivity.boardSizeX-1 && this.grid[x+1][y].hasPiece()){
+          if(x!=boardSizeX-1 && this.grid[x+1][y].hasPiece()){
             keepMoving = false;
           }
           break;
         case 4: //DOWN
-          if(y!=MainActivity.boardSizeY-1 && this.grid[x][y+1].hasPiece()){
+          if(y!=boardSizeY-1 && this.grid[x][y+1].hasPiece()){
             keepMoving = false;
           }
           break;
@@ -169,9 +173,9 @@ public class RRWorld extends AWorld {
     int number = 0;
     Boolean isFinished = false;
     
-    for(i = 0; i < MainActivity.boardSizeX; i++)
+    for(i = 0; i < boardSizeX; i++)
     {
-        for(j = 0; j < MainActivity.boardSizeY; j++)
+        for(j = 0; j < boardSizeY; j++)
         {
             grid[i][j].setPrecomutedNumber(-1);
         }
@@ -188,9 +192,9 @@ public class RRWorld extends AWorld {
     while(!isFinished)
     {
         
-        for(i = 0; i < MainActivity.boardSizeX; i++)
+        for(i = 0; i < boardSizeX; i++)
         {
-            for(j = 0; j < MainActivity.boardSizeY; j++)
+            for(j = 0; j < boardSizeY; j++)
             {
                 if(grid[i][j].getPrecomutedNumber() == number)
                 {
@@ -211,7 +215,7 @@ public class RRWorld extends AWorld {
                     
                     stop = false;
                     k = i;
-                    while(k < MainActivity.boardSizeX-1 && !stop)
+                    while(k < boardSizeX-1 && !stop)
                     {
                         if((grid[k][j].getWall(ERRGameMove.RIGHT)) && grid[k+1][j].getPrecomutedNumber() == -1)
                         {
@@ -240,7 +244,7 @@ public class RRWorld extends AWorld {
                     
                     stop = false;
                     k = j;
-                    while(k < MainActivity.boardSizeX-1 && !stop)
+                    while(k < boardSizeX-1 && !stop)
                     {
                         if((grid[i][k].getWall(ERRGameMove.DOWN)) && grid[i][k+1].getPrecomutedNumber() == -1)
                         {
@@ -262,9 +266,9 @@ public class RRWorld extends AWorld {
   
   private Boolean checkIfFinished()
   {
-    for(int i = 0; i < MainActivity.boardSizeX; i++)
+    for(int i = 0; i < boardSizeX; i++)
     {
-        for(int j = 0; j < MainActivity.boardSizeY; j++)
+        for(int j = 0; j < boardSizeY; j++)
         {
             if(grid[i][j].getPrecomutedNumber() == -1)
                 return false;
@@ -0,0 +1,77 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * <code>KeyDepthMapDenseRanked</code> must store the same values as a map on the Java heap,
+ * including the values above 14 that are escaped to its hash table.
+ * A 9x9 part of a board is used (with the obstacles of the center), so that the array is small.
+ */
+public class KeyDepthMapDenseRankedTest {
+
+    private static final int WIDTH = 9, HEIGHT = 9;
+
+
+
+    @Test(timeout = 60000)
+    public void testSameAsReference() {
+        final Board board = createBoard();
+        assertTrue(board.isObstacle(7 + 7 * WIDTH));
+        final KeyDepthMapDenseRanked map = new KeyDepthMapDenseRanked(board);
+        final int[] keys = KeyDepthMapReference.createKeys(board, new Random(1));
+        KeyDepthMapReference.checkSameAsReference(map, keys, new Random(2));
+        //after reset() the map is empty again
+        assertTrue(map.reset(board));
+        assertEquals(0, map.size());
+        KeyDepthMapReference.checkSameAsReference(map, keys, new Random(3));
+    }
+
+
+
+    @Test(timeout = 120000)
+    public void testSolver() throws InterruptedException {
+        final Board board = createBoard();
+        final Random random = new Random(1);
+        for (int i = 0;  i < 20;  ++i) {
+            board.setRobots(KeyDepthMapReference.randomState(board, random));
+            if (true == board.isSolution01()) {
+                continue;
+            }
+            final String expected = new SolverIDDFS(board, 1).execute().get(0).toMovelistString();
+            try {
+                KeyDepthMapFactory.setDefaultClass(KeyDepthMapDenseRanked.class);
+                assertEquals(expected, new SolverIDDFS(board, 1).execute().get(0).toMovelistString());
+            } finally {
+                KeyDepthMapFactory.setDefaultClass(KeyDepthMapTrieSpecial.class);
+            }
+        }
+    }
+
+
+
+    private static Board createBoard() {
+        return Board.createBoardFreestyle(Board.createBoardGameID(KeyDepthMapReference.GAME_ID), WIDTH, HEIGHT, 4);
+    }
+}
@@ -0,0 +1,84 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * <code>KeyDepthMapHashBounded</code> must store the same values as a map on the Java heap
+ * while it's within its memory budget. After that it may forget keys,
+ * but it must never reject a value unless a value at least as high has been put before.
+ */
+public class KeyDepthMapHashBoundedTest {
+
+    private static final int KEY_BITS = 40;
+    private static final int NUM_KEYS = 400000;
+    private static final int NUM_PUTS = 2000000;
+
+
+
+    @Test(timeout = 60000)
+    public void testSameAsReference() {
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        final KeyDepthMapHashBounded map = new KeyDepthMapHashBounded(board.getNumRobots() * board.sizeNumBits, 64L << 20);
+        final int[] keys = KeyDepthMapReference.createKeys(board, new Random(1));
+        KeyDepthMapReference.checkSameAsReference(map, keys, new Random(2));
+        assertEquals(0, map.getNumForgotten());
+    }
+
+
+
+    @Test(timeout = 60000)
+    public void testBudgetExceeded() {
+        //2 MiB: the table grows twice, and then it has to forget keys
+        final long byteBudget = 2L << 20;
+        final KeyDepthMapHashBounded map = new KeyDepthMapHashBounded(KEY_BITS, byteBudget);
+        final Random random = new Random(1);
+        final long[] keys = new long[NUM_KEYS];
+        for (int i = 0;  i < keys.length;  ++i) {
+            keys[i] = random.nextLong() & ((1L << KEY_BITS) - 1);
+        }
+        final KeyDepthMapReference reference = new KeyDepthMapReference();
+        for (int i = 0;  i < NUM_PUTS;  ++i) {
+            final long key = keys[random.nextInt(keys.length)];
+            final int value = 1 + random.nextInt(255);
+            //a forgotten key may be reported as new, but a known key is never reported as missing
+            final boolean isPlacedReference = reference.putIfGreater(key, value);
+            final boolean isPlaced = map.putIfGreater(key, value);
+            if (true == isPlacedReference) {
+                assertEquals(true, isPlaced);
+            }
+        }
+        assertTrue(map.getNumForgotten() > 0);
+        assertEquals(byteBudget, map.allocatedBytes());
+        assertTrue(map.size() <= (byteBudget >>> 3));
+        //after reset() the map is empty again and keeps its table
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        assertTrue(map.reset(board));
+        assertEquals(0, map.size());
+        assertEquals(0, map.getNumForgotten());
+        assertEquals(byteBudget, map.allocatedBytes());
+        final int[] boardKeys = KeyDepthMapReference.createKeys(board, new Random(2));
+        KeyDepthMapReference.checkSameAsReference(map, boardKeys, new Random(3));
+    }
+}
@@ -0,0 +1,88 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * <code>KeyDepthMapHashRobinHood</code> must store the same values as a map on the Java heap,
+ * also while the entries of its old table are being moved to the grown table.
+ */
+public class KeyDepthMapHashRobinHoodTest {
+
+    private static final int KEY_BITS = 40;
+    private static final int NUM_KEYS = 400000;
+    private static final int NUM_PUTS = 2000000;
+
+
+
+    @Test(timeout = 60000)
+    public void testSameAsReference() {
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        final KeyDepthMapHashRobinHood map = new KeyDepthMapHashRobinHood(board.getNumRobots() * board.sizeNumBits);
+        final int[] keys = KeyDepthMapReference.createKeys(board, new Random(1));
+        KeyDepthMapReference.checkSameAsReference(map, keys, new Random(2));
+        //after reset() the map is empty again
+        assertTrue(map.reset(board));
+        assertEquals(0, map.size());
+        KeyDepthMapReference.checkSameAsReference(map, keys, new Random(3));
+    }
+
+
+
+    @Test(timeout = 60000)
+    public void testSameAsReferenceGrowing() {
+        final KeyDepthMapHashRobinHood map = new KeyDepthMapHashRobinHood(KEY_BITS);
+        final Random random = new Random(1);
+        final long[] keys = new long[NUM_KEYS];
+        for (int i = 0;  i < keys.length;  ++i) {
+            keys[i] = random.nextLong() & ((1L << KEY_BITS) - 1);
+        }
+        final KeyDepthMapReference reference = new KeyDepthMapReference();
+        final long initialBytes = map.allocatedBytes();
+        int numPutsWhileMoving = 0;
+        for (int i = 0;  i < NUM_PUTS;  ++i) {
+            final long key = keys[random.nextInt(keys.length)];
+            final int value = 1 + (random.nextBoolean() ? random.nextInt(14) : random.nextInt(255));
+            assertEquals(reference.putIfGreater(key, value), map.putIfGreater(key, value));
+            //the old and the new table are both allocated while the entries are moved: 1.5 times a power of two
+            if (Long.bitCount(map.allocatedBytes()) > 1) {
+                ++numPutsWhileMoving;
+            }
+        }
+        assertTrue(map.allocatedBytes() > initialBytes);
+        assertTrue(numPutsWhileMoving > 0);
+        assertEquals(reference.size(), map.size());
+        //the stored value is the largest value that is rejected
+        for (final long key : keys) {
+            final int value = reference.get(key);
+            if (0 != value) {   //0 means missing: not a valid value to put
+                assertEquals(false, map.putIfGreater(key, value));
+            }
+            if (value < 255) {
+                assertEquals(true, map.putIfGreater(key, value + 1));
+                reference.putIfGreater(key, value + 1);   //the key may be in the array more than once
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+/**
+ * A plain <code>HashMap</code> with the semantics of <code>KeyDepthMap.putIfGreater</code>,
+ * used by the tests to check the results of the real implementations.
+ * The values are 1 ... 255, because the implementations use the value 0 for missing keys.
+ * The static methods are the common part of the tests of the <code>KeyDepthMap</code> implementations.
+ */
+final class KeyDepthMapReference {
+
+    static final String GAME_ID = "201F+41+72243035+EA";
+    static final int NUM_STATES = 20000;
+    static final int NUM_PUTS = 200000;
+
+    private final Map<Long, Integer> values = new HashMap<Long, Integer>();
+
+
+
+    /**
+     * @return the expected result of <code>putIfGreater</code> of the same key and value
+     */
+    boolean putIfGreater(final long key, final int byteValue) {
+        final Integer prevValue = this.values.get(Long.valueOf(key));
+        if ((null != prevValue) && (byteValue <= prevValue.intValue())) {
+            return false;
+        }
+        this.values.put(Long.valueOf(key), Integer.valueOf(byteValue));
+        return true;
+    }
+
+
+
+    /**
+     * @return the value of the key, or 0 if the map doesn't contain it
+     */
+    int get(final long key) {
+        final Integer value = this.values.get(Long.valueOf(key));
+        return (null == value ? 0 : value.intValue());
+    }
+
+
+
+    int size() {
+        return this.values.size();
+    }
+
+
+
+    /**
+     * Creates a random state: the robots are on distinct squares that are not obstacles.
+     */
+    static int[] randomState(final Board board, final Random random) {
+        final int[] state = new int[board.getNumRobots()];
+        for (int robo = 0;  robo < state.length;  ++robo) {
+            boolean isFree;
+            do {
+                state[robo] = random.nextInt(board.size);
+                isFree = (false == board.isObstacle(state[robo]));
+                for (int other = 0;  other < robo;  ++other) {
+                    if (state[other] == state[robo]) { isFree = false; }
+                }
+            } while (false == isFree);
+        }
+        return state;
+    }
+
+
+
+    /**
+     * Creates the <code>int</code> keys of <code>NUM_STATES</code> random states, some of them may be equal.
+     */
+    static int[] createKeys(final Board board, final Random random) {
+        final KeyMakerInt keyMaker = KeyMakerInt.createInstance(board.getNumRobots(), board.sizeNumBits, false);
+        final int[] keys = new int[NUM_STATES];
+        for (int i = 0;  i < keys.length;  ++i) {
+            keys[i] = keyMaker.run(randomState(board, random));
+        }
+        return keys;
+    }
+
+
+
+    /**
+     * Puts <code>NUM_PUTS</code> random values of the keys into the map and into a new reference map,
+     * and checks that they return the same results.
+     * The values are mostly small, like the heights stored by the solver.
+     *
+     * @return the reference map
+     */
+    static KeyDepthMapReference putRandomValues(final KeyDepthMap map, final int[] keys, final Random random) {
+        final KeyDepthMapReference reference = new KeyDepthMapReference();
+        for (int i = 0;  i < NUM_PUTS;  ++i) {
+            final int key = keys[random.nextInt(keys.length)];
+            final int value = 1 + (random.nextBoolean() ? random.nextInt(14) : random.nextInt(255));
+            assertEquals(reference.putIfGreater(key, value), map.putIfGreater(key, value));
+        }
+        return reference;
+    }
+
+
+
+    /**
+     * Checks the values of the keys without <code>get()</code>, which most maps don't have:
+     * the stored value is the largest value that is rejected.
+     */
+    static void checkStoredValues(final KeyDepthMap map, final KeyDepthMapReference reference, final int[] keys) {
+        for (final int key : keys) {
+            final int value = reference.get(key);
+            if (0 != value) {   //0 means missing: not a valid value to put
+                assertEquals(false, map.putIfGreater(key, value));
+            }
+            if (value < 255) {
+                assertEquals(true, map.putIfGreater(key, value + 1));
+                reference.putIfGreater(key, value + 1);   //the key may be in the array more than once
+            }
+        }
+    }
+
+
+
+    /**
+     * <code>putRandomValues</code>, then the size and <code>checkStoredValues</code>.
+     */
+    static void checkSameAsReference(final KeyDepthMap map, final int[] keys, final Random random) {
+        final KeyDepthMapReference reference = putRandomValues(map, keys, random);
+        assertEquals(reference.size(), map.size());
+        checkStoredValues(map, reference, keys);
+    }
+}
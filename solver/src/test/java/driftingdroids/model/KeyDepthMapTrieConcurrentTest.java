@@ -0,0 +1,87 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+/**
+ * <code>KeyDepthMapTrieConcurrent</code> must behave like a map that is locked on every call,
+ * also if several threads put the same keys at the same time.
+ * (<code>size()</code> is not checked: this map doesn't count its elements.)
+ */
+public class KeyDepthMapTrieConcurrentTest {
+
+    private static final int NUM_THREADS = 4;
+
+
+
+    @Test(timeout = 60000)
+    public void testSameAsReference() {
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        final KeyDepthMapTrieConcurrent map = new KeyDepthMapTrieConcurrent(board);
+        final int[] keys = KeyDepthMapReference.createKeys(board, new Random(1));
+        final KeyDepthMapReference reference = KeyDepthMapReference.putRandomValues(map, keys, new Random(2));
+        for (final int key : keys) {
+            assertEquals(reference.get(key), map.get(key));
+        }
+    }
+
+
+
+    @Test(timeout = 60000)
+    public void testConcurrentPuts() throws InterruptedException {
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        final KeyDepthMapTrieConcurrent map = new KeyDepthMapTrieConcurrent(board);
+        final int[] keys = KeyDepthMapReference.createKeys(board, new Random(1));
+        //every thread puts random values of random keys, and then the value 255 of all keys
+        final AtomicIntegerArray numPlacedMax = new AtomicIntegerArray(keys.length);
+        final Thread[] threads = new Thread[NUM_THREADS];
+        for (int t = 0;  t < threads.length;  ++t) {
+            final Random random = new Random(10 + t);
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0;  i < KeyDepthMapReference.NUM_PUTS;  ++i) {
+                        final int index = random.nextInt(keys.length);
+                        final int value = 1 + random.nextInt(255);
+                        if ((true == map.putIfGreater(keys[index], value)) && (255 == value)) {
+                            numPlacedMax.incrementAndGet(index);
+                        }
+                    }
+                    for (int index = 0;  index < keys.length;  ++index) {
+                        if (true == map.putIfGreater(keys[index], 255)) {
+                            numPlacedMax.incrementAndGet(index);
+                        }
+                    }
+                }
+            };
+        }
+        for (final Thread thread : threads) { thread.start(); }
+        for (final Thread thread : threads) { thread.join(); }
+        //no update has been lost, and only one thread has placed the value 255 of each key
+        for (int index = 0;  index < keys.length;  ++index) {
+            assertEquals(255, map.get(keys[index]));
+            assertEquals(1, numPlacedMax.get(index));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * <code>KeyDepthMapTrieOffHeap</code> must store the same values as a map on the Java heap,
+ * also after some of its segments have been spilled to the memory-mapped file.
+ */
+public class KeyDepthMapTrieOffHeapTest {
+
+    private static final File SPILL_DIRECTORY = new File(System.getProperty("java.io.tmpdir"));
+
+
+
+    @Test(timeout = 60000)
+    public void testSameAsReference() {
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        final KeyDepthMapTrieOffHeap map = new KeyDepthMapTrieOffHeap(board, 64L << 20, null);
+        final int[] keys = KeyDepthMapReference.createKeys(board, new Random(1));
+        KeyDepthMapReference.checkSameAsReference(map, keys, new Random(2));
+        assertEquals(0, map.spilledBytes());
+    }
+
+
+
+    @Test(timeout = 60000)
+    public void testSameAsReferenceSpilled() {
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        //2 MiB: the map keeps only two segments in direct buffers
+        final KeyDepthMapTrieOffHeap map = new KeyDepthMapTrieOffHeap(board, 2L << 20, SPILL_DIRECTORY);
+        final int[] keys = KeyDepthMapReference.createKeys(board, new Random(1));
+        KeyDepthMapReference.checkSameAsReference(map, keys, new Random(2));
+        assertTrue(map.spilledBytes() > 0);
+        map.close();
+    }
+
+
+
+    @Test(timeout = 120000)
+    public void testSolverSpilled() throws InterruptedException {
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        final String expected = new SolverIDDFS(board, 1).execute().get(0).toMovelistString();
+        try {
+            KeyDepthMapTrieOffHeap.setDefaultRamBudget(2L << 20);
+            KeyDepthMapTrieOffHeap.setDefaultSpillDirectory(SPILL_DIRECTORY);
+            KeyDepthMapFactory.setDefaultClass(KeyDepthMapTrieOffHeap.class);
+            final Solver solver = new SolverIDDFS(board, 1);
+            assertEquals(expected, solver.execute().get(0).toMovelistString());
+            //the closed map is not reused: the next search creates a new one
+            solver.releaseResources();
+            assertEquals(expected, solver.execute().get(0).toMovelistString());
+            //a map that can't be reset is closed and replaced
+            assertEquals(expected, solver.execute().get(0).toMovelistString());
+            solver.releaseResources();
+        } finally {
+            KeyDepthMapFactory.setDefaultClass(KeyDepthMapTrieSpecial.class);
+            KeyDepthMapTrieOffHeap.setDefaultSpillDirectory(null);
+            KeyDepthMapTrieOffHeap.setDefaultRamBudget(64L << 20);
+        }
+    }
+}
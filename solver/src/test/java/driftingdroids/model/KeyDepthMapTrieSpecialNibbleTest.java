@@ -0,0 +1,90 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * <code>KeyDepthMapTrieSpecialNibble</code> must store the same values as a map on the Java heap,
+ * including the values of 15 and more that are escaped to its hash table.
+ * (<code>size()</code> is not checked: this map doesn't count its elements.)
+ */
+public class KeyDepthMapTrieSpecialNibbleTest {
+
+    @Test(timeout = 60000)
+    public void testSameAsReference() {
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        final KeyDepthMapTrieSpecialNibble map = new KeyDepthMapTrieSpecialNibble(board);
+        final int[] keys = KeyDepthMapReference.createKeys(board, new Random(1));
+        KeyDepthMapReference reference = KeyDepthMapReference.putRandomValues(map, keys, new Random(2));
+        KeyDepthMapReference.checkStoredValues(map, reference, keys);
+        //after reset() the map is empty again, also the escaped values
+        assertTrue(map.reset(board));
+        reference = KeyDepthMapReference.putRandomValues(map, keys, new Random(3));
+        KeyDepthMapReference.checkStoredValues(map, reference, keys);
+    }
+
+
+
+    @Test(timeout = 60000)
+    public void testEscapedValues() {
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        final KeyDepthMapTrieSpecialNibble map = new KeyDepthMapTrieSpecialNibble(board);
+        final int key = KeyDepthMapReference.createKeys(board, new Random(1))[0];
+        //the leaf is selected by the lower bits of the key, the uppermost bits are the index in the leaf
+        final int leafBits = board.sizeNumBits - board.sizeNumBits / 2;
+        final int other = key ^ (1 << (board.getNumRobots() * board.sizeNumBits - leafBits));
+        //a single key is stored in its node: the second key of the leaf moves both keys into the leaf
+        assertEquals(true, map.putIfGreater(other, 1));
+        //the largest value that fits into the leaf, then the escaped values
+        assertEquals(true, map.putIfGreater(key, 14));
+        final long leafBytes = map.allocatedBytes();
+        assertEquals(false, map.putIfGreater(key, 14));
+        assertEquals(true, map.putIfGreater(key, 15));
+        assertTrue(map.allocatedBytes() > leafBytes);
+        assertEquals(false, map.putIfGreater(key, 15));
+        assertEquals(true, map.putIfGreater(key, 200));
+        assertEquals(false, map.putIfGreater(key, 16));
+        assertEquals(false, map.putIfGreater(key, 200));
+        assertEquals(true, map.putIfGreater(key, 255));
+        assertEquals(false, map.putIfGreater(key, 255));
+        //the other value in the same leaf byte is not changed by the escaped value, and vice versa
+        assertEquals(false, map.putIfGreater(other, 1));
+        assertEquals(true, map.putIfGreater(other, 2));
+        assertEquals(false, map.putIfGreater(key, 255));
+    }
+
+
+
+    @Test(timeout = 120000)
+    public void testSolver() throws InterruptedException {
+        final Board board = Board.createBoardGameID(KeyDepthMapReference.GAME_ID);
+        final String expected = new SolverIDDFS(board, 1).execute().get(0).toMovelistString();
+        try {
+            KeyDepthMapFactory.setDefaultClass(KeyDepthMapTrieSpecialNibble.class);
+            assertEquals(expected, new SolverIDDFS(board, 1).execute().get(0).toMovelistString());
+        } finally {
+            KeyDepthMapFactory.setDefaultClass(KeyDepthMapTrieSpecial.class);
+        }
+    }
+}
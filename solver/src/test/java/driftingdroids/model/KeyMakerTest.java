@@ -0,0 +1,104 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * <code>runIncremental</code> of <code>KeyMakerInt</code> and <code>KeyMakerLong</code>
+ * must create the same keys as <code>run</code> of the new state,
+ * also after a long sequence of moves that starts from a single <code>run</code>.
+ */
+public class KeyMakerTest {
+
+    private static final int SIZE_NUM_BITS = 8;     //16x16 board
+    private static final int NUM_MOVES = 10000;
+
+
+
+    @Test
+    public void testIntIncrementalSameAsRun() {
+        for (int numRobots = 1;  numRobots * SIZE_NUM_BITS <= 32;  ++numRobots) {
+            for (final boolean isWildcard : new boolean[] { false, true }) {
+                final KeyMakerInt keyMaker = KeyMakerInt.createInstance(numRobots, SIZE_NUM_BITS, isWildcard);
+                final Random random = new Random(numRobots);
+                final int[] state = randomState(numRobots, random);
+                int key = keyMaker.run(state);
+                for (int i = 0;  i < NUM_MOVES;  ++i) {
+                    final int robo = random.nextInt(numRobots);
+                    final int oldPos = state[robo];
+                    state[robo] = freePosition(state, random);
+                    key = keyMaker.runIncremental(key, robo, oldPos, state[robo]);
+                    assertEquals(keyMaker.run(state), key);
+                }
+            }
+        }
+    }
+
+
+
+    @Test
+    public void testLongIncrementalSameAsRun() {
+        for (int numRobots = 1;  numRobots * SIZE_NUM_BITS <= 64;  ++numRobots) {
+            for (final boolean isWildcard : new boolean[] { false, true }) {
+                final KeyMakerLong keyMaker = KeyMakerLong.createInstance(numRobots, SIZE_NUM_BITS, isWildcard);
+                final Random random = new Random(numRobots);
+                final int[] state = randomState(numRobots, random);
+                long key = keyMaker.run(state);
+                for (int i = 0;  i < NUM_MOVES;  ++i) {
+                    final int robo = random.nextInt(numRobots);
+                    final int oldPos = state[robo];
+                    state[robo] = freePosition(state, random);
+                    key = keyMaker.runIncremental(key, robo, oldPos, state[robo]);
+                    assertEquals(keyMaker.run(state), key);
+                }
+            }
+        }
+    }
+
+
+
+    //the robots are on distinct squares; the walls don't matter for the keys
+    private static int[] randomState(final int numRobots, final Random random) {
+        final int[] state = new int[numRobots];
+        for (int robo = 0;  robo < numRobots;  ++robo) {
+            state[robo] = -1;
+            state[robo] = freePosition(state, random);
+        }
+        return state;
+    }
+
+
+
+    private static int freePosition(final int[] state, final Random random) {
+        for (;;) {
+            final int pos = random.nextInt(1 << SIZE_NUM_BITS);
+            boolean isFree = true;
+            for (final int other : state) {
+                if (other == pos) { isFree = false; }
+            }
+            if (true == isFree) {
+                return pos;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * <code>Reachability</code> must never report a goal as unreachable if the board has a solution,
+ * and the optimal solution must not be longer than its bound. The solvers must stop at once
+ * if the goal can't be reached, and must find the optimal solution within the bound otherwise.
+ */
+public class ReachabilityTest {
+
+    private static final int WIDTH = 6, HEIGHT = 6;
+    private static final int NUM_BOARDS = 300;
+    private static final int MAX_DEPTH = 1000;  //more than the number of states of the small boards
+
+
+
+    @Test(timeout = 60000)
+    public void testUnreachableGoal() throws InterruptedException {
+        //a single robot on an empty board stops only on the border squares
+        final Board board = Board.createBoardFreestyle(null, 5, 5, 1);
+        board.setRobots(new int[] { 0 });
+        board.addGoal(12, 0, Board.GOAL_CIRCLE);
+        board.setGoal(12);
+        final Reachability reachability = new Reachability(board);
+        assertFalse(reachability.isGoalReachable());
+        assertEquals(4, reachability.getNumSquares(0));     //the corners
+        for (final Solver solver : new Solver[] {
+                new SolverIDDFS(board, 1), Solver.createInstance(board, 1), Solver.createGreedyInstance(board) }) {
+            assertEquals(0, solver.execute().get(0).size());
+            assertTrue(solver.isUnsolvable());
+        }
+    }
+
+
+
+    @Test(timeout = 120000)
+    public void testSameAsReference() throws InterruptedException {
+        final Random random = new Random(1);
+        int numUnreachable = 0;
+        for (int i = 0;  i < NUM_BOARDS;  ++i) {
+            final Board board = createRandomBoard(random);
+            final Reachability reachability = new Reachability(board);
+            final int minLength = ReferenceSearch.findMinLength(board, MAX_DEPTH);
+            if (minLength >= 0) {
+                assertTrue(board.toString(), reachability.isGoalReachable());
+                assertTrue(board.toString(), minLength <= reachability.getMaxSolutionLength());
+            }
+            if (false == reachability.isGoalReachable()) {
+                ++numUnreachable;
+            }
+            //the reference search doesn't know the special rules of wildcard goals and of "solution01"
+            if ((board.getGoal().robotNumber >= 0) && (false == board.isSolution01())) {
+                final Solver solver = new SolverIDDFS(board, 1);
+                assertEquals(board.toString(), Math.max(0, minLength), solver.execute().get(0).size());
+                if (false == reachability.isGoalReachable()) {
+                    assertTrue(board.toString(), solver.isUnsolvable());
+                } else if (minLength >= 0) {
+                    assertFalse(board.toString(), solver.isUnsolvable());
+                }
+            }
+        }
+        assertTrue(numUnreachable > 0);
+    }
+
+
+
+    //a small board with some random walls, 1 to 3 robots and a random goal (sometimes a wildcard goal)
+    private static Board createRandomBoard(final Random random) {
+        final Board board = Board.createBoardFreestyle(null, WIDTH, HEIGHT, 1 + random.nextInt(3));
+        for (int w = 0;  w < 8;  ++w) {
+            board.setWall(random.nextInt(board.size), String.valueOf("NESW".charAt(random.nextInt(4))), true);
+        }
+        board.setRobots(KeyDepthMapReference.randomState(board, random));
+        int goalPosition;
+        do {
+            goalPosition = random.nextInt(board.size);
+        } while (true == board.isObstacle(goalPosition));
+        board.addGoal(goalPosition, random.nextInt(board.getNumRobots() + 1) - 1, Board.GOAL_CIRCLE);
+        board.setGoal(goalPosition);
+        return board;
+    }
+}
@@ -0,0 +1,131 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A plain breadth-first search and a replay of solutions, without any of the tricks of the solvers,
+ * used by the tests to check the solutions found by the real implementations.
+ */
+final class ReferenceSearch {
+
+    private ReferenceSearch() { }
+
+
+
+    /**
+     * Moves a robot until it reaches a wall or another robot.
+     *
+     * @return the new position of the robot (the old position if it can't move in this direction)
+     */
+    static int move(final Board board, final int[] state, final int robo, final int dir) {
+        final boolean[] wallsDir = board.getWalls()[dir];
+        final int dirIncr = board.directionIncrement[dir];
+        int pos = state[robo];
+        while (false == wallsDir[pos]) {    //all boards are surrounded by outer walls
+            boolean isBlocked = false;
+            for (final int other : state) {
+                if (pos + dirIncr == other) { isBlocked = true; }
+            }
+            if (true == isBlocked) {
+                break;
+            }
+            pos += dirIncr;
+        }
+        return pos;
+    }
+
+
+
+    static boolean isGoalReached(final Board board, final int[] state) {
+        final Board.Goal goal = board.getGoal();
+        for (int robo = 0;  robo < state.length;  ++robo) {
+            if (((goal.robotNumber == robo) || (goal.robotNumber < 0)) && (goal.position == state[robo])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+    /**
+     * Checks that each move of the solution is a legal move, starting at the current robot positions
+     * of the board, and that the last move reaches the goal.
+     */
+    static boolean isValid(final Board board, final Solution solution) {
+        final int[] state = board.getRobotPositions().clone();
+        solution.resetMoves();
+        for (Move move = solution.getNextMove();  null != move;  move = solution.getNextMove()) {
+            if ((state[move.robotNumber] != move.oldPosition)
+                    || (move(board, state, move.robotNumber, move.direction) != move.newPosition)
+                    || (move.oldPosition == move.newPosition)) {
+                return false;
+            }
+            state[move.robotNumber] = move.newPosition;
+        }
+        solution.resetMoves();
+        return isGoalReached(board, state);
+    }
+
+
+
+    /**
+     * Finds the number of moves of the shortest solution, starting at the current robot positions of the board.
+     * The states of the last depth are only checked, not stored.
+     *
+     * @return the number of moves, or -1 if there is no solution of up to <code>maxDepth</code> moves
+     */
+    static int findMinLength(final Board board, final int maxDepth) {
+        List<int[]> states = new ArrayList<int[]>();
+        states.add(board.getRobotPositions().clone());
+        if (true == isGoalReached(board, states.get(0))) {
+            return 0;
+        }
+        final Set<String> known = new HashSet<String>();
+        known.add(Arrays.toString(states.get(0)));
+        for (int depth = 1;  depth <= maxDepth;  ++depth) {
+            final List<int[]> nextStates = new ArrayList<int[]>();
+            for (final int[] state : states) {
+                for (int robo = 0;  robo < state.length;  ++robo) {
+                    for (int dir = 0;  dir < 4;  ++dir) {
+                        final int newPos = move(board, state, robo, dir);
+                        if (newPos == state[robo]) {
+                            continue;
+                        }
+                        final int[] newState = state.clone();
+                        newState[robo] = newPos;
+                        if (true == isGoalReached(board, newState)) {
+                            return depth;
+                        }
+                        if ((depth < maxDepth) && (true == known.add(Arrays.toString(newState)))) {
+                            nextStates.add(newState);
+                        }
+                    }
+                }
+            }
+            states = nextStates;
+        }
+        return -1;
+    }
+}
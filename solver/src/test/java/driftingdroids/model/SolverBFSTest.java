@@ -0,0 +1,102 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * <code>SolverBFS</code> must find solutions with the same number of moves as <code>SolverIDDFS</code>,
+ * and it must pass its number of threads to the <code>SolverIDDFS</code> that it delegates to.
+ * Both solvers report only the depths without solutions to their listener.
+ */
+public class SolverBFSTest {
+
+    private static final String[] GAME_IDS = {
+        "4BDE+42+9E0B5A6F+92",
+        "98EB+43+03ECC8F1+23",
+        "50E7+41+1FCEB29E+1D",
+        "201F+41+72243035+EA",
+        "C12F+41+1B28D5D6+C3",
+    };
+
+
+
+    @Test(timeout = 120000)
+    public void testSameLengthAsIDDFS() throws InterruptedException {
+        for (final String gameID : GAME_IDS) {
+            final Board board = Board.createBoardGameID(gameID);
+            final int expected = new SolverIDDFS(board, 1).execute().get(0).size();
+            assertEquals(gameID, expected, new SolverBFS(board).execute().get(0).size());
+        }
+    }
+
+
+
+    @Test(timeout = 120000)
+    public void testDelegateWithThreads() throws InterruptedException {
+        for (final String gameID : GAME_IDS) {
+            final Board board = Board.createBoardGameID(gameID);
+            final Solver iddfs = new SolverIDDFS(board, 1);
+            iddfs.setOptionAllSolutions(1000, 0);
+            //SolverBFS doesn't support the all-solutions mode, so it delegates to a parallel SolverIDDFS
+            final Solver bfs = new SolverBFS(board, 4);
+            bfs.setOptionAllSolutions(1000, 0);
+            assertEquals(gameID, toMovelistStrings(iddfs.execute()), toMovelistStrings(bfs.execute()));
+        }
+    }
+
+
+
+    @Test(timeout = 120000)
+    public void testDepthFinished() throws InterruptedException {
+        for (final String gameID : GAME_IDS) {
+            final Board board = Board.createBoardGameID(gameID);
+            for (final Solver solver : new Solver[] { new SolverIDDFS(board, 1), new SolverBFS(board) }) {
+                final int[] lastDepth = { 0 };
+                solver.setListener(new SolverListener() {
+                    @Override
+                    public void onDepthFinished(int depthLimit, int storedStates, int megaBytes, long milliSeconds) {
+                        lastDepth[0] = depthLimit;
+                    }
+                    @Override
+                    public void onSolutionFound(Solution solution) { }
+                });
+                final int solutionLength = solver.execute().get(0).size();
+                //(SolverIDDFS doesn't report the depth 1, it starts to search at the depth 2)
+                assertTrue(gameID, lastDepth[0] <= solver.getSearchedDepth());
+                assertTrue(gameID, lastDepth[0] < solutionLength);
+            }
+        }
+    }
+
+
+
+    private static List<String> toMovelistStrings(final List<Solution> solutions) {
+        final List<String> result = new ArrayList<String>();
+        for (final Solution solution : solutions) {
+            result.add(solution.toMovelistString());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * <code>SolverGreedy</code> must find a legal solution, which is not shorter than the optimal
+ * solution and has at most 3 (the weight of its estimate) times the optimal number of moves.
+ */
+public class SolverGreedyTest {
+
+    private static final String[] GAME_IDS = {
+        "4BDE+42+9E0B5A6F+92",
+        "98EB+43+03ECC8F1+23",
+        "50E7+41+1FCEB29E+1D",
+        "3C1E+43+0981A294+6B",
+        "69F4+40+CA19BBF6+AE",
+        "34A5+42+B2CAA85B+93",
+        "1283+40+D544DD09+21",
+        "9B24+42+3BFE192A+95",
+        "5678+43+73E349BF+12",
+        "FA9C+40+C39EFE86+1C",
+    };
+    private static final int WEIGHT = 3;
+
+
+
+    @Test(timeout = 120000)
+    public void testValidSolution() throws InterruptedException {
+        for (final String gameID : GAME_IDS) {
+            final Board board = Board.createBoardGameID(gameID);
+            final int optimal = new SolverIDDFS(board, 1).execute().get(0).size();
+            final Solver greedy = Solver.createGreedyInstance(board);
+            final Solution solution = greedy.execute().get(0);
+            assertTrue(gameID, ReferenceSearch.isValid(board, solution));
+            assertTrue(gameID, solution.size() >= optimal);
+            assertTrue(gameID, solution.size() <= WEIGHT * optimal);
+            assertEquals(gameID, false, greedy.isBudgetExceeded());
+        }
+    }
+
+
+
+    @Test(timeout = 120000)
+    public void testFallbackNoRebounds() throws InterruptedException {
+        //without rebound moves SolverGreedy delegates to SolverIDDFS
+        final Board board = Board.createBoardGameID(GAME_IDS[0]);
+        final Solver iddfs = new SolverIDDFS(board, 1);
+        iddfs.setOptionAllowRebounds(false);
+        final Solver greedy = Solver.createGreedyInstance(board);
+        greedy.setOptionAllowRebounds(false);
+        assertEquals(iddfs.execute().get(0).toMovelistString(), greedy.execute().get(0).toMovelistString());
+    }
+}
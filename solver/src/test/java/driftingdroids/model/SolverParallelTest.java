@@ -0,0 +1,99 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * The parallel mode of <code>SolverIDDFS</code> must find the same solutions as the sequential search,
+ * in every run, although the threads race for the states that are reached by more than one task.
+ */
+public class SolverParallelTest {
+
+    //the parallel search of these boards has returned other solutions than the sequential search
+    private static final String[] GAME_IDS = {
+        "201F+41+72243035+EA",
+        "C12F+41+1B28D5D6+C3",
+        "5B2C+43+0330EC0A+9E",
+    };
+    private static final int NUM_THREADS = 4;
+    private static final int NUM_RUNS = 10;
+
+
+
+    @Test(timeout = 120000)
+    public void testSameAsSequential() throws InterruptedException {
+        for (final String gameID : GAME_IDS) {
+            this.checkSameAsSequential(gameID, true);
+        }
+    }
+
+
+
+    @Test(timeout = 120000)
+    public void testSameAsSequentialNoRebounds() throws InterruptedException {
+        for (final String gameID : GAME_IDS) {
+            this.checkSameAsSequential(gameID, false);
+        }
+    }
+
+
+
+    @Test(timeout = 120000)
+    public void testAllSolutionsSameAsSequential() throws InterruptedException {
+        final Board board = Board.createBoardGameID(GAME_IDS[0]);
+        final Solver sequential = new SolverIDDFS(board, 1);
+        sequential.setOptionAllSolutions(1000, 0);
+        final List<String> expected = toMovelistStrings(sequential.execute());
+        final Solver parallel = new SolverIDDFS(board, NUM_THREADS);
+        parallel.setOptionAllSolutions(1000, 0);
+        for (int run = 0;  run < NUM_RUNS;  ++run) {
+            assertEquals(expected, toMovelistStrings(parallel.execute()));
+        }
+    }
+
+
+
+    private void checkSameAsSequential(final String gameID, final boolean allowRebounds) throws InterruptedException {
+        final Board board = Board.createBoardGameID(gameID);
+        final Solver sequential = new SolverIDDFS(board, 1);
+        sequential.setOptionAllowRebounds(allowRebounds);
+        final String expected = sequential.execute().get(0).toMovelistString();
+        //the solver is reused, like the workers and the map of the parallel mode
+        final Solver parallel = new SolverIDDFS(board, NUM_THREADS);
+        parallel.setOptionAllowRebounds(allowRebounds);
+        for (int run = 0;  run < NUM_RUNS;  ++run) {
+            assertEquals(gameID, expected, parallel.execute().get(0).toMovelistString());
+        }
+    }
+
+
+
+    private static List<String> toMovelistStrings(final List<Solution> solutions) {
+        final List<String> result = new ArrayList<String>();
+        for (final Solution solution : solutions) {
+            result.add(solution.toMovelistString());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * A solver that is executed again after <code>Board.setRobots()</code> (a hint in the middle of a game)
+ * must find the same solution as a new solver for the same position.
+ * With one move left, the goal robot is next to the goal, so this is the "solution01" special case.
+ */
+public class SolverResolveTest {
+
+    private static final String[] GAME_IDS = {
+        "1872+42+FEC79FAF+9A",
+        "201F+41+72243035+EA",
+    };
+
+
+
+    @Test(timeout = 60000)
+    public void testResolveOneMoveLeft() throws InterruptedException {
+        for (final String gameID : GAME_IDS) {
+            this.checkResolve(gameID, 1);
+        }
+    }
+
+
+
+    @Test(timeout = 60000)
+    public void testResolveTwoMovesLeft() throws InterruptedException {
+        for (final String gameID : GAME_IDS) {
+            this.checkResolve(gameID, 2);
+        }
+    }
+
+
+
+    private void checkResolve(final String gameID, final int movesLeft) throws InterruptedException {
+        final Board board = Board.createBoardGameID(gameID);
+        final Solver solver = Solver.createInstance(board);
+        final Solution solution = solver.execute().get(0);
+        assertTrue(gameID, solution.size() > movesLeft);
+
+        //play the solution until the specified number of moves is left
+        final int[] robots = board.getRobotPositions().clone();
+        solution.resetMoves();
+        for (int i = solution.size() - movesLeft;  i > 0;  --i) {
+            final Move move = solution.getNextMove();
+            robots[move.robotNumber] = move.newPosition;
+        }
+        assertTrue(gameID, board.setRobots(robots));
+        final Solution warm = solver.execute().get(0);
+
+        final Board freshBoard = Board.createBoardGameID(gameID);
+        assertTrue(gameID, freshBoard.setRobots(robots));
+        final Solution fresh = Solver.createInstance(freshBoard).execute().get(0);
+
+        assertTrue(gameID, fresh.size() > 0);
+        assertEquals(gameID, fresh.size(), warm.size());
+        assertEquals(gameID, fresh.toMovelistString(), warm.toMovelistString());
+    }
+}
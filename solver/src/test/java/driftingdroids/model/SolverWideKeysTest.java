@@ -0,0 +1,101 @@
+/*  DriftingDroids - yet another Ricochet Robots solver program.
+    Copyright (C) 2011-2014 Michael Henke
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package driftingdroids.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * <code>SolverIDDFS</code> must find optimal solutions also on boards whose states need keys
+ * of more than 64 bits (<code>KeyMakerWide</code>), here 9 robots on the 16x16 board.
+ */
+public class SolverWideKeysTest {
+
+    private static final String GAME_ID = "201F+41+72243035+EA";
+    private static final int NUM_ROBOTS = 9;
+    private static final int NUM_BOARDS = 20;
+    private static final int MAX_DEPTH = 4;    //the reference search is slow
+
+
+
+    @Test
+    public void testKeyMakerWide() {
+        final Board board = createBoard();
+        final KeyMakerWide keyMaker = KeyMakerWide.createInstance(board.getNumRobots(), board.sizeNumBits, false);
+        final Random random = new Random(1);
+        final long[] keys = new long[6];
+        for (int i = 0;  i < 1000;  ++i) {
+            final int[] state = KeyDepthMapReference.randomState(board, random);
+            keyMaker.run(state, keys, 0);
+            //the other robots are sorted: swapping two of them gives the same key
+            final int[] swapped = state.clone();
+            swapped[0] = state[1];
+            swapped[1] = state[0];
+            keyMaker.run(swapped, keys, 2);
+            assertEquals(keys[0], keys[2]);
+            assertEquals(keys[1], keys[3]);
+            //the incremental key of a moved robot is the same as the key of the new state
+            final int robo = random.nextInt(state.length);
+            final int[] moved = state.clone();
+            moved[robo] = ReferenceSearch.move(board, state, robo, random.nextInt(4));
+            keyMaker.runIncremental(keys, 0, 4, robo, state[robo], moved[robo]);
+            keyMaker.run(moved, keys, 2);
+            assertEquals(keys[2], keys[4]);
+            assertEquals(keys[3], keys[5]);
+        }
+    }
+
+
+
+    @Test(timeout = 120000)
+    public void testSameLengthAsReference() throws InterruptedException {
+        final Board board = createBoard();
+        assertTrue(board.getNumRobots() * board.sizeNumBits > 64);
+        final Random random = new Random(1);
+        int numBoards = 0;
+        while (numBoards < NUM_BOARDS) {
+            //random moves from a random state, and the goal where the goal robot stops at last:
+            //the optimal solution has at most MAX_DEPTH moves, so the reference search is fast
+            final int[] state = KeyDepthMapReference.randomState(board, random);
+            board.setRobots(state.clone());
+            for (int depth = 0;  depth < MAX_DEPTH;  ++depth) {
+                final int robo = ((MAX_DEPTH - 1 == depth) ? 0 : random.nextInt(state.length));
+                state[robo] = ReferenceSearch.move(board, state, robo, random.nextInt(4));
+            }
+            board.addGoal(state[0], 0, Board.GOAL_CIRCLE);
+            board.setGoal(state[0]);
+            if (true == board.isSolution01()) {
+                continue;
+            }
+            final Solution solution = new SolverIDDFS(board, 1).execute().get(0);
+            assertTrue(ReferenceSearch.isValid(board, solution));
+            assertEquals(ReferenceSearch.findMinLength(board, MAX_DEPTH), solution.size());
+            ++numBoards;
+        }
+    }
+
+
+
+    private static Board createBoard() {
+        return Board.createBoardFreestyle(Board.createBoardGameID(GAME_ID), Board.WIDTH_STANDARD, Board.HEIGHT_STANDARD, NUM_ROBOTS);
+    }
+}